@@ -6,6 +6,8 @@ import fleetmanager.*;
 import interfaces.*;
 import exceptions.*;
 import simulator.*;
+import logging.*;
+import storage.*;
 import javax.swing.*;
 
 public class Main {
@@ -50,8 +52,63 @@ public class Main {
 
     // main function 
     public static void main(String[] args) {
+        // java Main --simulate [scenario file] [key=value ...] runs the highway simulation headless
+        // and exits, for load tests on machines without a display
+        if (args.length > 0 && args[0].equals("--simulate")) {
+            HeadlessSimulation.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         Scanner sc = new Scanner(System.in);
-        FleetManager fleetManager = new FleetManager();
+        // -Dfleet.autosave=<file> saves the fleet in the background once it has changed, every
+        // fleet.autosave.interval seconds (default 30) or after fleet.autosave.changes changes
+        // (default 1000), whichever comes first. The save thread copies the fleet while the CLI
+        // may be changing it, so the fleet is kept in a ConcurrentFleetManager then
+        String autosaveFile = System.getProperty("fleet.autosave");
+        FleetManager fleetManager = autosaveFile != null ? new ConcurrentFleetManager() : new FleetManager();
+
+        // -Dfleet.archive=<file> opens a large fleet file lazily: vehicles are read from it
+        // as they are looked up instead of all at once
+        String archiveFile = System.getProperty("fleet.archive");
+        if (archiveFile != null && autosaveFile != null) {
+            System.out.println("Autosave cannot follow a fleet archive; fleet.archive ignored");
+        } else if (archiveFile != null) {
+            try {
+                LazyFleetManager lazy = LazyFleetManager.open(archiveFile);
+                System.out.println(lazy.size() + " vehicles indexed in " + archiveFile);
+                fleetManager = lazy;
+            } catch (IOException | InvalidOperationException e) {
+                System.out.println("Could not open fleet archive: " + e.getMessage());
+            }
+        }
+
+        // -Dfleet.store=<file> keeps the fleet in a persistent store: it is restored from
+        // the file on start and each vehicle's record is updated in place as it changes
+        MappedFleetStore store = null;
+        String storeFile = System.getProperty("fleet.store");
+        if (storeFile != null) {
+            try {
+                store = MappedFleetStore.open(storeFile);
+                fleetManager.addAll(store.load());
+                store.attach(fleetManager);
+                System.out.println(store.size() + " vehicles restored from " + storeFile);
+            } catch (IOException | InvalidOperationException e) {
+                System.out.println("Could not open fleet store: " + e.getMessage());
+            }
+        }
+
+        AutosaveService autosave = null;
+        if (autosaveFile != null) {
+            try {
+                long interval = Long.parseLong(System.getProperty("fleet.autosave.interval", "30"));
+                long changes = Long.parseLong(System.getProperty("fleet.autosave.changes", "1000"));
+                autosave = new AutosaveService(fleetManager, autosaveFile, interval * 1000, changes);
+                System.out.println("Autosaving to " + autosaveFile);
+            } catch (NumberFormatException | InvalidOperationException e) {
+                System.out.println("Could not start autosave: " + e.getMessage());
+            }
+        }
+
+        IncrementalFleetSaver saver = null;   // tracks changes since the last CSV save
 
         // CLI
         while (true) {
@@ -266,29 +323,63 @@ public class Main {
 
             // SAVE FLEET 
             else if (choice == 7) {
-                System.out.print("Enter filename to save (e.g., fleet.csv): ");
+                System.out.print("Enter filename to save (e.g., fleet.csv, fleet.snap, fleet.jsonl or fleet.cols): ");
                 String filename = readString(sc);
 
                 if (filename.isEmpty()) {
                     System.out.println("Invalid filename. Save cancelled.");
                 } else {
                     CSVManager save = new CSVManager();
-                    save.savetoCSV(filename, fleetManager.getFleet());
+                    if (CSVManager.isSnapshot(filename)) {
+                        save.saveSnapshot(filename, fleetManager.getFleet());
+                    } else if (CSVManager.isJsonl(filename)) {
+                        save.saveJsonl(filename, fleetManager.getFleet());
+                    } else if (CSVManager.isColumnar(filename)) {
+                        save.saveColumnar(filename, fleetManager.getFleet());
+                    } else {
+                        // the first save to a file writes the whole fleet, later ones only what changed since
+                        try {
+                            if (saver == null || !saver.getBaseFile().equals(filename)) {
+                                if (saver != null) {
+                                    saver.close();
+                                }
+                                saver = new IncrementalFleetSaver(filename, fleetManager);
+                                System.out.println(saver.saveFull() + " vehicles saved to " + filename);
+                            } else {
+                                System.out.println(saver.save() + " changes saved to " + filename);
+                            }
+                        } catch (IOException e) {
+                            System.out.println("Error saving fleet: " + e.getMessage());
+                        }
+                    }
                 }
             }
 
             // LOAD FLEET 
             else if (choice == 8) {
-                System.out.print("Enter filename to load (e.g., fleet.csv): ");
+                System.out.print("Enter filename to load (e.g., fleet.csv, fleet.snap or fleet.jsonl): ");
                 String filename = readString(sc);
 
                 if (filename.isEmpty()) {
                     System.out.println("Invalid filename. Load cancelled.");
+                } else if (CSVManager.isColumnar(filename)) {
+                    // an analytics export holds too little to rebuild vehicles from; show its report instead
+                    try {
+                        System.out.println("Columnar files cannot be loaded; report from " + filename + ":");
+                        System.out.println(new CSVManager().columnarReport(filename));
+                    } catch (IOException | InvalidOperationException e) {
+                        System.out.println("Error reading columnar file: " + e.getMessage());
+                    }
                 } else {
                     try {
                         CSVManager load = new CSVManager();
-                        load.loadCSV(filename, fleetManager.getFleet(),
-                                fleetManager.getmap(), fleetManager.getset());
+                        if (CSVManager.isSnapshot(filename)) {
+                            load.loadSnapshot(filename, fleetManager);
+                        } else if (CSVManager.isJsonl(filename)) {
+                            load.loadJsonl(filename, fleetManager);
+                        } else {
+                            load.loadCSV(filename, fleetManager);
+                        }
                         System.out.println("Fleet loaded successfully from " + filename);
                     } catch (Exception e) {
                         System.out.println("Error loading fleet: " + e.getMessage());
@@ -334,24 +425,24 @@ public class Main {
                     int ch = readInt(sc);
 
                     if (ch == 1) {
-                        fleetManager.sortFleetByEfficiency();
+                        List<Vehicle> sorted = fleetManager.sortFleetByEfficiency();
                         System.out.println("Sorted vehicles by efficiency");
-                        for (Vehicle v : fleetManager.getFleet()) v.displayInfo();
+                        for (Vehicle v : sorted) v.displayInfo();
                         break;
                     } else if (ch == 2) {
-                        fleetManager.sortFleetBySpeed();
+                        List<Vehicle> sorted = fleetManager.sortFleetBySpeed();
                         System.out.println("Sorted vehicles by speed");
-                        for (Vehicle v : fleetManager.getFleet()) v.displayInfo();
+                        for (Vehicle v : sorted) v.displayInfo();
                         break;
                     } else if (ch == 3) {
-                        fleetManager.sortFleetByCurrentMileage();
+                        List<Vehicle> sorted = fleetManager.sortFleetByCurrentMileage();
                         System.out.println("Sorted vehicles by mileage");
-                        for (Vehicle v : fleetManager.getFleet()) v.displayInfo();
+                        for (Vehicle v : sorted) v.displayInfo();
                         break;
                     } else if (ch == 4) {
-                        fleetManager.sortFleetByModel();
+                        List<Vehicle> sorted = fleetManager.sortFleetByModel();
                         System.out.println("Sorted Vehicles by Model");
-                        for (Vehicle v : fleetManager.getFleet()) v.displayInfo();
+                        for (Vehicle v : sorted) v.displayInfo();
                         break;
                     } else {
                         System.out.println("Invalid input");
@@ -365,6 +456,9 @@ public class Main {
             }
 
             // LAUNCH HIGHWAY SIMULATOR GUI
+            else if (choice == 13 && java.awt.GraphicsEnvironment.isHeadless()) {
+                System.out.println("No display available. Run the simulation headless with: java Main --simulate <scenario file>");
+            }
             else if (choice == 13) {
                 System.out.println("Launching Highway Simulator GUI...");
                 SwingUtilities.invokeLater(() -> {
@@ -387,153 +481,162 @@ public class Main {
         }
 
         sc.close();
+        if (fleetManager instanceof LazyFleetManager) {
+            try {
+                ((LazyFleetManager) fleetManager).close();
+            } catch (IOException e) {
+                System.out.println("Error closing fleet archive: " + e.getMessage());
+            }
+        }
+        if (saver != null) {
+            try {
+                saver.close();   // lets a running compaction finish
+            } catch (IOException e) {
+                System.out.println("Error closing fleet saver: " + e.getMessage());
+            }
+        }
+        if (autosave != null) {
+            try {
+                autosave.close();   // writes the changes made since the last autosave
+                System.out.println("Autosave: " + autosave.getMetrics());
+            } catch (IOException e) {
+                System.out.println("Error in final autosave: " + e.getMessage());
+            }
+        }
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                System.out.println("Error closing fleet store: " + e.getMessage());
+            }
+        }
+        FleetLog.getSink().close();   // flush anything a background sink still holds
     }
 }
 
 // CSVManager class handles saving and loading fleet data in CSV files.
 class CSVManager {
 
-    // this function saves fleet data into a CSV file
-    public void savetoCSV(String fileName, List<Vehicle> fleet) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(fileName, true))) {
-            for (Vehicle v : fleet) {
-                StringBuilder line = new StringBuilder();
-                line.append("Class:").append(v.getClass().getSimpleName()).append(",");
-                line.append("ID:").append(v.getId()).append(",");
-                line.append("Model:").append(v.getModel()).append(",");
-                line.append("MaxSpeed:").append(v.getMaxSpeed()).append(",");
-                line.append("Mileage:").append(v.getCurrentMileage()).append(",");
-
-                if (v instanceof Car) {
-                    Car c = (Car) v;
-                    line.append("FuelLevel:").append(c.getFuelLevel()).append(",");
-                    line.append("PassengerCapacity:").append(c.getPassengerCapacity()).append(",");
-                    line.append("CurrentPassengers:").append(c.getCurrentPassengers()).append(",");
-                    line.append("MaintenanceNeeded:").append(c.needsMaintenance()).append(",");
-                    line.append("NumWheels:").append(c.getNumWheels());
-                } else if (v instanceof Truck) {
-                    Truck t = (Truck) v;
-                    line.append("NumWheels:").append(t.getNumWheels()).append(",");
-                    line.append("FuelLevel:").append(t.getFuelLevel()).append(",");
-                    line.append("CargoCapacity:").append(t.getCargoCapacity()).append(",");
-                    line.append("CurrentCargo:").append(t.getCurrentCargo()).append(",");
-                    line.append("MaintenanceNeeded:").append(t.needsMaintenance());
-                } else if (v instanceof Bus) {
-                    Bus b = (Bus) v;
-                    line.append("NumWheels:").append(b.getNumWheels()).append(",");
-                    line.append("FuelLevel:").append(b.getFuelLevel()).append(",");
-                    line.append("PassengerCapacity:").append(b.getPassengerCapacity()).append(",");
-                    line.append("CurrentPassengers:").append(b.getCurrentPassengers()).append(",");
-                    line.append("CargoCapacity:").append(b.getCargoCapacity()).append(",");
-                    line.append("CurrentCargo:").append(b.getCurrentCargo()).append(",");
-                    line.append("MaintenanceNeeded:").append(b.needsMaintenance());
-                } else if (v instanceof CargoShip) {
-                    CargoShip s = (CargoShip) v;
-                    line.append("HasSail:").append(s.getSail()).append(",");
-                    line.append("FuelLevel:").append(s.getFuelLevel()).append(",");
-                    line.append("CurrentCargo:").append(s.getCurrentCargo()).append(",");
-                    line.append("MaintenanceNeeded:").append(s.needsMaintenance());
-                } else if (v instanceof Airplane) {
-                    Airplane p = (Airplane) v;
-                    line.append("MaxAltitude:").append(p.getMaxAltitude()).append(",");
-                    line.append("FuelLevel:").append(p.getFuelLevel()).append(",");
-                    line.append("PassengerCapacity:").append(p.getPassengerCapacity()).append(",");
-                    line.append("CurrentPassengers:").append(p.getCurrentPassengers()).append(",");
-                    line.append("CurrentCargo:").append(p.getCurrentCargo()).append(",");
-                    line.append("MaintenanceNeeded:").append(p.needsMaintenance());
-                }
+    // saves the fleet as a binary snapshot, replacing the file
+    public void saveSnapshot(String fileName, List<Vehicle> fleet) {
+        try {
+            BinarySnapshot.save(fileName, fleet);
+            FleetLog.info(fileName + " has been updated");
+        } catch (IOException e) {
+            FleetLog.error("Error saving snapshot: " + e.getMessage());
+        }
+    }
 
-                writer.println(line);
+    public void loadSnapshot(String fileName, FleetManager fleetManager) {
+        try {
+            BulkAddResult result = BinarySnapshot.loadInto(fileName, fleetManager);
+            for (BulkAddResult.Rejection r : result.getRejected()) {
+                FleetLog.warn("Error: " + r.getReason());
             }
+        } catch (IOException | InvalidOperationException e) {
+            FleetLog.error("Error loading snapshot: " + e.getMessage());
+        }
+    }
+
+    // snapshots are picked by extension, everything else is treated as CSV
+    public static boolean isSnapshot(String fileName) {
+        return fileName.toLowerCase().endsWith(".snap");
+    }
+
+    // saves the fleet as JSON Lines, one object per vehicle, replacing the file
+    public void saveJsonl(String fileName, List<Vehicle> fleet) {
+        try {
+            JsonlFleetWriter.write(fileName, fleet);
+            FleetLog.info(fileName + " has been updated");
         } catch (IOException e) {
-            System.out.println("Error saving fleet to file: " + e.getMessage());
+            FleetLog.error("Error saving fleet as JSON Lines: " + e.getMessage());
         }
-        System.out.println(fileName + " has been updated");
     }
 
-    // this function loads fleet data from CSV file 
-    public void loadCSV(String fileName, List<Vehicle> fleet, TreeMap<String, List<Vehicle>> map, HashSet<String> idd) {
-        try (Scanner sc = new Scanner(new File(fileName))) {
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String[] elements = line.split(",");
-                String id = "", model = "", className = "";
-                double maxSpeed = 0, mileage = 0, fuelLevel = 0, maxAltitude = 0, cargoCapacity = 0, currentCargo = 0;
-                int passengerCapacity = 0, currentPassengers = 0, numWheels = 0;
-                boolean maintenanceNeeded = false, hasSail = false;
-
-                for (String i : elements) {
-                    String[] parts = i.split(":");
-                    String val = parts[1].trim();
-                    String type = parts[0].trim();
-
-                    if (type.equals("Class")) {
-                        className = val;
-                    } else if (type.equals("ID")) {
-                        id = val;
-                    } else if (type.equals("Model")) {
-                        model = val;
-                    } else if (type.equals("MaxSpeed")) {
-                        maxSpeed = Double.parseDouble(val);
-                    } else if (type.equals("Mileage")) {
-                        mileage = Double.parseDouble(val);
-                    } else if (type.equals("FuelLevel")) {
-                        fuelLevel = Double.parseDouble(val);
-                    } else if (type.equals("MaxAltitude")) {
-                        maxAltitude = Double.parseDouble(val);
-                    } else if (type.equals("PassengerCapacity")) {
-                        passengerCapacity = Integer.parseInt(val);
-                    } else if (type.equals("CurrentPassengers")) {
-                        currentPassengers = Integer.parseInt(val);
-                    } else if (type.equals("NumWheels")) {
-                        numWheels = Integer.parseInt(val);
-                    } else if (type.equals("CargoCapacity")) {
-                        cargoCapacity = Double.parseDouble(val);
-                    } else if (type.equals("CurrentCargo")) {
-                        currentCargo = Double.parseDouble(val);
-                    } else if (type.equals("MaintenanceNeeded")) {
-                        maintenanceNeeded = Boolean.parseBoolean(val);
-                    } else if (type.equals("HasSail")) {
-                        hasSail = Boolean.parseBoolean(val);
-                    }
-                }
+    public void loadJsonl(String fileName, FleetManager fleetManager) {
+        List<Vehicle> loaded = new ArrayList<>();
+        try (JsonlFleetReader reader = JsonlFleetReader.open(fileName)) {
+            Vehicle v;
+            while ((v = reader.next()) != null) {
+                loaded.add(v);
+            }
+        } catch (IOException | InvalidOperationException e) {
+            FleetLog.error("Error loading fleet from file: " + e.getMessage());
+        }
+        // records read before any error are still added, in one batch
+        BulkAddResult result = fleetManager.addAll(loaded);
+        for (BulkAddResult.Rejection r : result.getRejected()) {
+            FleetLog.warn("Error: " + r.getReason());
+        }
+    }
 
-                Vehicle v = null;
-                if (className.equals("Car")) {
-                    v = new Car(id, model, maxSpeed, mileage, numWheels, fuelLevel, passengerCapacity, currentPassengers, maintenanceNeeded);
-                } else if (className.equals("Bus")) {
-                    v = new Bus(id, model, maxSpeed, mileage, numWheels, fuelLevel,passengerCapacity, currentPassengers, cargoCapacity, currentCargo,maintenanceNeeded);
-                } else if (className.equals("Truck")) {
-                    v = new Truck(id, model, maxSpeed, mileage, numWheels, fuelLevel,
-                            cargoCapacity, currentCargo, maintenanceNeeded);
-                } else if (className.equals("Airplane")) {
-                    v = new Airplane(id, model, maxSpeed, mileage, fuelLevel, maxAltitude,
-                            currentPassengers, currentCargo, maintenanceNeeded);
-                } else if (className.equals("CargoShip")) {
-                    v = new CargoShip(id, model, maxSpeed, mileage, hasSail,
-                            fuelLevel, currentCargo, maintenanceNeeded);
-                }
+    // saves the fleet's analytics columns, replacing the file
+    public void saveColumnar(String fileName, List<Vehicle> fleet) {
+        try {
+            ColumnarFleetWriter.write(fileName, fleet);
+            FleetLog.info(fileName + " has been updated");
+        } catch (IOException e) {
+            FleetLog.error("Error saving columnar file: " + e.getMessage());
+        }
+    }
 
-                if (v != null) {
-                    try{
-                    idd.add(v.getId());
-                    Vehicle.checkUniqueId(fleet, v.getId());
-                    fleet.add(v);
-                    if(map.containsKey(v.getModel())){
-                    map.get(v.getModel()).add(v);
-                    }else{
-                        List<Vehicle> newModelList = new ArrayList<>(); 
-                        newModelList.add(v);
-                        map.put(v.getModel(), newModelList);
-                    }
-                    System.out.println("Vehicle with ID " + v.getId() + " added to fleet");
-                    } catch (InvalidOperationException e) {
-                        System.out.println("Error: " + e.getMessage());
-                    }
+    // the fleet report, computed from the columns alone
+    public String columnarReport(String fileName) throws IOException, InvalidOperationException {
+        try (ColumnarFleetReader reader = ColumnarFleetReader.open(fileName)) {
+            return reader.query().summary().toReport();
+        }
+    }
+
+    public static boolean isColumnar(String fileName) {
+        return fileName.toLowerCase().endsWith(".cols");
+    }
+
+    public static boolean isJsonl(String fileName) {
+        String name = fileName.toLowerCase();
+        return name.endsWith(".jsonl") || name.endsWith(".ndjson");
+    }
+
+    // files at least this big are imported on all cores
+    private static final long PARALLEL_LOAD_BYTES = 64L << 20;
+
+    // this function loads fleet data from CSV file, streaming it through CsvFleetReader;
+    // large files go through ParallelCsvImporter instead
+    public void loadCSV(String fileName, FleetManager fleetManager) {
+        if (IncrementalFleetSaver.hasDeltas(fileName)) {   // saved incrementally: base plus deltas
+            try {
+                BulkAddResult result = fleetManager.addAll(IncrementalFleetSaver.load(fileName));
+                for (BulkAddResult.Rejection r : result.getRejected()) {
+                    FleetLog.warn("Error: " + r.getReason());
                 }
+            } catch (IOException | InvalidOperationException e) {
+                FleetLog.error("Error loading fleet from file: " + e.getMessage());
+            }
+            return;
+        }
+        if (new File(fileName).length() >= PARALLEL_LOAD_BYTES) {
+            try {
+                BulkAddResult result = ParallelCsvImporter.importInto(fileName, fleetManager);
+                for (BulkAddResult.Rejection r : result.getRejected()) {
+                    FleetLog.warn("Error: " + r.getReason());
                 }
-            }catch (FileNotFoundException | InvalidOperationException e) {
-            System.out.println("Error loading fleet from file: " + e.getMessage());
+            } catch (IOException | InvalidOperationException e) {
+                FleetLog.error("Error loading fleet from file: " + e.getMessage());
+            }
+            return;
+        }
+        List<Vehicle> loaded = new ArrayList<>();
+        try (CsvFleetReader reader = CsvFleetReader.open(fileName)) {
+            Vehicle v;
+            while ((v = reader.next()) != null) {
+                loaded.add(v);
+            }
+        } catch (IOException | InvalidOperationException e) {
+            FleetLog.error("Error loading fleet from file: " + e.getMessage());
+        }
+        // records read before any error are still added, in one batch
+        BulkAddResult result = fleetManager.addAll(loaded);
+        for (BulkAddResult.Rejection r : result.getRejected()) {
+            FleetLog.warn("Error: " + r.getReason());
         }
     }
 }
@@ -0,0 +1,229 @@
+package benchmarks;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import vehicles.*;
+import concreteclasses.*;
+import interfaces.*;
+import fleetmanager.*;
+
+// stress check for ConcurrentFleetManager: threads add, remove, run journeys (sequential and parallel)
+// and read reports and indexes at the same time for a while, then every maintained structure is checked
+// against a fresh recount of the fleet. Any mismatch is printed and the run exits with status 1.
+// Checked: fleet size, ID set, type buckets, speed and mileage indexes, running mileage total,
+// and that every vehicle added and not removed is still there.
+// usage: java benchmarks.ConcurrentFleetStress [seconds] [threads per role] [initial vehicles]
+public class ConcurrentFleetStress {
+    private static final Class<?>[] TYPES = {Car.class, Bus.class, Truck.class, Airplane.class, CargoShip.class,
+            FuelConsumable.class, Maintainable.class};
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int perRole = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int initial = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        logging.FleetLog.setSink(new logging.NullSink());
+
+        ConcurrentFleetManager fm = new ConcurrentFleetManager();
+        Set<String> expectedIds = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < initial; i++) {
+            Vehicle v = make("S" + i, i);
+            fm.addVehicle(v);
+            expectedIds.add(v.getId());
+        }
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong adds = new AtomicLong(), removes = new AtomicLong(), journeys = new AtomicLong(), reads = new AtomicLong();
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < perRole; t++) {
+            int worker = t;
+            threads.add(new Thread(() -> {
+                int n = 0;
+                while (!stop.get()) {
+                    Vehicle v = make("A" + worker + "-" + n, n);
+                    n++;
+                    fm.addVehicle(v);
+                    expectedIds.add(v.getId());
+                    adds.incrementAndGet();
+                }
+            }, "adder-" + t));
+            threads.add(new Thread(() -> {
+                Random random = new Random(worker);
+                while (!stop.get()) {
+                    // removes a vehicle this thread saw in a snapshot; another remover may get there first
+                    List<Vehicle> fleet = fm.getFleet();
+                    if (fleet.isEmpty()) {
+                        continue;
+                    }
+                    String id = fleet.get(random.nextInt(fleet.size())).getId();
+                    if (!expectedIds.remove(id)) {
+                        continue;   // claimed by the other remover
+                    }
+                    try {
+                        fm.removeVehicle(id);
+                        removes.incrementAndGet();
+                    } catch (exceptions.InvalidOperationException e) {
+                        errors.add(new IllegalStateException("Remove of " + id + " failed: " + e.getMessage()));
+                    }
+                }
+            }, "remover-" + t));
+            threads.add(new Thread(() -> {
+                while (!stop.get()) {
+                    fm.refuelAll(50);
+                    if (journeys.incrementAndGet() % 2 == 0) {
+                        fm.startAllJourneysParallel(1);
+                    } else {
+                        fm.startAllJourneys(1);
+                    }
+                    fm.maintainAll();
+                }
+            }, "journeys-" + t));
+            threads.add(new Thread(() -> {
+                while (!stop.get()) {
+                    fm.generateReport();
+                    fm.sortFleetBySpeed();
+                    fm.vehiclesWithMileageBetween(0, 1000);
+                    fm.vehiclesNeedingMaintenance();
+                    fm.searchByType(Car.class);
+                    reads.incrementAndGet();
+                }
+            }, "reporter-" + t));
+        }
+        for (Thread t : threads) {
+            t.setUncaughtExceptionHandler((th, e) -> errors.add(e));
+            t.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for (Thread t : threads) {
+            t.join();
+        }
+        System.out.printf("%d s, %d threads: %d adds, %d removes, %d journey rounds, %d report rounds%n",
+                seconds, threads.size(), adds.get(), removes.get(), journeys.get(), reads.get());
+
+        List<String> failures = new ArrayList<>();
+        for (Throwable e : errors) {
+            failures.add("thread failed: " + e);
+        }
+        try {
+            check(fm, expectedIds, initial + adds.get() - removes.get(), failures);
+        } catch (RuntimeException e) {
+            failures.add("check failed: " + e);   // structures too broken to compare
+        }
+        if (!failures.isEmpty()) {
+            for (String f : failures) {
+                System.out.println("FAIL " + f);
+            }
+            System.exit(1);
+        }
+        System.out.println("OK: " + fm.getFleet().size() + " vehicles, every index matches a recount");
+    }
+
+    // compares every maintained structure with a recount of the fleet list
+    private static void check(FleetManager fm, Set<String> expectedIds, long expectedSize, List<String> failures) {
+        List<Vehicle> fleet = new ArrayList<>(fm.getFleet());
+        if (fleet.removeIf(Objects::isNull)) {
+            failures.add("fleet list holds null entries");
+        }
+        Set<Vehicle> members = Collections.newSetFromMap(new IdentityHashMap<>());
+        members.addAll(fleet);
+        Set<String> ids = new HashSet<>();
+        double mileage = 0;
+        for (Vehicle v : fleet) {
+            ids.add(v.getId());
+            mileage += v.getCurrentMileage();
+        }
+
+        expect(failures, "fleet size", expectedSize, fleet.size());
+        expect(failures, "distinct vehicles", fleet.size(), members.size());
+        expect(failures, "ID set size", fleet.size(), fm.getset().size());
+        if (!fm.getset().equals(ids)) {
+            failures.add("ID set differs from the fleet's IDs");
+        }
+        if (!expectedIds.equals(ids)) {
+            failures.add("fleet IDs differ from the IDs added and not removed");
+        }
+        for (Vehicle v : fleet) {
+            if (fm.findById(v.getId()) != v) {
+                failures.add("findById(" + v.getId() + ") does not return the fleet's vehicle");
+                break;
+            }
+        }
+
+        for (Class<?> type : TYPES) {
+            long recount = fleet.stream().filter(type::isInstance).count();
+            List<Vehicle> bucket = fm.searchByType(type);
+            expect(failures, type.getSimpleName() + " bucket", recount, bucket.size());
+            if (!members.containsAll(bucket)) {
+                failures.add(type.getSimpleName() + " bucket holds vehicles no longer in the fleet");
+            }
+        }
+
+        checkIndex(failures, "speed index", fm.sortFleetBySpeed(), members, Vehicle::getMaxSpeed);
+        checkIndex(failures, "mileage index", fm.sortFleetByCurrentMileage(), members, Vehicle::getCurrentMileage);
+        if (!fleet.isEmpty()) {
+            double fastest = fleet.stream().mapToDouble(Vehicle::getMaxSpeed).max().getAsDouble();
+            double slowest = fleet.stream().mapToDouble(Vehicle::getMaxSpeed).min().getAsDouble();
+            expect(failures, "max() speed", fastest, fm.max().getMaxSpeed());
+            expect(failures, "min() speed", slowest, fm.min().getMaxSpeed());
+        }
+
+        double reported = reportValue(fm.generateReport(), "Total Mileage: ");
+        if (Math.abs(reported - mileage) > 0.01 + Math.abs(mileage) * 1e-9) {
+            failures.add(String.format("running mileage total %.2f, recount %.2f", reported, mileage));
+        }
+    }
+
+    private static void checkIndex(List<String> failures, String name, List<Vehicle> index, Set<Vehicle> members,
+            java.util.function.ToDoubleFunction<Vehicle> key) {
+        expect(failures, name + " size", members.size(), index.size());
+        Set<Vehicle> indexed = Collections.newSetFromMap(new IdentityHashMap<>());
+        indexed.addAll(index);
+        if (!indexed.equals(members)) {
+            failures.add(name + " holds different vehicles than the fleet");
+        }
+        for (int i = 1; i < index.size(); i++) {
+            if (key.applyAsDouble(index.get(i - 1)) > key.applyAsDouble(index.get(i))) {
+                failures.add(name + " out of order at position " + i + " (stale key)");
+                break;
+            }
+        }
+    }
+
+    private static double reportValue(String report, String label) {
+        for (String line : report.split("\n")) {
+            if (line.startsWith(label)) {
+                return Double.parseDouble(line.substring(label.length()).trim());
+            }
+        }
+        throw new IllegalStateException("Report has no \"" + label.trim() + "\" line");
+    }
+
+    private static void expect(List<String> failures, String what, double expected, double actual) {
+        if (expected != actual) {
+            failures.add(what + ": expected " + expected + ", found " + actual);
+        }
+    }
+
+    // all five vehicle types in turn, with varied speeds and mileage so the indexes have work to do
+    private static Vehicle make(String id, int n) {
+        try {
+            double mileage = (n * 37) % 5000;
+            boolean maintenance = n % 7 == 0;
+            switch (n % 5) {
+                case 0:
+                    return new Car(id, "Corolla", 120 + n % 90, mileage, 4, 40, 5, 2, maintenance);
+                case 1:
+                    return new Bus(id, "Volvo 9700", 80 + n % 50, mileage, 6, 150, 50, 20, 500, 100, maintenance);
+                case 2:
+                    return new Truck(id, "Actros", 70 + n % 40, mileage, 18, 300, 5000, 1000, maintenance);
+                case 3:
+                    return new Airplane(id, "A320", 700 + n % 250, mileage, 12000, 15000, 100, 2000, maintenance);
+                default:
+                    return new CargoShip(id, "Maersk E", 30 + n % 15, mileage, n % 2 == 0, 50000, 20000, maintenance);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not build vehicle " + id, e);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package benchmarks;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import simulator.*;
+import simulator.HighwayDistanceCounter.Mode;
+
+// measures the highway simulator's hot paths at 1 to N threads and writes the results as JSON:
+//   increment        throughput of HighwayDistanceCounter.increment(1) in every thread-safe mode
+//   vehicleUpdate    throughput of a full vehicle update (SimulationVehicle.tick: mileage, fuel and
+//                    status, then the counter) in every thread-safe mode, each thread on its own vehicles
+//   lostUpdates      updates lost by incrementUnsynchronized, out of a fixed number per thread
+//
+// runs like a JMH throughput benchmark: warmup iterations, then measured iterations of a fixed time,
+// each with fresh threads started together; the score is the mean over measured iterations and the
+// error half of its 99.9% confidence interval. Every run also checks that no update was lost.
+// The JSON follows JMH's result format (one object per benchmark, parameter set and thread count),
+// including the JVM fields, so existing JMH tooling can read it.
+// usage: java benchmarks.CounterBenchmark [--threads 1,2,4,8] [--warmup 3] [--iterations 5]
+//        [--time ms] [--only increment,vehicleUpdate,lostUpdates] [--out counter-benchmark.json]
+public class CounterBenchmark {
+    private static final int BATCH = 64;   // operations between checks of the stop flag
+    private static final int VEHICLES_PER_THREAD = 1024;
+    private static final int UNSYNCHRONIZED_UPDATES = 100;   // per thread; each sleeps 1 ms
+
+    private final int[] threadCounts;
+    private final int warmup;
+    private final int iterations;
+    private final long timeMillis;
+    private final List<String> results = new ArrayList<>();
+
+    private CounterBenchmark(int[] threadCounts, int warmup, int iterations, long timeMillis) {
+        this.threadCounts = threadCounts;
+        this.warmup = warmup;
+        this.iterations = iterations;
+        this.timeMillis = timeMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        int[] threads = options.containsKey("threads")
+                ? Arrays.stream(options.get("threads").split(",")).mapToInt(Integer::parseInt).toArray()
+                : defaultThreads();
+        CounterBenchmark bench = new CounterBenchmark(threads,
+                Integer.parseInt(options.getOrDefault("warmup", "3")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("time", "1000")));
+        List<String> only = Arrays.asList(options.getOrDefault("only", "increment,vehicleUpdate,lostUpdates").split(","));
+        String out = options.getOrDefault("out", "counter-benchmark.json");
+
+        System.out.printf("%-14s %-15s %7s %16s %14s%n", "benchmark", "mode", "threads", "score", "error");
+        if (only.contains("increment")) {
+            for (Mode mode : safeModes()) {
+                for (int t : threads) {
+                    bench.throughput("increment", mode, t, CounterBenchmark::incrementLoop);
+                }
+            }
+        }
+        if (only.contains("vehicleUpdate")) {
+            for (Mode mode : safeModes()) {
+                for (int t : threads) {
+                    bench.throughput("vehicleUpdate", mode, t, CounterBenchmark::vehicleLoop);
+                }
+            }
+        }
+        if (only.contains("lostUpdates")) {
+            for (int t : threads) {
+                bench.lostUpdates(t);
+            }
+        }
+        HighwayDistanceCounter.reset();
+        HighwayDistanceCounter.setMode(Mode.UNSYNCHRONIZED);
+
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8)) {
+            w.write("[\n");
+            w.write(String.join(",\n", bench.results));
+            w.write("\n]\n");
+        }
+        System.out.println("Results written to " + out);
+    }
+
+    // 1, 2, 4, ... up to twice the processors
+    private static int[] defaultThreads() {
+        List<Integer> counts = new ArrayList<>();
+        int max = Runtime.getRuntime().availableProcessors() * 2;
+        for (int t = 1; t <= max; t *= 2) {
+            counts.add(t);
+        }
+        return counts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static List<Mode> safeModes() {
+        List<Mode> modes = new ArrayList<>(Arrays.asList(Mode.values()));
+        modes.remove(Mode.UNSYNCHRONIZED);   // measured by lostUpdates instead
+        return modes;
+    }
+
+    // what each benchmark thread runs until stop is set; returns its operation count
+    private interface Loop {
+        long run(AtomicFlag stop);
+    }
+
+    private static final class AtomicFlag {
+        volatile boolean set;
+    }
+
+    private static long incrementLoop(AtomicFlag stop) {
+        long ops = 0;
+        while (!stop.set) {
+            for (int i = 0; i < BATCH; i++) {
+                HighwayDistanceCounter.increment(1);
+            }
+            ops += BATCH;
+        }
+        return ops;
+    }
+
+    private static long vehicleLoop(AtomicFlag stop) {
+        SimulationVehicle[] vehicles = new SimulationVehicle[VEHICLES_PER_THREAD];
+        for (int i = 0; i < vehicles.length; i++) {
+            vehicles[i] = new SimulationVehicle("Bench-" + i, 1e15);   // never runs dry
+            vehicles[i].resumeVehicle();
+        }
+        long ops = 0;
+        int next = 0;
+        while (!stop.set) {
+            for (int i = 0; i < BATCH; i++) {
+                HighwayDistanceCounter.increment(vehicles[next].tick());
+                next = next + 1 == vehicles.length ? 0 : next + 1;
+            }
+            ops += BATCH;
+        }
+        return ops;
+    }
+
+    private void throughput(String benchmark, Mode mode, int threads, Loop loop) throws Exception {
+        HighwayDistanceCounter.setMode(mode);
+        double[] scores = new double[iterations];
+        for (int i = 0; i < warmup + iterations; i++) {
+            HighwayDistanceCounter.reset();
+            long start = System.nanoTime();
+            long ops = runThreads(threads, loop);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long counted = HighwayDistanceCounter.getDistance();
+            if (counted != ops) {
+                throw new IllegalStateException(benchmark + " in mode " + mode + " lost " + (ops - counted) + " updates");
+            }
+            if (i >= warmup) {
+                scores[i - warmup] = ops / seconds;
+            }
+        }
+        record(benchmark, "thrpt", mode, threads, scores, "ops/s", "");
+    }
+
+    // starts the threads together, lets them run for the iteration time, and adds up their operations
+    private long runThreads(int threads, Loop loop) throws Exception {
+        AtomicFlag stop = new AtomicFlag();
+        CyclicBarrier ready = new CyclicBarrier(threads + 1);
+        List<FutureTask<Long>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            FutureTask<Long> task = new FutureTask<>(() -> {
+                ready.await();
+                return loop.run(stop);
+            });
+            tasks.add(task);
+            new Thread(task, "bench-" + t).start();
+        }
+        ready.await();
+        Thread.sleep(timeMillis);
+        stop.set = true;
+        long ops = 0;
+        for (FutureTask<Long> task : tasks) {
+            ops += task.get();
+        }
+        return ops;
+    }
+
+    private void lostUpdates(int threads) throws Exception {
+        HighwayDistanceCounter.setMode(Mode.UNSYNCHRONIZED);
+        long expected = (long) threads * UNSYNCHRONIZED_UPDATES;
+        double[] lost = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            HighwayDistanceCounter.reset();
+            CyclicBarrier ready = new CyclicBarrier(threads);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    try {
+                        ready.await();
+                    } catch (InterruptedException | BrokenBarrierException e) {
+                        return;
+                    }
+                    for (int k = 0; k < UNSYNCHRONIZED_UPDATES; k++) {
+                        HighwayDistanceCounter.incrementUnsynchronized(1);
+                    }
+                }, "bench-" + t);
+                workers[t].start();
+            }
+            for (Thread w : workers) {
+                w.join();
+            }
+            lost[i] = expected - HighwayDistanceCounter.getUnsynchronizedDistance();
+        }
+        record("lostUpdates", "ss", Mode.UNSYNCHRONIZED, threads, lost, "updates",
+                ",\n    \"secondaryMetrics\" : { \"expectedUpdates\" : { \"score\" : " + expected
+                + ", \"scoreUnit\" : \"updates\" } }");
+    }
+
+    private void record(String benchmark, String jmhMode, Mode mode, int threads, double[] scores, String unit,
+            String secondary) {
+        double mean = mean(scores);
+        double error = error(scores, mean);
+        System.out.printf("%-14s %-15s %7d %16.1f %14.1f %s%n", benchmark, mode, threads, mean, error, unit);
+
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < scores.length; i++) {
+            raw.append(i == 0 ? "" : ", ").append(number(scores[i]));
+        }
+        boolean timed = jmhMode.equals("thrpt");
+        results.add("  {\n"
+                + "    \"benchmark\" : \"benchmarks.CounterBenchmark." + benchmark + "\",\n"
+                + "    \"mode\" : \"" + jmhMode + "\",\n"
+                + "    \"threads\" : " + threads + ",\n"
+                + "    \"forks\" : 0,\n"
+                + "    \"jvm\" : \"" + escape(System.getProperty("java.home")) + "\",\n"
+                + "    \"jdkVersion\" : \"" + escape(System.getProperty("java.version")) + "\",\n"
+                + "    \"vmName\" : \"" + escape(System.getProperty("java.vm.name")) + "\",\n"
+                + "    \"vmVersion\" : \"" + escape(System.getProperty("java.vm.version")) + "\",\n"
+                + "    \"processors\" : " + Runtime.getRuntime().availableProcessors() + ",\n"
+                + "    \"warmupIterations\" : " + (timed ? warmup : 0) + ",\n"
+                + "    \"warmupTime\" : \"" + (timed ? timeMillis + " ms" : "single-shot") + "\",\n"
+                + "    \"measurementIterations\" : " + scores.length + ",\n"
+                + "    \"measurementTime\" : \"" + (timed ? timeMillis + " ms" : "single-shot") + "\",\n"
+                + "    \"params\" : { \"counterMode\" : \"" + mode.name() + "\" },\n"
+                + "    \"primaryMetric\" : {\n"
+                + "      \"score\" : " + number(mean) + ",\n"
+                + "      \"scoreError\" : " + number(error) + ",\n"
+                + "      \"scoreConfidence\" : [ " + number(mean - error) + ", " + number(mean + error) + " ],\n"
+                + "      \"scoreUnit\" : \"" + unit + "\",\n"
+                + "      \"rawData\" : [ [ " + raw + " ] ]\n"
+                + "    }" + secondary + "\n"
+                + "  }");
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double v : values) {
+            sum += v;
+        }
+        return values.length == 0 ? 0 : sum / values.length;
+    }
+
+    // half of the 99.9% confidence interval of the mean, as JMH reports it
+    private static double error(double[] values, double mean) {
+        int n = values.length;
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double squares = 0;
+        for (double v : values) {
+            squares += (v - mean) * (v - mean);
+        }
+        return studentT999(n - 1) * Math.sqrt(squares / (n - 1)) / Math.sqrt(n);
+    }
+
+    // two-sided 99.9% quantiles of Student's t distribution
+    private static final double[] T999 = {
+        636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+        4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+        3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646
+    };
+    // beyond the table: tabulated degrees of freedom and their quantiles,
+    // ending with the normal limit
+    private static final int[] T999_DF = {30, 40, 60, 120, Integer.MAX_VALUE};
+    private static final double[] T999_TAIL = {3.646, 3.551, 3.460, 3.373, 3.291};
+
+    private static double studentT999(int degrees) {
+        if (degrees <= T999.length) {
+            return T999[degrees - 1];
+        }
+        // the quantile is close to linear in 1/df, so interpolate on that scale
+        int i = 1;
+        while (degrees > T999_DF[i]) {
+            i++;
+        }
+        double lo = 1.0 / T999_DF[i - 1];
+        double hi = T999_DF[i] == Integer.MAX_VALUE ? 0.0 : 1.0 / T999_DF[i];
+        double w = (lo - 1.0 / degrees) / (lo - hi);
+        return T999_TAIL[i - 1] + w * (T999_TAIL[i] - T999_TAIL[i - 1]);
+    }
+
+    // JSON has no NaN or Infinity
+    private static String number(double v) {
+        return Double.isNaN(v) || Double.isInfinite(v) ? "\"NaN\"" : String.format(Locale.ROOT, "%.3f", v);
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
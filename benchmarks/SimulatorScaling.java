@@ -0,0 +1,190 @@
+package benchmarks;
+import java.io.*;
+import java.lang.management.*;
+import java.nio.file.*;
+import java.util.*;
+import simulator.*;
+
+// compares how far the highway simulation scales when each vehicle has a platform thread, each
+// vehicle has a virtual thread (Java 21+) and when a SimulationEngine ticks them all on a worker pool.
+// For each mode the vehicle count grows until it reaches the maximum, or vehicles can no longer be
+// started (typically no more native threads) within START_BUDGET_MILLIS; each step reports the time to start the vehicles,
+// heap in use and resident memory once they run, live platform threads, and how many of the
+// expected km were driven in a one second window (1.00 means every vehicle kept up).
+// On Java 17 and earlier the virtual mode is skipped and reported as unavailable, so it has no figures there.
+// usage: java benchmarks.SimulatorScaling [max vehicles] [modes, e.g. platform,virtual,engine]
+public class SimulatorScaling {
+    private static final double FUEL = 1e9;   // never runs dry during a step
+    private static final long START_BUDGET_MILLIS = 30_000;
+
+    public static void main(String[] args) throws Exception {
+        int max = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        List<String> modes = Arrays.asList((args.length > 1 ? args[1] : "platform,virtual,engine").split(","));
+        HighwayDistanceCounter.setSynchronizationMode(true);   // the unsynchronized demo sleeps on every update
+
+        System.out.printf("%-9s %9s %9s %10s %10s %9s %10s%n",
+                "mode", "vehicles", "start ms", "heap MB", "rss MB", "threads", "kept up");
+        Map<String, Integer> reached = new LinkedHashMap<>();
+        for (String mode : modes) {
+            if (mode.equals("virtual") && !SimulationVehicle.isVirtualThreadSupported()) {
+                System.out.printf("%-9s unavailable, needs Java 21 or later%n", mode);
+                continue;
+            }
+            int best = 0;
+            for (int count : steps(max)) {
+                Result r = run(mode, count);
+                System.out.println(r);
+                if (r.failure != null) {
+                    break;
+                }
+                best = count;
+            }
+            reached.put(mode, best);
+        }
+        System.out.println();
+        for (Map.Entry<String, Integer> e : reached.entrySet()) {
+            System.out.printf("%-9s ran %d vehicles%n", e.getKey(), e.getValue());
+        }
+    }
+
+    // 1k, 10k, 100k, ... up to max, max included
+    private static List<Integer> steps(int max) {
+        List<Integer> steps = new ArrayList<>();
+        for (int n = 1000; n < max; n *= 10) {
+            steps.add(n);
+        }
+        steps.add(max);
+        return steps;
+    }
+
+    private static Result run(String mode, int count) throws InterruptedException {
+        settle();
+        long heapBefore = usedHeap();
+        long rssBefore = residentBytes();
+
+        List<SimulationVehicle> vehicles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SimulationVehicle v = new SimulationVehicle("Vehicle-" + i, FUEL);
+            v.resumeVehicle();
+            vehicles.add(v);
+        }
+        SimulationEngine engine = null;
+        Result r = new Result(mode, count);
+        long start = System.nanoTime();
+        try {
+            if (mode.equals("engine")) {
+                engine = new SimulationEngine(vehicles);
+                engine.start();
+            } else {
+                SimulationVehicle.ThreadMode threads = mode.equals("virtual")
+                        ? SimulationVehicle.ThreadMode.VIRTUAL : SimulationVehicle.ThreadMode.PLATFORM;
+                long deadline = start + START_BUDGET_MILLIS * 1_000_000;
+                for (SimulationVehicle v : vehicles) {
+                    v.start(threads);
+                    r.started++;
+                    if ((r.started & 1023) == 0 && System.nanoTime() > deadline) {
+                        r.failure = "gave up after " + START_BUDGET_MILLIS / 1000 + " s";
+                        break;
+                    }
+                }
+            }
+        } catch (OutOfMemoryError | RuntimeException e) {
+            r.failure = e.toString();
+        }
+        r.startMillis = (System.nanoTime() - start) / 1e6;
+
+        if (r.failure == null) {
+            Thread.sleep(1500);   // every vehicle past its first update
+            // the window includes both scans, which can be slow when the vehicles' threads crowd the CPU
+            long windowStart = System.nanoTime();
+            long before = totalMileage(vehicles);
+            Thread.sleep(1000);
+            long driven = totalMileage(vehicles) - before;
+            double seconds = (System.nanoTime() - windowStart) / 1e9;
+            double intervals = seconds * 1000 / (engine != null ? engine.getTickMillis() : 1000);
+            r.keptUp = driven / (count * intervals);
+            r.threads = ManagementFactory.getThreadMXBean().getThreadCount();
+            settleHeap();
+            r.heapBytes = usedHeap() - heapBefore;
+            long rss = residentBytes();
+            r.residentBytes = rss < 0 || rssBefore < 0 ? -1 : rss - rssBefore;
+        }
+
+        if (engine != null) {
+            engine.stop();
+        }
+        for (SimulationVehicle v : vehicles) {
+            v.stopVehicle();
+        }
+        for (SimulationVehicle v : vehicles) {
+            v.join(1000);
+        }
+        return r;
+    }
+
+    private static long totalMileage(List<SimulationVehicle> vehicles) {
+        long total = 0;
+        for (SimulationVehicle v : vehicles) {
+            total += (long) v.getMileage();
+        }
+        return total;
+    }
+
+    // lets threads of the previous step exit and collects their garbage
+    private static void settle() throws InterruptedException {
+        Thread.sleep(500);
+        settleHeap();
+    }
+
+    private static void settleHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // resident set size from /proc, -1 where there is none
+    private static long residentBytes() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // not Linux
+        }
+        return -1;
+    }
+
+    private static final class Result {
+        final String mode;
+        final int count;
+        int started;
+        double startMillis;
+        long heapBytes;
+        long residentBytes = -1;
+        int threads;
+        double keptUp;
+        String failure;
+
+        Result(String mode, int count) {
+            this.mode = mode;
+            this.count = count;
+        }
+
+        @Override
+        public String toString() {
+            if (failure != null) {
+                return String.format("%-9s %9d failed after %d vehicles: %s", mode, count, started, failure);
+            }
+            return String.format("%-9s %9d %9.0f %10.1f %10s %9d %10.2f", mode, count, startMillis,
+                    heapBytes / 1048576.0, residentBytes < 0 ? "n/a" : String.format("%.1f", residentBytes / 1048576.0),
+                    threads, keptUp);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package benchmarks;
+import java.io.*;
+import java.util.*;
+import vehicles.*;
+import concreteclasses.*;
+import storage.*;
+
+// compares save/load throughput and file size of the Key:Value CSV, the schema CSV and the binary snapshot
+// usage: java benchmarks.SnapshotThroughput [vehicles] [rounds]
+public class SnapshotThroughput {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        logging.FleetLog.setSink(new logging.NullSink());
+
+        List<Vehicle> fleet = sampleFleet(count);
+        File csv = File.createTempFile("fleet", ".csv");
+        File schema = File.createTempFile("fleet", ".csv");
+        File snap = File.createTempFile("fleet", ".snap");
+        csv.deleteOnExit();
+        schema.deleteOnExit();
+        snap.deleteOnExit();
+
+        System.out.printf("%d vehicles, best of %d rounds%n", count, rounds);
+        System.out.printf("%-8s %12s %14s %14s%n", "format", "bytes", "save v/s", "load v/s");
+
+        long csvSave = Long.MAX_VALUE, csvLoad = Long.MAX_VALUE;
+        long schemaSave = Long.MAX_VALUE, schemaLoad = Long.MAX_VALUE;
+        long snapSave = Long.MAX_VALUE, snapLoad = Long.MAX_VALUE;
+        for (int r = 0; r < rounds; r++) {
+            long t = System.nanoTime();
+            CsvFleetWriter.write(csv.getPath(), fleet, false);
+            csvSave = Math.min(csvSave, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            int loaded = 0;
+            try (CsvFleetReader reader = CsvFleetReader.open(csv.getPath())) {
+                while (reader.next() != null) {
+                    loaded++;
+                }
+            }
+            csvLoad = Math.min(csvLoad, System.nanoTime() - t);
+            check(loaded, count);
+
+            t = System.nanoTime();
+            SchemaCsvWriter.write(schema.getPath(), fleet);
+            schemaSave = Math.min(schemaSave, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            loaded = 0;
+            try (CsvFleetReader reader = CsvFleetReader.open(schema.getPath())) {
+                while (reader.next() != null) {
+                    loaded++;
+                }
+            }
+            schemaLoad = Math.min(schemaLoad, System.nanoTime() - t);
+            check(loaded, count);
+
+            t = System.nanoTime();
+            BinarySnapshot.save(snap.getPath(), fleet);
+            snapSave = Math.min(snapSave, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            loaded = BinarySnapshot.load(snap.getPath()).size();
+            snapLoad = Math.min(snapLoad, System.nanoTime() - t);
+            check(loaded, count);
+        }
+        report("csv", csv.length(), count, csvSave, csvLoad);
+        report("schema", schema.length(), count, schemaSave, schemaLoad);
+        report("snapshot", snap.length(), count, snapSave, snapLoad);
+    }
+
+    private static void report(String format, long bytes, int count, long saveNanos, long loadNanos) {
+        System.out.printf("%-8s %12d %14.0f %14.0f%n", format, bytes,
+                count * 1e9 / saveNanos, count * 1e9 / loadNanos);
+    }
+
+    private static void check(int loaded, int expected) {
+        if (loaded != expected) {
+            throw new IllegalStateException("Loaded " + loaded + " of " + expected + " vehicles");
+        }
+    }
+
+    // deterministic mix of all five vehicle types
+    static List<Vehicle> sampleFleet(int count) throws Exception {
+        Random random = new Random(42);
+        String[] models = {"Corolla", "Civic", "Volvo 9700", "Actros", "A320", "Maersk E"};
+        List<Vehicle> fleet = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = "V" + i;
+            String model = models[random.nextInt(models.length)];
+            double mileage = random.nextInt(100_000);
+            boolean maintenance = random.nextInt(10) == 0;
+            switch (i % 5) {
+                case 0:
+                    fleet.add(new Car(id, model, 180, mileage, 4, random.nextInt(50), 5, random.nextInt(6), maintenance));
+                    break;
+                case 1:
+                    fleet.add(new Bus(id, model, 120, mileage, 6, random.nextInt(200), 50, random.nextInt(51), 500, random.nextInt(501), maintenance));
+                    break;
+                case 2:
+                    fleet.add(new Truck(id, model, 100, mileage, 18, random.nextInt(400), 5000, random.nextInt(5001), maintenance));
+                    break;
+                case 3:
+                    fleet.add(new Airplane(id, model, 900, mileage, 12000, random.nextInt(20000), random.nextInt(201), random.nextInt(10001), maintenance));
+                    break;
+                default:
+                    fleet.add(new CargoShip(id, model, 40, mileage, random.nextBoolean(), random.nextInt(100000), random.nextInt(50001), maintenance));
+                    break;
+            }
+        }
+        return fleet;
+    }
+}
@@ -3,8 +3,12 @@ package concreteclasses;
 import vehicles.*;
 import interfaces.*;
 import exceptions.*;
+import logging.*;
 
 public class Airplane extends AirVehicle implements FuelConsumable, PassengerCarrier, CargoCarrier, Maintainable {
+    public static final int DEFAULT_PASSENGER_CAPACITY = 200;
+    public static final double DEFAULT_CARGO_CAPACITY = 10000.0;
+
     //properties
     private double fuelLevel;
     private int passengerCapacity;
@@ -12,21 +16,35 @@ public class Airplane extends AirVehicle implements FuelConsumable, PassengerCar
     private double cargoCapacity;
     private double currentCargo;
     private boolean maintenanceNeeded;
+    private double dueSinceMileage;   // mileage at which maintenanceNeeded was last set
 
-    // constructor
+    // constructor, with the default passenger and cargo capacities
     public Airplane(String id, String model, double maxSpeed, double currentMileage, double maxAltitude,
                     double fuelLevel, int currentPassengers, double currentCargo, boolean maintenanceNeeded)
             throws InvalidOperationException {
+        this(id, model, maxSpeed, currentMileage, maxAltitude, fuelLevel, DEFAULT_PASSENGER_CAPACITY, currentPassengers,
+                DEFAULT_CARGO_CAPACITY, currentCargo, maintenanceNeeded);
+    }
+
+    // constructor for an airplane with its own capacities, e.g. one being reloaded from a file
+    public Airplane(String id, String model, double maxSpeed, double currentMileage, double maxAltitude,
+                    double fuelLevel, int passengerCapacity, int currentPassengers, double cargoCapacity,
+                    double currentCargo, boolean maintenanceNeeded)
+            throws InvalidOperationException {
         super(id, model, maxSpeed, currentMileage, maxAltitude);
         if (fuelLevel < 0 || currentPassengers < 0 || currentCargo < 0) {
             throw new InvalidOperationException("Initial values for fuel, passengers, or cargo cannot be negative.");
         }
+        if (passengerCapacity <= 0 || cargoCapacity <= 0) {
+            throw new InvalidOperationException("Airplane capacities must be positive.");
+        }
         this.fuelLevel = fuelLevel;
-        this.passengerCapacity = 200;
+        this.passengerCapacity = passengerCapacity;
         this.currentPassengers = currentPassengers;
-        this.cargoCapacity = 10000.0;
+        this.cargoCapacity = cargoCapacity;
         this.currentCargo = currentCargo;
         this.maintenanceNeeded = maintenanceNeeded;
+        this.dueSinceMileage = Maintainable.dueSince(currentMileage, 50000, 45000);
     }
 
     @Override
@@ -38,11 +56,15 @@ public class Airplane extends AirVehicle implements FuelConsumable, PassengerCar
         if (fuelLevel < fuelRequired) {
             throw new InsufficientFuelException("Not enough fuel to cover " + distance + " km.");
         }
-        System.out.println("Flying at " + getMaxAltitude() + " meters.");
+        if (FleetLog.isEnabled(Level.INFO)) {
+            FleetLog.info("Flying at " + getMaxAltitude() + " meters.");
+        }
         updateMileage(distance);
         consumeFuel(fuelRequired);
-        if (getCurrentMileage() % 50000 >= 45000) {
+        if (getCurrentMileage() % 50000 >= 45000 && !maintenanceNeeded) {
             maintenanceNeeded = true;
+            dueSinceMileage = getCurrentMileage();
+            notifyMaintenanceChanged(true);
         }
     }
 
@@ -57,7 +79,10 @@ public class Airplane extends AirVehicle implements FuelConsumable, PassengerCar
             throw new InvalidOperationException("Cannot refuel with a negative amount.");
         }
         this.fuelLevel += amount;
-        System.out.println("Airplane with ID " + getId() + " refueled. New fuel level: " + this.fuelLevel);
+        notifyFuelChanged();
+        if (FleetLog.isEnabled(Level.INFO)) {
+            FleetLog.info("Airplane with ID " + getId() + " refueled. New fuel level: " + this.fuelLevel);
+        }
     }
 
     @Override
@@ -74,6 +99,7 @@ public class Airplane extends AirVehicle implements FuelConsumable, PassengerCar
             throw new InsufficientFuelException("Fuel level too low for this consumption.");
         }
         fuelLevel -= amount;
+        notifyFuelChanged();
         return fuelLevel;
     }
 
@@ -111,18 +137,24 @@ public class Airplane extends AirVehicle implements FuelConsumable, PassengerCar
     @Override
     public void scheduleMaintenance() {
         if (needsMaintenance()) {
-            System.out.println("Scheduling maintenance for Airplane...");
+            FleetLog.info("Scheduling maintenance for Airplane...");
         }
     }
 
     @Override
     public void performMaintenance() {
         if (needsMaintenance()) {
-            System.out.println("Performing maintenance on Airplane...");
+            FleetLog.info("Performing maintenance on Airplane...");
             maintenanceNeeded = false;
+            notifyMaintenanceChanged(false);
         }
     }
 
+    @Override
+    public double maintenanceUrgency() {
+        return Maintainable.urgency(getCurrentMileage(), maintenanceNeeded, dueSinceMileage, 50000);
+    }
+
     @Override
     public void loadCargo(double weight) throws OverloadException {
         if (currentCargo + weight > cargoCapacity) {
@@ -3,6 +3,7 @@ package concreteclasses;
 import vehicles.*;
 import interfaces.*;
 import exceptions.*;
+import logging.*;
 
 public class Bus extends LandVehicle implements FuelConsumable, PassengerCarrier, CargoCarrier, Maintainable {
     // properties
@@ -12,6 +13,7 @@ public class Bus extends LandVehicle implements FuelConsumable, PassengerCarrier
     private double cargoCapacity;
     private double currentCargo;
     private boolean maintenanceNeeded;
+    private double dueSinceMileage;   // mileage at which maintenanceNeeded was last set
 
     //constructor
     public Bus(String id, String model, double maxSpeed, double currentMileage, int numWheels,
@@ -29,6 +31,7 @@ public class Bus extends LandVehicle implements FuelConsumable, PassengerCarrier
         this.cargoCapacity = cargoCapacity;
         this.currentCargo = currentCargo;
         this.maintenanceNeeded = maintenanceNeeded;
+        this.dueSinceMileage = Maintainable.dueSince(currentMileage, 5000, 4000);
     }
 
     @Override
@@ -40,11 +43,13 @@ public class Bus extends LandVehicle implements FuelConsumable, PassengerCarrier
         if (fuelLevel < requiredFuel) {
             throw new InsufficientFuelException("Insufficient fuel for " + distance + " km journey.");
         }
-        System.out.println("Transporting passengers and cargo...");
+        FleetLog.info("Transporting passengers and cargo...");
         updateMileage(distance);
         consumeFuel(requiredFuel);
-        if (getCurrentMileage() % 5000 >= 4000) {
+        if (getCurrentMileage() % 5000 >= 4000 && !maintenanceNeeded) {
             maintenanceNeeded = true;
+            dueSinceMileage = getCurrentMileage();
+            notifyMaintenanceChanged(true);
         }
     }
 
@@ -59,7 +64,10 @@ public class Bus extends LandVehicle implements FuelConsumable, PassengerCarrier
             throw new InvalidOperationException("Cannot refuel with a negative amount.");
         }
         this.fuelLevel += amount;
-        System.out.println("Bus with ID " + getId() + " refueled. New fuel level: " + this.fuelLevel);
+        notifyFuelChanged();
+        if (FleetLog.isEnabled(Level.INFO)) {
+            FleetLog.info("Bus with ID " + getId() + " refueled. New fuel level: " + this.fuelLevel);
+        }
     }
 
     @Override
@@ -76,6 +84,7 @@ public class Bus extends LandVehicle implements FuelConsumable, PassengerCarrier
             throw new InsufficientFuelException("Not enough fuel available.");
         }
         fuelLevel -= amount;
+        notifyFuelChanged();
         return fuelLevel;
     }
 
@@ -113,18 +122,24 @@ public class Bus extends LandVehicle implements FuelConsumable, PassengerCarrier
     @Override
     public void scheduleMaintenance() {
         if (needsMaintenance()) {
-            System.out.println("Bus maintenance scheduled.");
+            FleetLog.info("Bus maintenance scheduled.");
         }
     }
 
     @Override
     public void performMaintenance() {
         if (needsMaintenance()) {
-            System.out.println("Performing bus maintenance...");
+            FleetLog.info("Performing bus maintenance...");
             maintenanceNeeded = false;
+            notifyMaintenanceChanged(false);
         }
     }
 
+    @Override
+    public double maintenanceUrgency() {
+        return Maintainable.urgency(getCurrentMileage(), maintenanceNeeded, dueSinceMileage, 5000);
+    }
+
     @Override
     public void loadCargo(double weight) throws OverloadException {
         if (currentCargo + weight > cargoCapacity) {
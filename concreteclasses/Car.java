@@ -3,6 +3,7 @@ package concreteclasses;
 import vehicles.*;
 import interfaces.*;
 import exceptions.*;
+import logging.*;
 
 public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier, Maintainable {
     //properties
@@ -10,6 +11,7 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
     private int passengerCapacity;
     private int currentPassengers;
     private boolean maintenanceNeeded;
+    private double dueSinceMileage;   // mileage at which maintenanceNeeded was last set
 
     // constructor
     public Car(String id, String model, double maxSpeed, double currentMileage, int numWheels,
@@ -24,6 +26,7 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
         this.passengerCapacity = passengerCapacity;
         this.currentPassengers = currentPassengers;
         this.maintenanceNeeded = maintenanceNeeded;
+        this.dueSinceMileage = Maintainable.dueSince(currentMileage, 1000, 500);
     }
 
     @Override
@@ -35,11 +38,13 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
         if (fuelLevel < requiredFuel) {
             throw new InsufficientFuelException("Insufficient fuel: cannot travel " + distance + " km.");
         }
-        System.out.println("Driving on road...");
+        FleetLog.info("Driving on road...");
         updateMileage(distance);
         consumeFuel(requiredFuel);
-        if (getCurrentMileage() % 1000 >= 500) {
+        if (getCurrentMileage() % 1000 >= 500 && !maintenanceNeeded) {
             maintenanceNeeded = true;
+            dueSinceMileage = getCurrentMileage();
+            notifyMaintenanceChanged(true);
         }
     }
 
@@ -54,7 +59,10 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
             throw new InvalidOperationException("Cannot refuel with a negative amount.");
         }
         this.fuelLevel += amount;
-        System.out.println("Car with ID " + getId() + " refueled. New fuel level: " + this.fuelLevel);
+        notifyFuelChanged();
+        if (FleetLog.isEnabled(Level.INFO)) {
+            FleetLog.info("Car with ID " + getId() + " refueled. New fuel level: " + this.fuelLevel);
+        }
     }
 
     @Override
@@ -71,6 +79,7 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
             throw new InsufficientFuelException("Fuel level too low for this consumption.");
         }
         fuelLevel -= amount;
+        notifyFuelChanged();
         return fuelLevel;
     }
 
@@ -108,15 +117,21 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
     @Override
     public void scheduleMaintenance() {
         if (maintenanceNeeded) {
-            System.out.println("Maintenance has been scheduled for the Car.");
+            FleetLog.info("Maintenance has been scheduled for the Car.");
         }
     }
 
     @Override
     public void performMaintenance() {
         if (maintenanceNeeded) {
-            System.out.println("Performing maintenance now...");
+            FleetLog.info("Performing maintenance now...");
             maintenanceNeeded = false;
+            notifyMaintenanceChanged(false);
         }
     }
+
+    @Override
+    public double maintenanceUrgency() {
+        return Maintainable.urgency(getCurrentMileage(), maintenanceNeeded, dueSinceMileage, 1000);
+    }
 }
\ No newline at end of file
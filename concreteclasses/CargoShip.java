@@ -3,26 +3,41 @@ package concreteclasses;
 import vehicles.*;
 import interfaces.*;
 import exceptions.*;
+import logging.*;
 
 public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainable, FuelConsumable {
+    public static final double DEFAULT_CARGO_CAPACITY = 50000.0;
+
     //properites
     private double fuelLevel;
     private double cargoCapacity;
     private double currentCargo;
     private boolean maintenanceNeeded;
+    private double dueSinceMileage;   // mileage at which maintenanceNeeded was last set
 
-    //constructor
+    //constructor, with the default cargo capacity
     public CargoShip(String id, String model, double maxSpeed, double currentMileage, boolean hasSail,
                      double fuelLevel, double currentCargo, boolean maintenanceNeeded)
             throws InvalidOperationException {
+        this(id, model, maxSpeed, currentMileage, hasSail, fuelLevel, DEFAULT_CARGO_CAPACITY, currentCargo, maintenanceNeeded);
+    }
+
+    //constructor for a ship with its own cargo capacity, e.g. one being reloaded from a file
+    public CargoShip(String id, String model, double maxSpeed, double currentMileage, boolean hasSail,
+                     double fuelLevel, double cargoCapacity, double currentCargo, boolean maintenanceNeeded)
+            throws InvalidOperationException {
         super(id, model, maxSpeed, currentMileage, hasSail);
         if (fuelLevel < 0 || currentCargo < 0) {
             throw new InvalidOperationException("Initial values for fuel or cargo cannot be negative.");
         }
+        if (cargoCapacity <= 0) {
+            throw new InvalidOperationException("Cargo capacity must be positive.");
+        }
         this.fuelLevel = fuelLevel;
-        this.cargoCapacity = 50000.0;
+        this.cargoCapacity = cargoCapacity;
         this.currentCargo = currentCargo;
         this.maintenanceNeeded = maintenanceNeeded;
+        this.dueSinceMileage = Maintainable.dueSince(currentMileage, 20000, 18000);
     }
 
     @Override
@@ -31,7 +46,7 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
             throw new InvalidOperationException("Distance cannot be negative.");
         }
         if (getSail()) {
-            System.out.println("Sailing using wind...");
+            FleetLog.info("Sailing using wind...");
             updateMileage(distance);
             return;
         }
@@ -39,11 +54,13 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
         if (fuelLevel < fuelNeeded) {
             throw new InsufficientFuelException("Not enough fuel for " + distance + " km journey.");
         }
-        System.out.println("Motoring through water...");
+        FleetLog.info("Motoring through water...");
         updateMileage(distance);
         consumeFuel(fuelNeeded);
-        if (getCurrentMileage() % 20000 >= 18000) {
+        if (getCurrentMileage() % 20000 >= 18000 && !maintenanceNeeded) {
             maintenanceNeeded = true;
+            dueSinceMileage = getCurrentMileage();
+            notifyMaintenanceChanged(true);
         }
     }
 
@@ -58,7 +75,10 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
             throw new InvalidOperationException("Cannot refuel with a negative amount.");
         }
         this.fuelLevel += amount;
-        System.out.println("CargoShip with ID " + getId() + " refueled. New fuel level: " + this.fuelLevel);
+        notifyFuelChanged();
+        if (FleetLog.isEnabled(Level.INFO)) {
+            FleetLog.info("CargoShip with ID " + getId() + " refueled. New fuel level: " + this.fuelLevel);
+        }
     }
 
     @Override
@@ -75,6 +95,7 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
             throw new InsufficientFuelException("Not enough fuel to consume.");
         }
         fuelLevel -= amount;
+        notifyFuelChanged();
         return fuelLevel;
     }
 
@@ -86,18 +107,24 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
     @Override
     public void scheduleMaintenance() {
         if (needsMaintenance()) {
-            System.out.println("CargoShip maintenance scheduled.");
+            FleetLog.info("CargoShip maintenance scheduled.");
         }
     }
 
     @Override
     public void performMaintenance() {
         if (needsMaintenance()) {
-            System.out.println("Carrying out maintenance on CargoShip...");
+            FleetLog.info("Carrying out maintenance on CargoShip...");
             maintenanceNeeded = false;
+            notifyMaintenanceChanged(false);
         }
     }
 
+    @Override
+    public double maintenanceUrgency() {
+        return Maintainable.urgency(getCurrentMileage(), maintenanceNeeded, dueSinceMileage, 20000);
+    }
+
     @Override
     public void loadCargo(double weight) throws OverloadException {
         if (currentCargo + weight > cargoCapacity) {
@@ -3,6 +3,7 @@ package concreteclasses;
 import vehicles.*;
 import interfaces.*;
 import exceptions.*;
+import logging.*;
 
 public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier, Maintainable {
     //properties
@@ -10,6 +11,7 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
     private double cargoCapacity;
     private double currentCargo;
     private boolean maintenanceNeeded;
+    private double dueSinceMileage;   // mileage at which maintenanceNeeded was last set
 
     //constructor
     public Truck(String id, String model, double maxSpeed, double currentMileage, int numWheels,
@@ -24,6 +26,7 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
         this.cargoCapacity = cargoCapacity;
         this.currentCargo = currentCargo;
         this.maintenanceNeeded = maintenanceNeeded;
+        this.dueSinceMileage = Maintainable.dueSince(currentMileage, 10000, 9000);
     }
 
     @Override
@@ -35,11 +38,13 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
         if (fuelLevel < fuelNeeded) {
             throw new InsufficientFuelException("Truck does not have enough fuel for " + distance + " km.");
         }
-        System.out.println("Hauling cargo by truck...");
+        FleetLog.info("Hauling cargo by truck...");
         updateMileage(distance);
         consumeFuel(fuelNeeded);
-        if (getCurrentMileage() % 10000 >= 9000) {
+        if (getCurrentMileage() % 10000 >= 9000 && !maintenanceNeeded) {
             maintenanceNeeded = true;
+            dueSinceMileage = getCurrentMileage();
+            notifyMaintenanceChanged(true);
         }
     }
 
@@ -54,7 +59,10 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
             throw new InvalidOperationException("Cannot refuel with a negative amount.");
         }
         this.fuelLevel += amount;
-        System.out.println("Truck with ID " + getId() + " refueled. New fuel level: " + this.fuelLevel);
+        notifyFuelChanged();
+        if (FleetLog.isEnabled(Level.INFO)) {
+            FleetLog.info("Truck with ID " + getId() + " refueled. New fuel level: " + this.fuelLevel);
+        }
     }
 
     @Override
@@ -71,6 +79,7 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
             throw new InsufficientFuelException("Not enough fuel available for consumption.");
         }
         fuelLevel -= amount;
+        notifyFuelChanged();
         return fuelLevel;
     }
 
@@ -82,18 +91,24 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
     @Override
     public void scheduleMaintenance() {
         if (needsMaintenance()) {
-            System.out.println("Truck maintenance scheduled.");
+            FleetLog.info("Truck maintenance scheduled.");
         }
     }
 
     @Override
     public void performMaintenance() {
         if (needsMaintenance()) {
-            System.out.println("Performing truck maintenance...");
+            FleetLog.info("Performing truck maintenance...");
             maintenanceNeeded = false;
+            notifyMaintenanceChanged(false);
         }
     }
 
+    @Override
+    public double maintenanceUrgency() {
+        return Maintainable.urgency(getCurrentMileage(), maintenanceNeeded, dueSinceMileage, 10000);
+    }
+
     @Override
     public void loadCargo(double weight) throws OverloadException {
         if (currentCargo + weight > cargoCapacity) {
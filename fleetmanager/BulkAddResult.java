@@ -0,0 +1,49 @@
+package fleetmanager;
+import java.util.*;
+import vehicles.*;
+
+// summary of a FleetManager.addAll call: how many vehicles went in and which were turned away
+public class BulkAddResult {
+
+    // a vehicle that was not added, with the reason
+    public static class Rejection {
+        private final Vehicle vehicle;
+        private final String reason;
+
+        Rejection(Vehicle vehicle, String reason) {
+            this.vehicle = vehicle;
+            this.reason = reason;
+        }
+
+        public Vehicle getVehicle() {
+            return vehicle;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    private int added = 0;
+    private final List<Rejection> rejected = new ArrayList<>();
+
+    void accept() {
+        added++;
+    }
+
+    void reject(Vehicle v, String reason) {
+        rejected.add(new Rejection(v, reason));
+    }
+
+    public int getAddedCount() {
+        return added;
+    }
+
+    public int getRejectedCount() {
+        return rejected.size();
+    }
+
+    public List<Rejection> getRejected() {
+        return Collections.unmodifiableList(rejected);
+    }
+}
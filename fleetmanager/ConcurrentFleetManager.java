@@ -0,0 +1,240 @@
+package fleetmanager;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import vehicles.*;
+import exceptions.*;
+
+// thread-safe FleetManager: queries share a read lock and run in parallel,
+// anything that changes the fleet or its vehicles takes the write lock
+public class ConcurrentFleetManager extends FleetManager {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // set while a fleet-wide journey holds the write lock, so that callbacks coming
+    // from its worker threads do not wait on a lock the caller already owns
+    private volatile boolean journeyInProgress = false;
+
+    // returns a snapshot, since the live list may change after the lock is released
+    @Override
+    public List<Vehicle> getFleet() {
+        return read(() -> Collections.unmodifiableList(new ArrayList<>(super.getFleet())));
+    }
+
+    @Override
+    public TreeMap<String, List<Vehicle>> getmap() {
+        return read(() -> {
+            TreeMap<String, List<Vehicle>> copy = new TreeMap<>();
+            for (Map.Entry<String, List<Vehicle>> e : super.getmap().entrySet()) {
+                copy.put(e.getKey(), new ArrayList<>(e.getValue()));
+            }
+            return copy;
+        });
+    }
+
+    @Override
+    public HashSet<String> getset() {
+        return read(() -> new HashSet<>(super.getset()));
+    }
+
+    @Override
+    public <T> T inspect(Function<List<Vehicle>, T> action) {
+        return read(() -> super.inspect(action));
+    }
+
+    @Override
+    public void addVehicle(Vehicle v) {
+        lock.writeLock().lock();
+        try {
+            super.addVehicle(v);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the Stream overload collects first and then lands here, so it is covered too
+    @Override
+    public BulkAddResult addAll(Collection<? extends Vehicle> vehicles) {
+        lock.writeLock().lock();
+        try {
+            return super.addAll(vehicles);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeVehicle(String idd) throws InvalidOperationException {
+        lock.writeLock().lock();
+        try {
+            super.removeVehicle(idd);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Vehicle findById(String idd) {
+        return read(() -> super.findById(idd));
+    }
+
+    @Override
+    public void onMileageChanged(Vehicle v, double oldMileage) {
+        if (journeyInProgress) {
+            super.onMileageChanged(v, oldMileage);   // readers are already shut out by the journey
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            super.onMileageChanged(v, oldMileage);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onMaintenanceChanged(Vehicle v, boolean needed) {
+        if (journeyInProgress) {
+            super.onMaintenanceChanged(v, needed);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            super.onMaintenanceChanged(v, needed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void displayByModelName() {
+        lock.readLock().lock();
+        try {
+            super.displayByModelName();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void startAllJourneys(double distance) {
+        lock.writeLock().lock();
+        try {
+            super.startAllJourneys(distance);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public JourneyResult startAllJourneysParallel(double distance) {
+        lock.writeLock().lock();
+        journeyInProgress = true;
+        try {
+            return super.startAllJourneysParallel(distance);
+        } finally {
+            journeyInProgress = false;
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public double getTotalFuelConsumption(double distance) {
+        return read(() -> super.getTotalFuelConsumption(distance));
+    }
+
+    @Override
+    public double[] estimateFuelConsumption(double... distances) {
+        return read(() -> super.estimateFuelConsumption(distances));
+    }
+
+    @Override
+    public void refuelAll(double amount) {
+        lock.writeLock().lock();
+        try {
+            super.refuelAll(amount);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void maintainAll() {
+        lock.writeLock().lock();
+        try {
+            super.maintainAll();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Vehicle> searchByType(Class<?> type) {
+        return read(() -> super.searchByType(type));
+    }
+
+    @Override
+    public List<Vehicle> sortFleetByEfficiency() {
+        return read(super::sortFleetByEfficiency);
+    }
+
+    @Override
+    public List<Vehicle> sortFleetBySpeed() {
+        return read(super::sortFleetBySpeed);
+    }
+
+    @Override
+    public List<Vehicle> sortFleetByCurrentMileage() {
+        return read(super::sortFleetByCurrentMileage);
+    }
+
+    @Override
+    public List<Vehicle> sortFleetByModel() {
+        return read(super::sortFleetByModel);
+    }
+
+    @Override
+    public List<Vehicle> vehiclesWithMileageBetween(double min, double max) {
+        return read(() -> super.vehiclesWithMileageBetween(min, max));
+    }
+
+    @Override
+    public List<Vehicle> vehiclesWithSpeedBetween(double min, double max) {
+        return read(() -> super.vehiclesWithSpeedBetween(min, max));
+    }
+
+    @Override
+    public List<Vehicle> vehiclesWithEfficiencyBetween(double min, double max) {
+        return read(() -> super.vehiclesWithEfficiencyBetween(min, max));
+    }
+
+    @Override
+    public Vehicle max() {
+        return read(super::max);
+    }
+
+    @Override
+    public Vehicle min() {
+        return read(super::min);
+    }
+
+    @Override
+    public List<Vehicle> vehiclesNeedingMaintenance() {
+        return read(super::vehiclesNeedingMaintenance);
+    }
+
+    @Override
+    public String generateReport() {
+        return read(super::generateReport);
+    }
+
+    private <T> T read(Supplier<T> query) {
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
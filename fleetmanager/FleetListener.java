@@ -0,0 +1,22 @@
+package fleetmanager;
+import vehicles.*;
+
+// observes a FleetManager: vehicles joining and leaving the fleet, and every update a fleet
+// vehicle reports; register with FleetManager.addListener. Calls arrive on whichever thread
+// made the change, so listeners that keep state must be thread-safe
+public interface FleetListener extends Vehicle.VehicleUpdateCallback {
+
+    default void onVehicleAdded(Vehicle vehicle) {
+    }
+
+    default void onVehicleRemoved(Vehicle vehicle) {
+    }
+
+    @Override
+    default void onMileageChanged(Vehicle vehicle, double oldMileage) {
+    }
+
+    @Override
+    default void onMaintenanceChanged(Vehicle vehicle, boolean needed) {
+    }
+}
@@ -1,14 +1,34 @@
 package fleetmanager;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import vehicles.*;
 import concreteclasses.*;
 import exceptions.*;
 import interfaces.*;
+import logging.*;
 
-public class FleetManager{
-    private List<Vehicle> fleet=new ArrayList<>();   // stores all vehicles
+public class FleetManager implements Vehicle.VehicleUpdateCallback{
+    private ArrayList<Vehicle> fleet=new ArrayList<>();   // stores all vehicles
     private TreeMap<String, List<Vehicle>> map = new TreeMap<>();   // maps model name to list of vehicles of that model
-    private HashSet<String> id = new HashSet<>();    // tracks unique vehicle IDs
+    private final HashSet<String> id = new HashSet<>();    // tracks unique vehicle IDs
+    private HashMap<String, Vehicle> byId = new HashMap<>();   // maps vehicle ID to vehicle
+    private HashMap<String, Integer> slot = new HashMap<>();   // maps vehicle ID to its position in fleet
+    private HashMap<Class<?>, LinkedHashSet<Vehicle>> buckets = new HashMap<>();   // maps class, family or interface to its vehicles
+    private HashMap<Class<?>, List<Class<?>>> bucketKeys = new HashMap<>();   // caches which buckets a concrete class belongs to
+
+    // running aggregates for generateReport, kept current on add, remove, move and maintenance
+    private SortedIndex speedIndex = new SortedIndex();   // vehicles ordered by max speed
+    private SortedIndex mileageIndex = new SortedIndex();   // vehicles ordered by current mileage
+    private SortedIndex efficiencyIndex = new SortedIndex();   // vehicles ordered by fuel efficiency
+    private double totalEfficiency = 0.0;
+    private double totalMileage = 0.0;
+    private SortedIndex maintenanceQueue = new SortedIndex();   // vehicles due for maintenance, keyed by urgency
+    private final List<FleetListener> listeners = new CopyOnWriteArrayList<>();   // observers such as persistent stores
 
     public List<Vehicle> getFleet() {
         return fleet;
@@ -25,50 +45,243 @@ public class FleetManager{
     // to add vehicle
     public void addVehicle(Vehicle v){
         try{
-            id.add(v.getId());   //add vehicle ID to ID set
-            Vehicle.checkUniqueId(fleet, v.getId()); // ensure ID is unique across fleet
-            fleet.add(v);   // add vehicle to fleet list
-            if(map.containsKey(v.getModel())){
-            map.get(v.getModel()).add(v);   // add to existing model list
-            }else{
-                List<Vehicle> newModelList = new ArrayList<>(); 
-                newModelList.add(v);
-                map.put(v.getModel(), newModelList); // creating new model entry
+            if (isKnownId(v.getId())) {   // ensure ID is unique across fleet
+                throw new InvalidOperationException("Vehicle ID must be unique: " + v.getId());
+            }
+            index(v);
+            if (FleetLog.isEnabled(Level.INFO)) {
+                FleetLog.info("Vehicle with ID " + v.getId() + " added to fleet");
             }
-            System.out.println("Vehicle with ID " + v.getId() + " added to fleet");
             } catch (InvalidOperationException e) {
-                System.out.println("Error: " + e.getMessage()); // will handle duplicate ID
+                FleetLog.warn("Error: " + e.getMessage()); // will handle duplicate ID
         }
     }
 
     // to remove vehicle
     public void removeVehicle(String idd) throws InvalidOperationException{
-        int i = 0;
-        boolean found = false;
-        for(Vehicle v : fleet){
-            if(v.getId().equals(idd)){
-                System.out.println("removed ID from fleet");
-                found = true;
-                break;
+        Vehicle vehicleToRemove = byId.get(idd);
+        if(vehicleToRemove == null){
+            throw new InvalidOperationException("No such ID exists in Fleet: " + idd); // ID not found
+        }
+        unindex(vehicleToRemove);
+        FleetLog.info("removed ID from fleet");
+    }
+
+    // adds many vehicles at once: structures are sized for the whole batch up front, model groups
+    // are merged once per model, and duplicate IDs are collected instead of logged one by one
+    public BulkAddResult addAll(Collection<? extends Vehicle> vehicles){
+        BulkAddResult result = new BulkAddResult();
+        ensureCapacity(fleet.size() + vehicles.size());
+        Map<String, List<Vehicle>> modelGroups = new HashMap<>();
+        for (Vehicle v : vehicles) {
+            if (isKnownId(v.getId())) {   // already in the fleet or earlier in this batch
+                result.reject(v, "Vehicle ID must be unique: " + v.getId());
+                continue;
             }
-            i++;
+            register(v);
+            modelGroups.computeIfAbsent(v.getModel(), k -> new ArrayList<>()).add(v);
+            result.accept();
         }
-        if(!found){
-            throw new InvalidOperationException("No such ID exists in Fleet: " + idd); // ID not found
+        for (Map.Entry<String, List<Vehicle>> group : modelGroups.entrySet()) {
+            map.computeIfAbsent(group.getKey(), k -> new ArrayList<>()).addAll(group.getValue());
+        }
+        FleetLog.info(result.getAddedCount() + " vehicles added to fleet, " + result.getRejectedCount() + " rejected");
+        return result;
+    }
+
+    public BulkAddResult addAll(Stream<? extends Vehicle> vehicles){
+        return addAll(vehicles.collect(Collectors.toList()));
+    }
+
+    // grows the ID maps in one step rather than through repeated rehashing; only worth it when
+    // the batch is at least as big as the current fleet. The ID set is left as it is, since
+    // getset() hands out that very object and callers may still hold it
+    private void ensureCapacity(int expected){
+        fleet.ensureCapacity(expected);
+        if (expected <= 2 * byId.size()) {
+            return;
+        }
+        int buckets = (int) (expected / 0.75f) + 1;
+        HashMap<String, Vehicle> newById = new HashMap<>(buckets);
+        newById.putAll(byId);
+        byId = newById;
+        HashMap<String, Integer> newSlot = new HashMap<>(buckets);
+        newSlot.putAll(slot);
+        slot = newSlot;
+    }
+
+    // listeners hear about every add, remove and vehicle update from now on;
+    // vehicles already in the fleet are not replayed
+    public void addListener(FleetListener listener){
+        listeners.add(listener);
+    }
+
+    public void removeListener(FleetListener listener){
+        listeners.remove(listener);
+    }
+
+    // runs the action on the whole fleet while no FleetManager operation changes it, e.g. to copy
+    // its state for a background save. This class is not thread-safe, so here that only holds if
+    // the fleet is changed from one thread; ConcurrentFleetManager holds its read lock meanwhile
+    public <T> T inspect(Function<List<Vehicle>, T> action){
+        return action.apply(Collections.unmodifiableList(fleet));
+    }
+
+    // runs the action on every vehicle, under the same guarantee as inspect, without handing out
+    // the whole list; LazyFleetManager reads the vehicles still in its file a block at a time
+    public void forEachVehicle(Consumer<? super Vehicle> action){
+        inspect(vehicles -> {
+            vehicles.forEach(action);
+            return null;
+        });
+    }
+
+    // whether an ID is taken; subclasses that hold vehicles outside these structures add theirs
+    protected boolean isKnownId(String idd){
+        return id.contains(idd);
+    }
+
+    // returns the vehicle with the given ID, or null if it is not in the fleet
+    public Vehicle findById(String idd){
+        return byId.get(idd);
+    }
+
+    // adds the vehicle to every structure; all inserts go through here so they stay in step
+    protected void index(Vehicle v){
+        register(v);
+        if(map.containsKey(v.getModel())){
+            map.get(v.getModel()).add(v);   // add to existing model list
+        }else{
+            List<Vehicle> newModelList = new ArrayList<>();
+            newModelList.add(v);
+            map.put(v.getModel(), newModelList); // creating new model entry
+        }
+    }
+
+    // everything index() does except the model map, which addAll fills a whole group at a time
+    private void register(Vehicle v){
+        id.add(v.getId());   //add vehicle ID to ID set
+        byId.put(v.getId(), v);
+        slot.put(v.getId(), fleet.size());
+        fleet.add(v);   // add vehicle to fleet list
+        for (Class<?> key : bucketKeysFor(v.getClass())) {
+            buckets.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(v);
         }
-        else{            
-            Vehicle vehicleToRemove = fleet.get(i); 
-            id.remove(vehicleToRemove.getId());          // Remove ID from set
-            List<Vehicle> modelList = map.get(vehicleToRemove.getModel());
-            if (modelList != null) {
-                modelList.remove(vehicleToRemove);       // Remove from model map
-                if (modelList.isEmpty()) {
-                    map.remove(vehicleToRemove.getModel());
-                }
+        speedIndex.put(v, v.getMaxSpeed());
+        mileageIndex.put(v, v.getCurrentMileage());
+        efficiencyIndex.put(v, v.calculateFuelEfficiency());
+        totalEfficiency += v.calculateFuelEfficiency();
+        totalMileage += v.getCurrentMileage();
+        if (v instanceof Maintainable && ((Maintainable) v).needsMaintenance()) {
+            maintenanceQueue.put(v, ((Maintainable) v).maintenanceUrgency());
+        }
+        v.setUpdateCallback(this);   // keep the totals in step as the vehicle moves
+        for (FleetListener l : listeners) {
+            l.onVehicleAdded(v);
+        }
+    }
+
+    // removes the vehicle from every structure; the last vehicle is moved into the
+    // freed slot so the fleet list never has to shift
+    private void unindex(Vehicle v){
+        id.remove(v.getId());          // Remove ID from set
+        byId.remove(v.getId());
+        int i = slot.remove(v.getId());
+        int last = fleet.size() - 1;
+        if (i != last) {
+            Vehicle moved = fleet.get(last);
+            fleet.set(i, moved);
+            slot.put(moved.getId(), i);
+        }
+        fleet.remove(last);
+        List<Vehicle> modelList = map.get(v.getModel());
+        if (modelList != null) {
+            modelList.remove(v);       // Remove from model map
+            if (modelList.isEmpty()) {
+                map.remove(v.getModel());
             }
-            fleet.remove(i);    // finally remove from fleet list
-        } 
-        return;
+        }
+        v.setUpdateCallback(null);
+        for (Class<?> key : bucketKeysFor(v.getClass())) {
+            buckets.get(key).remove(v);
+        }
+        speedIndex.remove(v);
+        mileageIndex.remove(v);
+        efficiencyIndex.remove(v);
+        totalEfficiency -= v.calculateFuelEfficiency();
+        totalMileage -= v.getCurrentMileage();
+        maintenanceQueue.remove(v);
+        notifyVehicleRemoved(v);
+    }
+
+    // for subclasses that hold vehicles outside these structures and remove one from there
+    protected void notifyVehicleRemoved(Vehicle v){
+        for (FleetListener l : listeners) {
+            l.onVehicleRemoved(v);
+        }
+    }
+
+    // synchronized because parallel journeys report from several worker threads
+    @Override
+    public synchronized void onMileageChanged(Vehicle v, double oldMileage) {
+        totalMileage += v.getCurrentMileage() - oldMileage;
+        mileageIndex.put(v, v.getCurrentMileage());
+        if (maintenanceQueue.contains(v)) {
+            maintenanceQueue.put(v, ((Maintainable) v).maintenanceUrgency());   // urgency grows with mileage
+        }
+        for (FleetListener l : listeners) {
+            l.onMileageChanged(v, oldMileage);
+        }
+    }
+
+    @Override
+    public synchronized void onMaintenanceChanged(Vehicle v, boolean needed) {
+        if (needed) {
+            maintenanceQueue.put(v, ((Maintainable) v).maintenanceUrgency());   // vehicle just became due
+        } else {
+            maintenanceQueue.remove(v);
+        }
+        for (FleetListener l : listeners) {
+            l.onMaintenanceChanged(v, needed);
+        }
+    }
+
+    // nothing here depends on fuel levels, it is only passed on
+    @Override
+    public void onFuelChanged(Vehicle v) {
+        for (FleetListener l : listeners) {
+            l.onFuelChanged(v);
+        }
+    }
+
+    // a vehicle is bucketed under its concrete class, its abstract family (LandVehicle, AirVehicle,
+    // WaterVehicle) and every capability interface it implements
+    private List<Class<?>> bucketKeysFor(Class<?> type){
+        List<Class<?>> keys = bucketKeys.get(type);
+        if (keys == null) {
+            Set<Class<?>> found = new LinkedHashSet<>();
+            for (Class<?> c = type; c != null && c != Vehicle.class; c = c.getSuperclass()) {
+                found.add(c);
+                addInterfaces(c, found);
+            }
+            keys = new ArrayList<>(found);
+            bucketKeys.put(type, keys);
+        }
+        return keys;
+    }
+
+    private void addInterfaces(Class<?> type, Set<Class<?>> found){
+        for (Class<?> i : type.getInterfaces()) {
+            if (found.add(i)) {
+                addInterfaces(i, found);
+            }
+        }
+    }
+
+    // vehicles in the given bucket, or an empty set if none have been added
+    private Set<Vehicle> bucket(Class<?> type){
+        Set<Vehicle> b = buckets.get(type);
+        return b != null ? b : Collections.<Vehicle>emptySet();
     }
 
     // display the vehicles by their model name
@@ -96,174 +309,138 @@ public class FleetManager{
             try {
                 v.move(distance);   // Move each vehicle
             } catch (InvalidOperationException e) {
-                System.out.println("Invalid move for " + v.getId() + ": " + e.getMessage());
+                FleetLog.warn("Invalid move for " + v.getId() + ": " + e.getMessage());
             } catch (InsufficientFuelException e) {
-                System.out.println("Fuel issue for " + v.getId() + ": " + e.getMessage());
+                FleetLog.warn("Fuel issue for " + v.getId() + ": " + e.getMessage());
             }
         }
     }
 
-    // this function calcuates how much fuel will be used to travel the distance based on fuel efficiency of my vehicle.
-    public double getTotalFuelConsumption(double distance) {
-        double fuelNeeded = 0.0;
-        for (int i = 0; i < fleet.size(); i++) {
-            Vehicle v = fleet.get(i);
+    // start journey for all vehicles in parallel on the common ForkJoin pool;
+    // the fleet must not be added to or removed from while this runs
+    public JourneyResult startAllJourneysParallel(double distance) {
+        Vehicle[] vehicles = fleet.toArray(new Vehicle[0]);
+        JourneyResult result = new JourneyResult(vehicles);
+        IntStream.range(0, vehicles.length).parallel().forEach(i -> {
             try {
-                if (v instanceof Car) {
-                    Car temp = (Car) v;
-                    fuelNeeded += temp.consumeFuel(distance); 
-                }
-                else if(v instanceof Truck){
-                    Truck temp = (Truck) v;
-                    fuelNeeded += temp.consumeFuel(distance);
-                }
-                else if(v instanceof Bus){
-                    Bus temp = (Bus) v;
-                    fuelNeeded += temp.consumeFuel(distance);
-                }
-                else if(v instanceof Airplane){
-                    Airplane temp = (Airplane) v;
-                    fuelNeeded += temp.consumeFuel(distance);
-                }
-                else{
-                    CargoShip temp = (CargoShip) v;
-                    fuelNeeded += temp.consumeFuel(distance);
-                }
-                System.out.println(v.getId() +" consumed " + fuelNeeded +"for distance " + distance + " km.");  // Log fuel use
-            }catch (InsufficientFuelException e){
-                System.out.println(v.getId() + ": " + e.getMessage());
+                vehicles[i].move(distance);
+                result.record(i, JourneyResult.Outcome.MOVED, null);
+            } catch (InvalidOperationException e) {
+                result.record(i, JourneyResult.Outcome.INVALID, e.getMessage());
+            } catch (InsufficientFuelException e) {
+                result.record(i, JourneyResult.Outcome.INSUFFICIENT_FUEL, e.getMessage());
             }
-        }
+        });
+        return result;
+    }
 
-        return fuelNeeded;   // return total fuel consumed
+    // this function calcuates how much fuel will be used to travel the distance based on fuel efficiency of my vehicle.
+    // it is only an estimate: no fuel is consumed
+    public double getTotalFuelConsumption(double distance) {
+        return estimateFuelConsumption(distance)[0];
+    }
+
+    // fuel the fleet would use for each of the given distances, for planning sweeps in one call;
+    // vehicles without enough fuel for a distance count as using none, as a failed move would
+    public double[] estimateFuelConsumption(double... distances) {
+        Set<Vehicle> consumers = bucket(FuelConsumable.class);
+        FuelEstimator estimator = new FuelEstimator(consumers.size());
+        for (Vehicle v : consumers) {
+            boolean sailing = v instanceof WaterVehicle && ((WaterVehicle) v).getSail();   // sailing ships use wind
+            estimator.add(((FuelConsumable) v).getFuelLevel(), sailing ? 0.0 : 1.0 / v.calculateFuelEfficiency());
+        }
+        return estimator.estimate(distances);
     }
 
     // used to refuel all vehicles
     public void refuelAll(double amount) {
-        for (Vehicle v : fleet) {
-            if (v instanceof FuelConsumable) {
-                try {
-                    ((FuelConsumable) v).refuel(amount);   // Refuel each fuel-based vehicle
-                } catch (InvalidOperationException e) {
-                    System.out.println("Failed to refuel " + v.getId() + ": " + e.getMessage());
-                }
+        for (Vehicle v : bucket(FuelConsumable.class)) {
+            try {
+                ((FuelConsumable) v).refuel(amount);   // Refuel each fuel-based vehicle
+            } catch (InvalidOperationException e) {
+                FleetLog.warn("Failed to refuel " + v.getId() + ": " + e.getMessage());
             }
         }
     }
 
+    // services only the vehicles that are due, most urgent first
     public void maintainAll(){
-        for(Vehicle v : fleet){
-            if(v instanceof Maintainable){
-                Maintainable m = (Maintainable) v;
-                if (m.needsMaintenance()) {
-                    System.out.println("Vehicle " + v.getId() + " needs maintenance.");
-                    m.scheduleMaintenance();
-                    m.performMaintenance();
-                } else {
-                    System.out.println("Vehicle " + v.getId() + " doesn't need maintenance.");
-                }
+        for(Vehicle v : maintenanceQueue.descending()){
+            Maintainable m = (Maintainable) v;
+            if (FleetLog.isEnabled(Level.INFO)) {
+                FleetLog.info("Vehicle " + v.getId() + " needs maintenance.");
             }
+            m.scheduleMaintenance();
+            m.performMaintenance();   // leaves the queue through onMaintenanceChanged
         }
         return;
     }
     // used to search for vehicles of a particular type
     public List<Vehicle> searchByType(Class<?> type){
-        List<Vehicle> result = new ArrayList<>();
-        for(Vehicle v : fleet){
-            if(type.isInstance(v)){
-                result.add(v);   // Add vehicles matching class type
-            }
+        if (type.isAssignableFrom(Vehicle.class)) {
+            return new ArrayList<>(fleet);   // every vehicle matches Vehicle, Object and Comparable
         }
-        return result;
+        return new ArrayList<>(bucket(type));   // Vehicles matching class type
     }
 
-    public void sortFleetByEfficiency(){
-        Collections.sort(fleet, (v1, v2) -> Double.compare(v1.calculateFuelEfficiency(), v2.calculateFuelEfficiency()));
-        System.out.println("Fleet sorted by fuel efficiency");
+    // the sortFleetBy methods return sorted views from the maintained indexes;
+    // the fleet list itself keeps its order
+    public List<Vehicle> sortFleetByEfficiency(){
+        return efficiencyIndex.ascending();
     }
 
-    public void sortFleetBySpeed(){
-        // Sort by max speed
-        Collections.sort(fleet, Comparator.comparingDouble(Vehicle::getMaxSpeed));   
-        System.out.println("Fleet sorted by max speed");
+    public List<Vehicle> sortFleetBySpeed(){
+        return speedIndex.ascending();
     }
 
-    public void sortFleetByCurrentMileage() {
-        // Sort by mileage
-        Collections.sort(fleet, Comparator.comparingDouble(Vehicle::getCurrentMileage));  
-        System.out.println("Fleet sorted by current mileage (ascending)");
+    public List<Vehicle> sortFleetByCurrentMileage() {
+        return mileageIndex.ascending();
     }
 
-    public void sortFleetByModel() {
-        // Sort alphabetically by model
-        Collections.sort(fleet, Comparator.comparing(Vehicle::getModel));  
-        System.out.println("Fleet sorted by current mileage (ascending)");
+    public List<Vehicle> sortFleetByModel() {
+        // model map is already ordered alphabetically
+        List<Vehicle> sorted = new ArrayList<>(fleet.size());
+        for (List<Vehicle> vehicles : map.values()) {
+            sorted.addAll(vehicles);
+        }
+        return sorted;
     }
 
-    // will return max and min speed
-    public Vehicle max(){
-        double max = -1.0;
-        Vehicle a = null;
+    // range queries, bounds inclusive, results in ascending order of the key
+    public List<Vehicle> vehiclesWithMileageBetween(double min, double max) {
+        return mileageIndex.range(min, max);
+    }
 
-        if (fleet.isEmpty()) {
-            return null;   // Handle empty fleet
-        }
- 
-        for(Vehicle v : fleet){
-            if(max < v.getMaxSpeed()){
-                max = v.getMaxSpeed();
-                a = v;   // Track vehicle with highest speed
-            } 
-        }
-        return a;
+    public List<Vehicle> vehiclesWithSpeedBetween(double min, double max) {
+        return speedIndex.range(min, max);
     }
 
-    public Vehicle min(){
-        double min = Double.MAX_VALUE;
-        Vehicle a = null;
+    public List<Vehicle> vehiclesWithEfficiencyBetween(double min, double max) {
+        return efficiencyIndex.range(min, max);
+    }
 
-        if (fleet.isEmpty()) {
-            return null;   // Handle empty fleet
-        }
+    // will return max and min speed
+    public Vehicle max(){
+        return speedIndex.last();   // Vehicle with highest speed, null for an empty fleet
+    }
 
-        for(Vehicle v : fleet){
-            if(min > v.getMaxSpeed()){
-                min = v.getMaxSpeed();
-                a = v;   // Track vehicle with lowest speed
-            }
-        }
-        return a;
+    public Vehicle min(){
+        return speedIndex.first();   // Vehicle with lowest speed, null for an empty fleet
     }
 
-    // this finction gives a list of all vehicles that need maintenance
+    // this finction gives a list of all vehicles that need maintenance, most urgent first
     public List<Vehicle> vehiclesNeedingMaintenance() {
-        List<Vehicle> needyVehicles = new ArrayList<>();
-        for (Vehicle v : fleet) {
-            if (v instanceof Maintainable && ((Maintainable) v).needsMaintenance()) {
-                needyVehicles.add(v);   // Add vehicles needing maintenance
-            }
-        }
-        return needyVehicles;
+        return maintenanceQueue.descending();
     }
 
-    // it wiil generate a report for all the vehicles
+    // it wiil generate a report for all the vehicles, using the running totals instead of rescanning the fleet
     public String generateReport(){
-        int vehicleNum = fleet.size();
-        double totalEfficiency = 0.0;
-        double totalMileage = 0.0;
-        int maintenanceCount = vehiclesNeedingMaintenance().size();
-
-        List<Vehicle> car = searchByType(Car.class);
-        List<Vehicle> bus = searchByType(Bus.class);
-        List<Vehicle> truck = searchByType(Truck.class);
-        List<Vehicle> airPlane = searchByType(Airplane.class);
-        List<Vehicle> ship = searchByType(CargoShip.class);
-
-        for(Vehicle v : fleet){
-            totalEfficiency += v.calculateFuelEfficiency();
-            totalMileage += v.getCurrentMileage();
-        }
+        return formatReport(fleet.size(), totalEfficiency, totalMileage, maintenanceQueue.size(), max(), min());
+    }
 
+    // the report text from the fleet-wide figures; the per-class counts come from countOf
+    protected String formatReport(int vehicleNum, double totalEfficiency, double totalMileage, int needingMaintenance,
+            Vehicle fastest, Vehicle slowest){
         double averageEfficiency;
         if (vehicleNum > 0) {
             averageEfficiency = totalEfficiency / vehicleNum;
@@ -273,18 +450,23 @@ public class FleetManager{
         StringBuilder report = new StringBuilder();
         report.append("Fleet Report\n");
         report.append("Total Vehicles: ").append(vehicleNum).append("\n");
-        report.append("No of Cars: ").append(car.size()).append("\n");
-        report.append("No of Buses: ").append(bus.size()).append("\n");
-        report.append("No of Trucks: ").append(truck.size()).append("\n");
-        report.append("No of Airplanes: ").append(airPlane.size()).append("\n");
-        report.append("no of Ships: ").append(ship.size()).append("\n");
+        report.append("No of Cars: ").append(countOf(Car.class)).append("\n");
+        report.append("No of Buses: ").append(countOf(Bus.class)).append("\n");
+        report.append("No of Trucks: ").append(countOf(Truck.class)).append("\n");
+        report.append("No of Airplanes: ").append(countOf(Airplane.class)).append("\n");
+        report.append("no of Ships: ").append(countOf(CargoShip.class)).append("\n");
         report.append("Average Fuel Efficiency: ").append(String.format("%.2f", averageEfficiency)).append("\n");
         report.append("Total Mileage: ").append(String.format("%.2f", totalMileage)).append("\n");
-        report.append("No of Vehicles Needing Maintenance: ").append(maintenanceCount).append("\n");
-        report.append("Maximum Speed: ").append(max().getId(  )).append(": ").append(max().getMaxSpeed()).append("\n");
-        report.append("Minimum Speed: ").append(min().getId()).append(": ").append(min().getMaxSpeed()).append("\n");
+        report.append("No of Vehicles Needing Maintenance: ").append(needingMaintenance).append("\n");
+        report.append("Maximum Speed: ").append(fastest.getId()).append(": ").append(fastest.getMaxSpeed()).append("\n");
+        report.append("Minimum Speed: ").append(slowest.getId()).append(": ").append(slowest.getMaxSpeed()).append("\n");
 
         return report.toString();   
     }
+
+    // number of vehicles of exactly this concrete class
+    protected int countOf(Class<?> type){
+        return bucket(type).size();
+    }
  
 }
@@ -0,0 +1,59 @@
+package fleetmanager;
+import java.util.stream.IntStream;
+
+// what-if fuel estimate over a snapshot of the fleet's fuel-consuming vehicles;
+// works on plain arrays so estimating never touches (or drains) the vehicles themselves
+class FuelEstimator {
+    private static final int PARALLEL_THRESHOLD = 16384;   // below this a single thread is faster
+    private static final int CHUNK = 4096;   // vehicles per parallel task
+
+    private final double[] fuel;   // fuel level of each vehicle
+    private final double[] perKm;   // fuel burned per km, 0 for vehicles that do not burn fuel
+    private int size = 0;
+
+    FuelEstimator(int capacity) {
+        fuel = new double[capacity];
+        perKm = new double[capacity];
+    }
+
+    void add(double fuelLevel, double fuelPerKm) {
+        fuel[size] = fuelLevel;
+        perKm[size] = fuelPerKm;
+        size++;
+    }
+
+    // total fuel the fleet would burn for each distance; like move(), a vehicle that
+    // cannot cover the distance on its current fuel does not burn any
+    double[] estimate(double[] distances) {
+        if (size < PARALLEL_THRESHOLD) {
+            return accumulate(0, size, distances);
+        }
+        int chunks = (size + CHUNK - 1) / CHUNK;
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> accumulate(c * CHUNK, Math.min(size, (c + 1) * CHUNK), distances))
+                .reduce(new double[distances.length], FuelEstimator::sum);
+    }
+
+    private double[] accumulate(int from, int to, double[] distances) {
+        double[] totals = new double[distances.length];
+        for (int i = from; i < to; i++) {
+            double f = fuel[i];
+            double rate = perKm[i];
+            for (int d = 0; d < distances.length; d++) {
+                double needed = distances[d] * rate;
+                if (distances[d] > 0 && needed <= f) {
+                    totals[d] += needed;
+                }
+            }
+        }
+        return totals;
+    }
+
+    private static double[] sum(double[] a, double[] b) {
+        double[] result = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i] + b[i];
+        }
+        return result;
+    }
+}
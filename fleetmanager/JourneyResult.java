@@ -0,0 +1,72 @@
+package fleetmanager;
+import java.util.*;
+import vehicles.*;
+
+// per-vehicle outcome of a fleet-wide journey, filled in by startAllJourneysParallel
+public class JourneyResult {
+
+    public enum Outcome {
+        MOVED, INSUFFICIENT_FUEL, INVALID
+    }
+
+    private final Vehicle[] vehicles;
+    private final Outcome[] outcomes;
+    private final String[] messages;   // exception message for failed moves, null when moved
+
+    JourneyResult(Vehicle[] vehicles) {
+        this.vehicles = vehicles;
+        this.outcomes = new Outcome[vehicles.length];
+        this.messages = new String[vehicles.length];
+    }
+
+    // each slot is written by exactly one task, so no locking is needed
+    void record(int i, Outcome outcome, String message) {
+        outcomes[i] = outcome;
+        messages[i] = message;
+    }
+
+    public int size() {
+        return vehicles.length;
+    }
+
+    public Vehicle getVehicle(int i) {
+        return vehicles[i];
+    }
+
+    public Outcome getOutcome(int i) {
+        return outcomes[i];
+    }
+
+    public String getMessage(int i) {
+        return messages[i];
+    }
+
+    // number of vehicles that ended with the given outcome
+    public int count(Outcome outcome) {
+        int n = 0;
+        for (Outcome o : outcomes) {
+            if (o == outcome) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    // vehicles that ended with the given outcome, in fleet order
+    public List<Vehicle> getVehicles(Outcome outcome) {
+        List<Vehicle> result = new ArrayList<>();
+        for (int i = 0; i < vehicles.length; i++) {
+            if (outcomes[i] == outcome) {
+                result.add(vehicles[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Moved: " + count(Outcome.MOVED)
+                + ", Insufficient fuel: " + count(Outcome.INSUFFICIENT_FUEL)
+                + ", Invalid: " + count(Outcome.INVALID);
+    }
+}
@@ -0,0 +1,107 @@
+package fleetmanager;
+import java.util.*;
+import vehicles.*;
+
+// keeps vehicles ordered by a numeric key (speed, mileage, efficiency...);
+// the key each vehicle was filed under is remembered so it can be moved when the value changes
+class SortedIndex {
+    // key to the vehicle with that key, or to a LinkedHashSet once several share it;
+    // most mileage keys are unique, so this avoids a set per vehicle
+    private TreeMap<Double, Object> tree = new TreeMap<>();
+    private HashMap<Vehicle, Double> keys = new HashMap<>();   // key each vehicle is currently filed under
+
+    // adds the vehicle, or moves it if it is already indexed under another key
+    void put(Vehicle v, double key) {
+        Double old = keys.get(v);
+        if (old != null) {
+            if (old == key) {
+                return;
+            }
+            remove(v);
+        }
+        Object current = tree.get(key);
+        if (current == null) {
+            tree.put(key, v);
+        } else if (current instanceof Vehicle) {
+            LinkedHashSet<Vehicle> group = new LinkedHashSet<>();
+            group.add((Vehicle) current);
+            group.add(v);
+            tree.put(key, group);
+        } else {
+            group(current).add(v);
+        }
+        keys.put(v, key);
+    }
+
+    void remove(Vehicle v) {
+        Double key = keys.remove(v);
+        if (key == null) {
+            return;
+        }
+        Object current = tree.get(key);
+        if (current instanceof Vehicle) {
+            tree.remove(key);
+            return;
+        }
+        Set<Vehicle> sameKey = group(current);
+        sameKey.remove(v);
+        if (sameKey.size() == 1) {
+            tree.put(key, sameKey.iterator().next());   // back to a single vehicle
+        }
+    }
+
+    boolean contains(Vehicle v) {
+        return keys.containsKey(v);
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+    // first vehicle filed under the lowest key, or null if empty
+    Vehicle first() {
+        return tree.isEmpty() ? null : firstOf(tree.firstEntry().getValue());
+    }
+
+    // first vehicle filed under the highest key, or null if empty
+    Vehicle last() {
+        return tree.isEmpty() ? null : firstOf(tree.lastEntry().getValue());
+    }
+
+    List<Vehicle> ascending() {
+        return flatten(tree.values(), keys.size());
+    }
+
+    List<Vehicle> descending() {
+        return flatten(tree.descendingMap().values(), keys.size());
+    }
+
+    // vehicles whose key lies in [from, to], lowest key first
+    List<Vehicle> range(double from, double to) {
+        if (from > to) {
+            return new ArrayList<>();
+        }
+        return flatten(tree.subMap(from, true, to, true).values(), 16);
+    }
+
+    private static List<Vehicle> flatten(Collection<Object> entries, int expected) {
+        List<Vehicle> result = new ArrayList<>(expected);
+        for (Object entry : entries) {
+            if (entry instanceof Vehicle) {
+                result.add((Vehicle) entry);
+            } else {
+                result.addAll(group(entry));
+            }
+        }
+        return result;
+    }
+
+    private static Vehicle firstOf(Object entry) {
+        return entry instanceof Vehicle ? (Vehicle) entry : group(entry).iterator().next();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static LinkedHashSet<Vehicle> group(Object entry) {
+        return (LinkedHashSet<Vehicle>) entry;
+    }
+}
@@ -4,4 +4,24 @@ public interface Maintainable {
     public void scheduleMaintenance();
     public boolean needsMaintenance();
     public void performMaintenance();
+    // share of the service interval used up; higher is more urgent. Once the vehicle is due it is
+    // counted from the mileage at which it became due, so it keeps growing past 1 rather than
+    // starting over at the next interval, and the vehicle overdue longest stays the most urgent
+    public double maintenanceUrgency();
+
+    // maintenanceUrgency for a vehicle serviced every `interval` km
+    public static double urgency(double mileage, boolean due, double dueSinceMileage, double interval) {
+        if (!due) {
+            return (mileage % interval) / interval;
+        }
+        return (dueSinceMileage % interval + mileage - dueSinceMileage) / interval;
+    }
+
+    // mileage at which a vehicle created as due became due: the last time its mileage passed
+    // `threshold` within an interval, or its current mileage if it has never got that far
+    public static double dueSince(double mileage, double interval, double threshold) {
+        double intervalStart = mileage - mileage % interval;
+        double crossed = mileage % interval >= threshold ? intervalStart + threshold : intervalStart - interval + threshold;
+        return crossed >= 0 ? crossed : mileage;
+    }
 }
\ No newline at end of file
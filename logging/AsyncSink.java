@@ -0,0 +1,95 @@
+package logging;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// hands events to a background thread that writes them in batches, so callers never wait on I/O;
+// when the buffer is full new events are dropped and counted rather than blocking the caller
+public class AsyncSink implements EventSink {
+    private static final int MAX_BATCH = 1024;   // events written per flush at most
+
+    private final PrintStream out;
+    private final Level minLevel;
+    private final BlockingQueue<String> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public AsyncSink() {
+        this(System.out, Level.DEBUG, 65536);
+    }
+
+    public AsyncSink(PrintStream out, Level minLevel, int capacity) {
+        this.out = out;
+        this.minLevel = minLevel;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::drainLoop, "fleet-event-writer");
+        this.writer.setDaemon(true);   // never keeps the JVM alive on its own
+        this.writer.start();
+    }
+
+    @Override
+    public boolean isEnabled(Level level) {
+        return level.compareTo(minLevel) >= 0;
+    }
+
+    @Override
+    public void log(Level level, String message) {
+        if (isEnabled(level) && !queue.offer(message)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    // number of events lost because the buffer was full
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // stops the writer once everything queued so far has been written
+    @Override
+    public void close() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        List<String> batch = new ArrayList<>(MAX_BATCH);
+        StringBuilder text = new StringBuilder();
+        while (running) {
+            try {
+                String first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                write(batch, text);
+            } catch (InterruptedException e) {
+                break;   // close() was called
+            }
+        }
+        while (queue.drainTo(batch, MAX_BATCH) > 0) {
+            write(batch, text);
+        }
+        out.flush();
+    }
+
+    private void write(List<String> batch, StringBuilder text) {
+        for (String message : batch) {
+            text.append(message).append(System.lineSeparator());
+        }
+        out.print(text);   // one write per batch instead of one per event
+        out.flush();
+        text.setLength(0);
+        batch.clear();
+    }
+}
@@ -0,0 +1,34 @@
+package logging;
+import java.io.PrintStream;
+
+// writes each event straight to a stream as it happens; this is the default and matches the old println output
+public class ConsoleSink implements EventSink {
+    private final PrintStream out;
+    private final Level minLevel;
+
+    public ConsoleSink() {
+        this(System.out, Level.DEBUG);
+    }
+
+    public ConsoleSink(PrintStream out, Level minLevel) {
+        this.out = out;
+        this.minLevel = minLevel;
+    }
+
+    @Override
+    public boolean isEnabled(Level level) {
+        return level.compareTo(minLevel) >= 0;
+    }
+
+    @Override
+    public void log(Level level, String message) {
+        if (isEnabled(level)) {
+            out.println(message);
+        }
+    }
+
+    @Override
+    public void close() {
+        out.flush();
+    }
+}
@@ -0,0 +1,10 @@
+package logging;
+
+// destination for fleet events such as "vehicle added" or "refueled"
+public interface EventSink {
+    // lets callers skip building a message nobody will see
+    public boolean isEnabled(Level level);
+    public void log(Level level, String message);
+    // flushes anything still buffered; the sink should not be used afterwards
+    public void close();
+}
@@ -0,0 +1,55 @@
+package logging;
+
+// global entry point for fleet events; vehicles and FleetManager log here instead of System.out
+// so the destination can be swapped (console, background writer, or nothing at all)
+public class FleetLog {
+    // the starting sink can be picked with -Dfleet.log=console|async|null
+    private static volatile EventSink sink = sinkFor(System.getProperty("fleet.log", "console"));
+
+    private FleetLog() {
+    }
+
+    // installs a new sink and returns the previous one, which the caller may close
+    public static EventSink setSink(EventSink newSink) {
+        EventSink old = sink;
+        sink = newSink;
+        return old;
+    }
+
+    public static EventSink getSink() {
+        return sink;
+    }
+
+    // maps a sink name to a new sink; unknown names fall back to the console
+    public static EventSink sinkFor(String name) {
+        switch (name.toLowerCase()) {
+            case "async":
+                return new AsyncSink();
+            case "null":
+            case "off":
+                return new NullSink();
+            default:
+                return new ConsoleSink();
+        }
+    }
+
+    public static boolean isEnabled(Level level) {
+        return sink.isEnabled(level);
+    }
+
+    public static void debug(String message) {
+        sink.log(Level.DEBUG, message);
+    }
+
+    public static void info(String message) {
+        sink.log(Level.INFO, message);
+    }
+
+    public static void warn(String message) {
+        sink.log(Level.WARN, message);
+    }
+
+    public static void error(String message) {
+        sink.log(Level.ERROR, message);
+    }
+}
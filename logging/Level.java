@@ -0,0 +1,6 @@
+package logging;
+
+// severity of a fleet event, lowest first
+public enum Level {
+    DEBUG, INFO, WARN, ERROR
+}
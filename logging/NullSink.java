@@ -0,0 +1,18 @@
+package logging;
+
+// discards every event, for benchmarks and bulk runs where output is not wanted
+public class NullSink implements EventSink {
+
+    @Override
+    public boolean isEnabled(Level level) {
+        return false;
+    }
+
+    @Override
+    public void log(Level level, String message) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
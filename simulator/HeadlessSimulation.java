@@ -0,0 +1,392 @@
+package simulator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * HeadlessSimulation runs a SimulationScenario on a SimulationEngine without any display,
+ * for load tests on servers. Every report interval it prints, and optionally appends to a
+ * CSV file, the throughput, tick latency and counter discrepancy since the last report;
+ * at the end it prints the same for the whole run and optionally writes it as JSON.
+ * 
+ * Throughput is vehicle updates per second, i.e. km driven per second. Tick latency is the
+ * time a tick takes to advance every vehicle. The discrepancy is the km driven that the
+ * Highway Distance Counter missed; it is only non-zero for the unsynchronized counter.
+ * 
+ * Latencies go into fixed-size histograms, so a run of any length uses the same memory;
+ * the percentiles they give are within about 3% of the exact figures, the average and
+ * maximum are exact.
+ * 
+ *     java simulator.HeadlessSimulation scenario.properties [key=value ...]
+ *     java Main --simulate scenario.properties [key=value ...]
+ */
+public class HeadlessSimulation {
+    
+    private static final String CSV_HEADER = "elapsed_s,ticks,km_per_s,tick_avg_ms,tick_p50_ms,tick_p99_ms,tick_max_ms,"
+        + "overruns,expected_km,counted_km,discrepancy_km,running,paused,out_of_fuel";
+    
+    private final SimulationScenario scenario;
+    private final List<SimulationVehicle> vehicles;
+    private final SimulationEngine engine;
+    
+    // Tick durations of the whole run and of the current report interval; guarded by this
+    private final TickHistogram runLatency = new TickHistogram();
+    private TickHistogram intervalLatency = new TickHistogram();
+    private long ticks = 0;
+    
+    public HeadlessSimulation(SimulationScenario scenario) {
+        this.scenario = scenario;
+        this.vehicles = new ArrayList<>(scenario.getVehicles());
+        for (int i = 1; i <= scenario.getVehicles(); i++) {
+            vehicles.add(new SimulationVehicle("Vehicle-" + i, scenario.getFuel()));
+        }
+        this.engine = new SimulationEngine(vehicles, scenario.getTickMillis(), scenario.getWorkers());
+        engine.setTickListener(this::onTick);
+    }
+    
+    /**
+     * Runs the scenario to the end and returns the metrics of the whole run
+     */
+    public Snapshot run() throws IOException, InterruptedException {
+        HighwayDistanceCounter.setMode(scenario.getCounter());
+        HighwayDistanceCounter.reset();
+        
+        PrintWriter csv = null;
+        if (scenario.getMetricsFile() != null) {
+            csv = new PrintWriter(Files.newBufferedWriter(Paths.get(scenario.getMetricsFile()), StandardCharsets.UTF_8));
+            csv.println(CSV_HEADER);
+        }
+        long start = System.nanoTime();
+        Snapshot total;
+        try {
+            System.out.println("Scenario: " + scenario);
+            System.out.printf("%9s %8s %12s %22s %9s %14s %14s%n",
+                "elapsed s", "ticks", "km/s", "tick p50/p99/max ms", "overruns", "counted km", "discrepancy");
+            
+            engine.resumeAll();
+            start = System.nanoTime();
+            engine.start();
+            long end = start + scenario.getDurationSeconds() * 1_000_000_000L;
+            long reportNanos = scenario.getReportSeconds() * 1_000_000_000L;
+            Snapshot last = snapshot(start, false);
+            while (true) {
+                long now = System.nanoTime();
+                long next = Math.min(end, now + reportNanos - (now - start) % reportNanos);
+                Thread.sleep(Math.max(0, (next - now) / 1_000_000));
+                Snapshot current = snapshot(start, false);
+                Snapshot interval = current.since(last);
+                print(interval, current);
+                if (csv != null) {
+                    csv.println(interval.toCsv(current));
+                    csv.flush();
+                }
+                last = current;
+                if (System.nanoTime() >= end) {
+                    break;
+                }
+            }
+            // taken while the engine still runs, so it matches the last report
+            total = snapshot(start, true);
+        } finally {
+            engine.stop();
+            if (csv != null) {
+                csv.close();
+            }
+        }
+        
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Run: %d ticks, %.0f km/s, tick avg %.2f ms, p50 %.2f ms, p99 %.2f ms, max %.2f ms, %d overruns%n",
+            total.ticks, total.kmPerSecond(), total.tickAvgMillis, total.tickP50Millis, total.tickP99Millis,
+            total.tickMaxMillis, total.overruns);
+        System.out.printf(Locale.ROOT, "Distance: %d km driven, %d km counted, discrepancy %d km%n",
+            total.expectedKm, total.countedKm, total.discrepancy());
+        if (scenario.getSummaryFile() != null) {
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(scenario.getSummaryFile()),
+                    StandardCharsets.UTF_8))) {
+                out.println(total.toJson(scenario));
+            }
+            System.out.println("Summary written to " + scenario.getSummaryFile());
+        }
+        return total;
+    }
+    
+    private void print(Snapshot interval, Snapshot current) {
+        System.out.printf(Locale.ROOT, "%9.1f %8d %12.0f %22s %9d %14d %14d%n",
+            current.elapsedSeconds, current.ticks, interval.kmPerSecond(),
+            String.format(Locale.ROOT, "%.2f/%.2f/%.2f", interval.tickP50Millis, interval.tickP99Millis, interval.tickMaxMillis),
+            current.overruns, current.countedKm, current.discrepancy());
+    }
+    
+    /**
+     * Called by the engine after every tick; tops up empty vehicles when the scenario asks for it
+     */
+    private void onTick(SimulationEngine engine, long nanos) {
+        synchronized (this) {
+            runLatency.record(nanos);
+            intervalLatency.record(nanos);
+            ticks++;
+        }
+        if (scenario.isRefuel()) {
+            for (SimulationVehicle vehicle : vehicles) {
+                if (vehicle.getVehicleStatus() == SimulationVehicle.Status.OUT_OF_FUEL) {
+                    vehicle.refuelFull();
+                }
+            }
+        }
+    }
+    
+    /**
+     * The state between two ticks, with the tick latencies of the whole run, or else of the
+     * ticks since the previous interval snapshot
+     */
+    private Snapshot snapshot(long start, boolean wholeRun) {
+        return engine.inspect(() -> {
+            long expected = 0;
+            int[] statuses = new int[SimulationVehicle.Status.values().length];
+            for (SimulationVehicle vehicle : vehicles) {
+                expected += (long) vehicle.getMileage();
+                statuses[vehicle.getVehicleStatus().ordinal()]++;
+            }
+            TickHistogram latencies;
+            long tickCount;
+            synchronized (this) {
+                if (wholeRun) {
+                    latencies = runLatency;
+                } else {
+                    latencies = intervalLatency;
+                    intervalLatency = new TickHistogram();
+                }
+                tickCount = ticks;
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            return new Snapshot(elapsed, tickCount, latencies, engine.getOverruns(),
+                expected, HighwayDistanceCounter.getDistance(), statuses);
+        });
+    }
+    
+    /**
+     * Metrics at one point of a run, or over an interval of it
+     */
+    public static final class Snapshot {
+        private final double elapsedSeconds;
+        private final long ticks;
+        private final double tickAvgMillis;
+        private final double tickP50Millis;
+        private final double tickP99Millis;
+        private final double tickMaxMillis;
+        private final long overruns;
+        private final long expectedKm;
+        private final long countedKm;
+        private final int[] statuses;
+        
+        // called inside engine.inspect, so no tick is recording into the histogram meanwhile
+        Snapshot(double elapsedSeconds, long ticks, TickHistogram latencies, long overruns, long expectedKm,
+                long countedKm, int[] statuses) {
+            this.elapsedSeconds = elapsedSeconds;
+            this.ticks = ticks;
+            this.tickAvgMillis = latencies.averageMillis();
+            this.tickP50Millis = latencies.percentileMillis(0.50);
+            this.tickP99Millis = latencies.percentileMillis(0.99);
+            this.tickMaxMillis = latencies.maxMillis();
+            this.overruns = overruns;
+            this.expectedKm = expectedKm;
+            this.countedKm = countedKm;
+            this.statuses = statuses;
+        }
+        
+        // the interval from an earlier snapshot to this one; latencies are already those of the interval
+        private Snapshot(Snapshot s, Snapshot earlier) {
+            this.elapsedSeconds = s.elapsedSeconds - earlier.elapsedSeconds;
+            this.ticks = s.ticks - earlier.ticks;
+            this.tickAvgMillis = s.tickAvgMillis;
+            this.tickP50Millis = s.tickP50Millis;
+            this.tickP99Millis = s.tickP99Millis;
+            this.tickMaxMillis = s.tickMaxMillis;
+            this.overruns = s.overruns - earlier.overruns;
+            this.expectedKm = s.expectedKm - earlier.expectedKm;
+            this.countedKm = s.countedKm - earlier.countedKm;
+            this.statuses = s.statuses;
+        }
+        
+        Snapshot since(Snapshot earlier) {
+            return new Snapshot(this, earlier);
+        }
+        
+        public long getTicks() {
+            return ticks;
+        }
+        
+        /**
+         * Vehicle updates per second, i.e. km driven per second
+         */
+        public double kmPerSecond() {
+            return elapsedSeconds <= 0 ? 0 : expectedKm / elapsedSeconds;
+        }
+        
+        public double getTickAvgMillis() {
+            return tickAvgMillis;
+        }
+        
+        public double getTickP50Millis() {
+            return tickP50Millis;
+        }
+        
+        public double getTickP99Millis() {
+            return tickP99Millis;
+        }
+        
+        public double getTickMaxMillis() {
+            return tickMaxMillis;
+        }
+        
+        public long getOverruns() {
+            return overruns;
+        }
+        
+        public long getExpectedKm() {
+            return expectedKm;
+        }
+        
+        public long getCountedKm() {
+            return countedKm;
+        }
+        
+        /**
+         * Km driven that the counter missed
+         */
+        public long discrepancy() {
+            return expectedKm - countedKm;
+        }
+        
+        public int count(SimulationVehicle.Status status) {
+            return statuses[status.ordinal()];
+        }
+        
+        String toCsv(Snapshot current) {
+            return String.format(Locale.ROOT, "%.1f,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%d,%d,%d,%d,%d,%d,%d",
+                current.elapsedSeconds, current.ticks, kmPerSecond(), tickAvgMillis, tickP50Millis, tickP99Millis,
+                tickMaxMillis, current.overruns, current.expectedKm, current.countedKm, current.discrepancy(),
+                count(SimulationVehicle.Status.RUNNING), count(SimulationVehicle.Status.PAUSED),
+                count(SimulationVehicle.Status.OUT_OF_FUEL));
+        }
+        
+        String toJson(SimulationScenario scenario) {
+            return String.format(Locale.ROOT, "{%n"
+                + "  \"scenario\" : { \"vehicles\" : %d, \"fuel\" : %s, \"tickMillis\" : %d, \"workers\" : %d,"
+                + " \"counter\" : \"%s\", \"refuel\" : %b, \"durationSeconds\" : %d },%n"
+                + "  \"ticks\" : %d,%n"
+                + "  \"vehicleUpdatesPerSecond\" : %.1f,%n"
+                + "  \"tickLatencyMillis\" : { \"avg\" : %.3f, \"p50\" : %.3f, \"p99\" : %.3f, \"max\" : %.3f },%n"
+                + "  \"overruns\" : %d,%n"
+                + "  \"expectedKm\" : %d,%n"
+                + "  \"countedKm\" : %d,%n"
+                + "  \"discrepancyKm\" : %d,%n"
+                + "  \"vehicles\" : { \"running\" : %d, \"paused\" : %d, \"outOfFuel\" : %d, \"stopped\" : %d }%n"
+                + "}",
+                scenario.getVehicles(), Double.toString(scenario.getFuel()), scenario.getTickMillis(), scenario.getWorkers(),
+                scenario.getCounter().name(), scenario.isRefuel(), scenario.getDurationSeconds(),
+                ticks, kmPerSecond(), tickAvgMillis, tickP50Millis, tickP99Millis, tickMaxMillis, overruns,
+                expectedKm, countedKm, discrepancy(),
+                count(SimulationVehicle.Status.RUNNING), count(SimulationVehicle.Status.PAUSED),
+                count(SimulationVehicle.Status.OUT_OF_FUEL), count(SimulationVehicle.Status.STOPPED));
+        }
+    }
+    
+    /**
+     * Log-linear histogram of tick durations in nanoseconds: every power of two is split into
+     * SUB_BUCKETS equal buckets, so a bucket is never wider than 1/SUB_BUCKETS of its values
+     */
+    static final class TickHistogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        
+        private final long[] counts = new long[(64 - SUB_BITS) * SUB_BUCKETS];
+        private long count;
+        private long sum;
+        private long max;
+        
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts[index(value)]++;
+            count++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+        
+        // values below SUB_BUCKETS get a bucket each, above that the top SUB_BITS + 1 bits pick it
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+        
+        // the largest value that falls into a bucket
+        private static long highestValue(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+            return lowest + (1L << shift) - 1;
+        }
+        
+        double averageMillis() {
+            return count == 0 ? 0 : sum / 1e6 / count;
+        }
+        
+        double maxMillis() {
+            return max / 1e6;
+        }
+        
+        // nearest-rank percentile, reported as the top of its bucket but never above the maximum
+        double percentileMillis(double p) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(p * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max) / 1e6;
+                }
+            }
+            return maxMillis();
+        }
+    }
+    
+    /**
+     * Runs the scenario file given as the first argument, or the defaults when there is none;
+     * key=value arguments after it override the file
+     */
+    public static void main(String[] args) {
+        try {
+            SimulationScenario scenario = new SimulationScenario();
+            for (int i = 0; i < args.length; i++) {
+                int eq = args[i].indexOf('=');
+                if (eq > 0) {
+                    scenario.set(args[i].substring(0, eq).trim(), args[i].substring(eq + 1).trim());
+                } else if (i == 0) {
+                    scenario = SimulationScenario.load(args[0]);
+                } else {
+                    throw new IllegalArgumentException("Expected key=value, got " + args[i]);
+                }
+            }
+            new HeadlessSimulation(scenario).run();
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Simulation failed: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,32 +1,79 @@
 package simulator;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Shared Highway Distance Counter that tracks total kilometers traveled by all vehicles.
- * Demonstrates race condition when accessed without synchronization.
+ * Demonstrates race condition when accessed without synchronization, and compares the
+ * ways of fixing it: a global lock, atomics, LongAdder, a striped counter and a VarHandle CAS loop.
+ * All totals are long, so long runs with many vehicles do not overflow.
  */
 public class HighwayDistanceCounter {
     
+    /**
+     * How increment() updates the counter
+     */
+    public enum Mode {
+        UNSYNCHRONIZED("Unsynchronized"),
+        SYNCHRONIZED("synchronized"),
+        LOCK("ReentrantLock"),
+        ATOMIC("AtomicLong"),
+        ADDER("LongAdder"),
+        STRIPED("Striped"),
+        VAR_HANDLE("VarHandle CAS");
+        
+        private final String label;
+        
+        Mode(String label) {
+            this.label = label;
+        }
+        
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+    
     // Shared counter - intentionally not synchronized for race condition demonstration
-    public static int highwayDistance = 0;
+    public static long highwayDistance = 0;
     
     // Synchronized counter for corrected behavior
-    private static int synchronizedHighwayDistance = 0;
+    private static long synchronizedHighwayDistance = 0;
     
     // ReentrantLock for synchronized access
     private static final ReentrantLock lock = new ReentrantLock();
     
-    // Flag to toggle between synchronized and unsynchronized mode
-    private static boolean useSynchronization = false;
+    // Lock-free counters; each mode has its own total, like the two above
+    private static final AtomicLong atomicDistance = new AtomicLong();
+    private static final LongAdder adderDistance = new LongAdder();
+    private static final StripedCounter stripedDistance = new StripedCounter();
+    private static volatile long varHandleDistance = 0;
+    private static final VarHandle VAR_HANDLE_DISTANCE;
+    
+    static {
+        try {
+            VAR_HANDLE_DISTANCE = MethodHandles.lookup()
+                .findStaticVarHandle(HighwayDistanceCounter.class, "varHandleDistance", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    // Selected mode
+    private static volatile Mode mode = Mode.UNSYNCHRONIZED;
     
     /**
      * Increments the highway distance counter (unsynchronized version)
      * This method demonstrates race condition when multiple threads call it
      */
-    public static void incrementUnsynchronized(int km) {
+    public static void incrementUnsynchronized(long km) {
         // Deliberately introducing race condition with a read-modify-write pattern
-        int current = highwayDistance;
+        long current = highwayDistance;
         // Simulating processing delay to increase chance of race condition
         try {
             Thread.sleep(1);
@@ -39,14 +86,14 @@ public class HighwayDistanceCounter {
     /**
      * Increments the highway distance counter (synchronized version using synchronized keyword)
      */
-    public static synchronized void incrementSynchronized(int km) {
+    public static synchronized void incrementSynchronized(long km) {
         synchronizedHighwayDistance += km;
     }
     
     /**
      * Increments the highway distance counter using ReentrantLock
      */
-    public static void incrementWithLock(int km) {
+    public static void incrementWithLock(long km) {
         lock.lock();
         try {
             synchronizedHighwayDistance += km;
@@ -56,56 +103,189 @@ public class HighwayDistanceCounter {
     }
     
     /**
-     * Unified increment method that chooses based on synchronization mode
+     * Increments the highway distance counter with a single atomic add
+     */
+    public static void incrementAtomic(long km) {
+        atomicDistance.addAndGet(km);
+    }
+    
+    /**
+     * Increments the highway distance counter with a LongAdder, which spreads contended adds over cells
+     */
+    public static void incrementAdder(long km) {
+        adderDistance.add(km);
+    }
+    
+    /**
+     * Increments the highway distance counter in the calling thread's stripe
+     */
+    public static void incrementStriped(long km) {
+        stripedDistance.add(km);
+    }
+    
+    /**
+     * Increments the highway distance counter with an explicit compare-and-set loop
+     */
+    public static void incrementVarHandle(long km) {
+        long current;
+        do {
+            current = (long) VAR_HANDLE_DISTANCE.getVolatile();
+        } while (!VAR_HANDLE_DISTANCE.weakCompareAndSet(current, current + km));
+    }
+    
+    /**
+     * Unified increment method that chooses based on the selected mode
      */
-    public static void increment(int km) {
-        if (useSynchronization) {
-            incrementWithLock(km);
-        } else {
-            incrementUnsynchronized(km);
+    public static void increment(long km) {
+        switch (mode) {
+            case UNSYNCHRONIZED:
+                incrementUnsynchronized(km);
+                break;
+            case SYNCHRONIZED:
+                incrementSynchronized(km);
+                break;
+            case LOCK:
+                incrementWithLock(km);
+                break;
+            case ATOMIC:
+                incrementAtomic(km);
+                break;
+            case ADDER:
+                incrementAdder(km);
+                break;
+            case STRIPED:
+                incrementStriped(km);
+                break;
+            case VAR_HANDLE:
+                incrementVarHandle(km);
+                break;
         }
     }
     
     /**
      * Gets the current unsynchronized highway distance
      */
-    public static int getUnsynchronizedDistance() {
+    public static long getUnsynchronizedDistance() {
         return highwayDistance;
     }
     
     /**
      * Gets the current synchronized highway distance
      */
-    public static int getSynchronizedDistance() {
-        return synchronizedHighwayDistance;
+    public static long getSynchronizedDistance() {
+        lock.lock();
+        try {
+            return synchronizedHighwayDistance;
+        } finally {
+            lock.unlock();
+        }
     }
     
     /**
      * Gets the current distance based on mode
      */
-    public static int getDistance() {
-        return useSynchronization ? synchronizedHighwayDistance : highwayDistance;
+    public static long getDistance() {
+        switch (mode) {
+            case UNSYNCHRONIZED:
+                return highwayDistance;
+            case SYNCHRONIZED:
+                synchronized (HighwayDistanceCounter.class) {
+                    return synchronizedHighwayDistance;
+                }
+            case LOCK:
+                return getSynchronizedDistance();
+            case ATOMIC:
+                return atomicDistance.get();
+            case ADDER:
+                return adderDistance.sum();
+            case STRIPED:
+                return stripedDistance.sum();
+            default:
+                return varHandleDistance;
+        }
     }
     
     /**
-     * Sets the synchronization mode
+     * Sets the synchronization mode: the ReentrantLock when enabled, none otherwise
      */
     public static void setSynchronizationMode(boolean enabled) {
-        useSynchronization = enabled;
+        setMode(enabled ? Mode.LOCK : Mode.UNSYNCHRONIZED);
     }
     
     /**
      * Gets the current synchronization mode
      */
     public static boolean isSynchronizationEnabled() {
-        return useSynchronization;
+        return mode != Mode.UNSYNCHRONIZED;
     }
     
     /**
-     * Resets both counters
+     * Selects how increment() updates the counter
+     */
+    public static void setMode(Mode newMode) {
+        mode = newMode;
+    }
+    
+    public static Mode getMode() {
+        return mode;
+    }
+    
+    /**
+     * Resets all counters
      */
     public static void reset() {
         highwayDistance = 0;
-        synchronizedHighwayDistance = 0;
+        lock.lock();
+        try {
+            synchronizedHighwayDistance = 0;
+        } finally {
+            lock.unlock();
+        }
+        atomicDistance.set(0);
+        adderDistance.reset();
+        stripedDistance.reset();
+        varHandleDistance = 0;
+    }
+    
+    /**
+     * A counter split into stripes, each on its own cache lines; a thread always adds to the
+     * stripe picked by its id, so threads on different stripes never contend or share a line.
+     * Unlike LongAdder, which only splits once it sees contention, the stripes exist from the start.
+     */
+    static final class StripedCounter {
+        // 128 bytes between stripes, as adjacent cache lines are often fetched in pairs
+        private static final int SPACING = 16;
+        
+        private final AtomicLongArray cells;
+        private final int mask;
+        
+        StripedCounter() {
+            int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+            cells = new AtomicLongArray(stripes * SPACING);
+            mask = stripes - 1;
+        }
+        
+        void add(long km) {
+            cells.getAndAdd(stripe() * SPACING, km);
+        }
+        
+        private int stripe() {
+            long id = Thread.currentThread().getId();
+            return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;   // spreads consecutive ids over the stripes
+        }
+        
+        long sum() {
+            long sum = 0;
+            for (int i = 0; i < cells.length(); i += SPACING) {
+                sum += cells.get(i);
+            }
+            return sum;
+        }
+        
+        void reset() {
+            for (int i = 0; i < cells.length(); i += SPACING) {
+                cells.set(i, 0);
+            }
+        }
     }
 }
@@ -16,12 +16,15 @@ import java.util.List;
  */
 public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.VehicleUpdateCallback {
     
-    // Number of vehicles to simulate
-    private static final int NUM_VEHICLES = 3;
+    // Number of vehicles to simulate, -Dsimulator.vehicles=<n> for more
+    private static final int NUM_VEHICLES = Math.max(1, Integer.getInteger("simulator.vehicles", 3));
+    // Vehicles with their own panel; the rest only show up in the totals
+    private static final int DISPLAYED_VEHICLES = Math.min(NUM_VEHICLES, 6);
     private static final double INITIAL_FUEL = 20.0;
     
-    // Simulation vehicles
+    // Simulation vehicles, and the engine that ticks them
     private List<SimulationVehicle> vehicles;
+    private SimulationEngine engine;
     
     // GUI Components
     private JPanel vehiclePanels[];
@@ -34,6 +37,8 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
     private JLabel highwayCounterLabel;
     private JLabel expectedCounterLabel;
     private JLabel discrepancyLabel;
+    private JLabel fleetLabel;
+    private JLabel tickLabel;
     
     private JButton startButton;
     private JButton pauseButton;
@@ -41,11 +46,11 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
     private JButton stopButton;
     private JButton resetButton;
     
-    private JCheckBox syncModeCheckBox;
+    private JComboBox<HighwayDistanceCounter.Mode> counterModeBox;
     private JLabel modeLabel;
     
     // Tracking expected total
-    private int expectedTotal = 0;
+    private long expectedTotal = 0;
     
     // Timer for UI updates
     private Timer updateTimer;
@@ -74,6 +79,9 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
             vehicle.setUpdateCallback(this);
             vehicles.add(vehicle);
         }
+        // At least a few workers, so that the race condition still shows on a small machine
+        int workers = Math.min(NUM_VEHICLES, Math.max(SimulationEngine.defaultWorkers(), 4));
+        engine = new SimulationEngine(vehicles, SimulationVehicle.UPDATE_INTERVAL_MS, workers);
     }
     
     /**
@@ -108,8 +116,9 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
         stopButton = new JButton("Stop");
         resetButton = new JButton("Reset");
         
-        syncModeCheckBox = new JCheckBox("Enable Synchronization");
-        syncModeCheckBox.setToolTipText("Toggle between synchronized and unsynchronized mode");
+        counterModeBox = new JComboBox<>(HighwayDistanceCounter.Mode.values());
+        counterModeBox.setSelectedItem(HighwayDistanceCounter.getMode());
+        counterModeBox.setToolTipText("How vehicles update the shared counter; Unsynchronized shows the race condition");
         
         // Button styling
         Dimension buttonSize = new Dimension(100, 30);
@@ -130,7 +139,7 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
         resumeButton.addActionListener(e -> resumeSimulation());
         stopButton.addActionListener(e -> stopSimulation());
         resetButton.addActionListener(e -> resetSimulation());
-        syncModeCheckBox.addActionListener(e -> toggleSyncMode());
+        counterModeBox.addActionListener(e -> selectCounterMode());
         
         panel.add(startButton);
         panel.add(pauseButton);
@@ -138,7 +147,8 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
         panel.add(stopButton);
         panel.add(resetButton);
         panel.add(Box.createHorizontalStrut(30));
-        panel.add(syncModeCheckBox);
+        panel.add(new JLabel("Counter:"));
+        panel.add(counterModeBox);
         
         return panel;
     }
@@ -147,17 +157,18 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
      * Creates the vehicle display panel
      */
     private JPanel createVehiclePanel() {
-        JPanel mainPanel = new JPanel(new GridLayout(1, NUM_VEHICLES, 10, 10));
-        mainPanel.setBorder(BorderFactory.createTitledBorder("Vehicles"));
-        
-        vehiclePanels = new JPanel[NUM_VEHICLES];
-        vehicleIdLabels = new JLabel[NUM_VEHICLES];
-        vehicleMileageLabels = new JLabel[NUM_VEHICLES];
-        vehicleFuelLabels = new JLabel[NUM_VEHICLES];
-        vehicleStatusLabels = new JLabel[NUM_VEHICLES];
-        refuelButtons = new JButton[NUM_VEHICLES];
-        
-        for (int i = 0; i < NUM_VEHICLES; i++) {
+        JPanel mainPanel = new JPanel(new GridLayout(1, DISPLAYED_VEHICLES, 10, 10));
+        mainPanel.setBorder(BorderFactory.createTitledBorder(NUM_VEHICLES > DISPLAYED_VEHICLES
+                ? "Vehicles (first " + DISPLAYED_VEHICLES + " of " + NUM_VEHICLES + ")" : "Vehicles"));
+        
+        vehiclePanels = new JPanel[DISPLAYED_VEHICLES];
+        vehicleIdLabels = new JLabel[DISPLAYED_VEHICLES];
+        vehicleMileageLabels = new JLabel[DISPLAYED_VEHICLES];
+        vehicleFuelLabels = new JLabel[DISPLAYED_VEHICLES];
+        vehicleStatusLabels = new JLabel[DISPLAYED_VEHICLES];
+        refuelButtons = new JButton[DISPLAYED_VEHICLES];
+        
+        for (int i = 0; i < DISPLAYED_VEHICLES; i++) {
             final int index = i;
             JPanel vPanel = new JPanel();
             vPanel.setLayout(new BoxLayout(vPanel, BoxLayout.Y_AXIS));
@@ -248,7 +259,7 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
         discrepancyLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
         discrepancyLabel.setForeground(Color.GREEN);
         
-        modeLabel = new JLabel("Mode: Unsynchronized");
+        modeLabel = new JLabel("Mode: " + HighwayDistanceCounter.getMode());
         modeLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
         modeLabel.setFont(new Font("Arial", Font.ITALIC, 12));
         
@@ -258,10 +269,30 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
         comparisonPanel.add(Box.createVerticalStrut(10));
         comparisonPanel.add(modeLabel);
         
+        // Engine
+        JPanel enginePanel = new JPanel();
+        enginePanel.setLayout(new BoxLayout(enginePanel, BoxLayout.Y_AXIS));
+        enginePanel.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createTitledBorder("Simulation Engine"),
+            BorderFactory.createEmptyBorder(10, 10, 10, 10)
+        ));
+        
+        fleetLabel = new JLabel("Vehicles: " + NUM_VEHICLES + " on " + engine.getWorkers() + " workers");
+        fleetLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        
+        tickLabel = new JLabel("Ticks: 0");
+        tickLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        
+        enginePanel.add(fleetLabel);
+        enginePanel.add(Box.createVerticalStrut(10));
+        enginePanel.add(tickLabel);
+        
         panel.add(Box.createVerticalStrut(20));
         panel.add(counterPanel);
         panel.add(Box.createVerticalStrut(20));
         panel.add(comparisonPanel);
+        panel.add(Box.createVerticalStrut(20));
+        panel.add(enginePanel);
         panel.add(Box.createVerticalGlue());
         
         return panel;
@@ -279,11 +310,9 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
      */
     private void startSimulation() {
         for (SimulationVehicle vehicle : vehicles) {
-            if (!vehicle.isAlive()) {
-                vehicle.start();
-            }
             vehicle.resumeVehicle();
         }
+        engine.start();
         
         updateTimer.start();
         
@@ -291,16 +320,14 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
         pauseButton.setEnabled(true);
         resumeButton.setEnabled(false);
         stopButton.setEnabled(true);
-        syncModeCheckBox.setEnabled(false);
+        counterModeBox.setEnabled(false);
     }
     
     /**
      * Pauses all vehicles
      */
     private void pauseSimulation() {
-        for (SimulationVehicle vehicle : vehicles) {
-            vehicle.pauseVehicle();
-        }
+        engine.pauseAll();
         
         pauseButton.setEnabled(false);
         resumeButton.setEnabled(true);
@@ -310,11 +337,7 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
      * Resumes all vehicles
      */
     private void resumeSimulation() {
-        for (SimulationVehicle vehicle : vehicles) {
-            if (vehicle.getFuelLevel() > 0) {
-                vehicle.resumeVehicle();
-            }
-        }
+        engine.resumeAll();
         
         pauseButton.setEnabled(true);
         resumeButton.setEnabled(false);
@@ -324,11 +347,10 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
      * Stops the simulation
      */
     private void stopSimulation() {
-        for (SimulationVehicle vehicle : vehicles) {
-            vehicle.stopVehicle();
-        }
+        engine.stop();
         
         updateTimer.stop();
+        updateUI();
         
         startButton.setEnabled(false);
         pauseButton.setEnabled(false);
@@ -337,30 +359,18 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
         resetButton.setEnabled(true);
         
         // Calculate and show final results
-        int actual = HighwayDistanceCounter.getDistance();
-        int expected = calculateExpectedTotal();
-        int discrepancy = expected - actual;
+        long actual = HighwayDistanceCounter.getDistance();
+        long expected = calculateExpectedTotal();
+        long discrepancy = expected - actual;
     }
     
     /**
      * Resets the simulation
      */
     private void resetSimulation() {
-        // Stop existing vehicles
-        for (SimulationVehicle vehicle : vehicles) {
-            if (vehicle.isAlive()) {
-                vehicle.stopVehicle();
-            }
-        }
-        
-        // Wait for threads to finish properly using join
-        for (SimulationVehicle vehicle : vehicles) {
-            try {
-                vehicle.join(1000); // Wait up to 1 second for each thread
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
+        // Stop existing vehicles; stop() waits for a tick in progress to finish
+        engine.stop();
+        updateTimer.stop();
         
         // Reset counter
         HighwayDistanceCounter.reset();
@@ -371,7 +381,7 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
         initializeVehicles();
         
         // Reset UI
-        for (int i = 0; i < NUM_VEHICLES; i++) {
+        for (int i = 0; i < DISPLAYED_VEHICLES; i++) {
             SimulationVehicle vehicle = vehicles.get(i);
             vehicleIdLabels[i].setText("ID: " + vehicle.getVehicleId());
             vehicleMileageLabels[i].setText("Mileage: 0 km");
@@ -384,21 +394,22 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
         expectedCounterLabel.setText("Expected: 0 km");
         discrepancyLabel.setText("Discrepancy: 0 km");
         discrepancyLabel.setForeground(Color.GREEN);
+        tickLabel.setText("Ticks: 0");
         
         startButton.setEnabled(true);
         pauseButton.setEnabled(false);
         resumeButton.setEnabled(false);
         stopButton.setEnabled(false);
-        syncModeCheckBox.setEnabled(true);
+        counterModeBox.setEnabled(true);
     }
     
     /**
-     * Toggles synchronization mode
+     * Switches the counter to the selected mode
      */
-    private void toggleSyncMode() {
-        boolean enabled = syncModeCheckBox.isSelected();
-        HighwayDistanceCounter.setSynchronizationMode(enabled);
-        modeLabel.setText("Mode: " + (enabled ? "Synchronized" : "Unsynchronized"));
+    private void selectCounterMode() {
+        HighwayDistanceCounter.Mode mode = (HighwayDistanceCounter.Mode) counterModeBox.getSelectedItem();
+        HighwayDistanceCounter.setMode(mode);
+        modeLabel.setText("Mode: " + mode);
     }
     
     /**
@@ -417,20 +428,20 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
         // Run UI updates on EDT
         SwingUtilities.invokeLater(() -> {
             // Update vehicle displays
-            for (int i = 0; i < NUM_VEHICLES; i++) {
+            for (int i = 0; i < DISPLAYED_VEHICLES; i++) {
                 updateVehicleDisplay(i);
             }
             
             // Update highway counter
-            int actual = HighwayDistanceCounter.getDistance();
+            long actual = HighwayDistanceCounter.getDistance();
             highwayCounterLabel.setText(actual + " km");
             
             // Calculate expected total
-            int expected = calculateExpectedTotal();
+            long expected = calculateExpectedTotal();
             expectedCounterLabel.setText("Expected: " + expected + " km");
             
             // Calculate and show discrepancy
-            int discrepancy = expected - actual;
+            long discrepancy = expected - actual;
             discrepancyLabel.setText("Discrepancy: " + discrepancy + " km");
             
             if (discrepancy != 0) {
@@ -438,6 +449,9 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
             } else {
                 discrepancyLabel.setForeground(Color.GREEN);
             }
+            
+            tickLabel.setText(String.format("Ticks: %d (last %.1f ms, max %.1f ms)",
+                engine.getTickCount(), engine.getLastTickMillis(), engine.getMaxTickMillis()));
         });
     }
     
@@ -477,16 +491,16 @@ public class HighwaySimulatorGUI extends JFrame implements SimulationVehicle.Veh
     /**
      * Calculates the expected total based on vehicle mileages
      */
-    private int calculateExpectedTotal() {
-        int total = 0;
+    private long calculateExpectedTotal() {
+        long total = 0;
         for (SimulationVehicle vehicle : vehicles) {
-            total += (int) vehicle.getMileage();
+            total += (long) vehicle.getMileage();
         }
         return total;
     }
     
     /**
-     * Callback from vehicle threads
+     * Callback from the engine's worker threads
      */
     @Override
     public void onVehicleUpdate(SimulationVehicle vehicle) {
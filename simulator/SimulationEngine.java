@@ -0,0 +1,326 @@
+package simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * SimulationEngine drives a whole set of SimulationVehicles from one clock.
+ * On every tick the vehicles are split into chunks, and a small pool of worker threads
+ * advances each chunk, so the number of threads no longer grows with the number of vehicles.
+ * 
+ * Each chunk adds the distance its vehicles covered to the Highway Distance Counter in one
+ * increment rather than one per vehicle. Workers still update the counter concurrently, so the
+ * race condition demo behaves as before whenever more than one worker is running.
+ * 
+ * A tick that is still running when the next one is due delays it rather than overlapping it;
+ * such ticks are counted as overruns.
+ */
+public class SimulationEngine {
+    
+    // Chunks per worker, so that a slow worker does not hold up the whole tick
+    private static final int CHUNKS_PER_WORKER = 4;
+    
+    private final SimulationVehicle[] vehicles;
+    private final long tickMillis;
+    private final int workers;
+    private final List<Callable<Void>> chunks = new ArrayList<>();
+    private final Object tickLock = new Object();
+    
+    private ScheduledExecutorService ticker;
+    private ExecutorService workerPool;
+    private ScheduledFuture<?> schedule;
+    private volatile boolean running = false;
+    private volatile boolean stopped = false;
+    private volatile TickListener tickListener;
+    
+    // Tick metrics, written under tickLock
+    private volatile long ticks = 0;
+    private volatile long lastTickNanos = 0;
+    private volatile long maxTickNanos = 0;
+    private volatile long totalTickNanos = 0;
+    private volatile long overruns = 0;
+    private volatile long failures = 0;
+    
+    /**
+     * Creates an engine that ticks every UPDATE_INTERVAL_MS on one worker per processor
+     */
+    public SimulationEngine(List<SimulationVehicle> vehicles) {
+        this(vehicles, SimulationVehicle.UPDATE_INTERVAL_MS, defaultWorkers());
+    }
+    
+    /**
+     * Creates an engine for the given vehicles; it does not tick until start() is called
+     */
+    public SimulationEngine(List<SimulationVehicle> vehicles, long tickMillis, int workers) {
+        if (tickMillis <= 0 || workers <= 0) {
+            throw new IllegalArgumentException("Tick interval and worker count must be positive");
+        }
+        this.vehicles = vehicles.toArray(new SimulationVehicle[0]);
+        this.tickMillis = tickMillis;
+        this.workers = workers;
+        for (SimulationVehicle vehicle : this.vehicles) {
+            vehicle.attach();
+        }
+        
+        int chunkSize = Math.max(1, (this.vehicles.length + workers * CHUNKS_PER_WORKER - 1) / (workers * CHUNKS_PER_WORKER));
+        for (int from = 0; from < this.vehicles.length; from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, this.vehicles.length);
+            chunks.add(() -> {
+                advance(start, end);
+                return null;
+            });
+        }
+    }
+    
+    /**
+     * One worker per available processor
+     */
+    public static int defaultWorkers() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+    
+    /**
+     * Starts ticking; the first tick comes one interval from now
+     */
+    public synchronized void start() {
+        if (stopped) {
+            throw new IllegalStateException("The simulation engine was stopped");
+        }
+        if (running) {
+            return;
+        }
+        startWorkers();
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "simulation-ticker");
+            t.setDaemon(true);
+            return t;
+        });
+        schedule = ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+    
+    /**
+     * Runs one tick on the calling thread, waiting for the workers to finish it.
+     * Lets a caller step the simulation itself instead of starting the clock.
+     */
+    public void tickOnce() {
+        synchronized (this) {
+            if (stopped) {
+                throw new IllegalStateException("The simulation engine was stopped");
+            }
+            startWorkers();
+        }
+        tick();
+    }
+    
+    private void startWorkers() {
+        if (workerPool == null) {
+            AtomicInteger count = new AtomicInteger();
+            workerPool = Executors.newFixedThreadPool(workers, r -> {
+                Thread t = new Thread(r, "simulation-worker-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+    
+    /**
+     * Advances every vehicle once and waits for all chunks to finish
+     */
+    private void tick() {
+        synchronized (tickLock) {
+            ExecutorService pool = workerPool;
+            if (stopped || pool == null) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                for (Future<Void> chunk : pool.invokeAll(chunks)) {
+                    try {
+                        chunk.get();
+                    } catch (ExecutionException e) {
+                        failures++;
+                        System.err.println("Simulation tick failed: " + e.getCause());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long took = System.nanoTime() - start;
+            ticks++;
+            lastTickNanos = took;
+            maxTickNanos = Math.max(maxTickNanos, took);
+            totalTickNanos += took;
+            if (took > TimeUnit.MILLISECONDS.toNanos(tickMillis)) {
+                overruns++;
+            }
+            TickListener listener = tickListener;
+            if (listener != null) {
+                listener.onTick(this, took);
+            }
+        }
+    }
+    
+    /**
+     * Ticks vehicles [start, end) and adds their distance to the counter in one increment
+     */
+    private void advance(int start, int end) {
+        int km = 0;
+        for (int i = start; i < end; i++) {
+            km += vehicles[i].tick();
+        }
+        if (km > 0) {
+            HighwayDistanceCounter.increment(km);
+        }
+    }
+    
+    /**
+     * Runs the action between two ticks, so that it sees every vehicle and the counter at the same point
+     */
+    public <T> T inspect(Supplier<T> action) {
+        synchronized (tickLock) {
+            return action.get();
+        }
+    }
+    
+    /**
+     * Sets the listener told about every finished tick, or null for none
+     */
+    public void setTickListener(TickListener listener) {
+        this.tickListener = listener;
+    }
+    
+    /**
+     * Pauses every vehicle
+     */
+    public void pauseAll() {
+        for (SimulationVehicle vehicle : vehicles) {
+            vehicle.pauseVehicle();
+        }
+    }
+    
+    /**
+     * Resumes every vehicle that still has fuel
+     */
+    public void resumeAll() {
+        for (SimulationVehicle vehicle : vehicles) {
+            if (vehicle.getFuelLevel() > 0) {
+                vehicle.resumeVehicle();
+            }
+        }
+    }
+    
+    /**
+     * Stops ticking, waits for a tick in progress, and stops every vehicle.
+     * An engine cannot be started again once stopped.
+     */
+    public void stop() {
+        ScheduledExecutorService oldTicker;
+        ExecutorService oldWorkers;
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            running = false;
+            if (schedule != null) {
+                schedule.cancel(false);
+            }
+            oldTicker = ticker;
+            oldWorkers = workerPool;
+        }
+        // Taking the tick lock waits out a tick in progress; none starts after it
+        synchronized (tickLock) {
+            stopped = true;
+        }
+        if (oldTicker != null) {
+            oldTicker.shutdown();
+        }
+        if (oldWorkers != null) {
+            oldWorkers.shutdown();
+        }
+        for (SimulationVehicle vehicle : vehicles) {
+            vehicle.stopVehicle();
+            vehicle.markStopped();
+        }
+    }
+    
+    public boolean isRunning() {
+        return running;
+    }
+    
+    public boolean isStopped() {
+        return stopped;
+    }
+    
+    public int size() {
+        return vehicles.length;
+    }
+    
+    public SimulationVehicle getVehicle(int index) {
+        return vehicles[index];
+    }
+    
+    public List<SimulationVehicle> getVehicles() {
+        return List.of(vehicles);
+    }
+    
+    public long getTickMillis() {
+        return tickMillis;
+    }
+    
+    public int getWorkers() {
+        return workers;
+    }
+    
+    public long getTickCount() {
+        return ticks;
+    }
+    
+    /**
+     * Time the last tick took to advance every vehicle
+     */
+    public double getLastTickMillis() {
+        return lastTickNanos / 1e6;
+    }
+    
+    public double getMaxTickMillis() {
+        return maxTickNanos / 1e6;
+    }
+    
+    public double getAverageTickMillis() {
+        return ticks == 0 ? 0 : totalTickNanos / 1e6 / ticks;
+    }
+    
+    /**
+     * Ticks that took longer than the tick interval
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+    
+    /**
+     * Chunks that threw instead of finishing
+     */
+    public long getFailures() {
+        return failures;
+    }
+    
+    /**
+     * Interface for tick callbacks, made on the thread that ran the tick before the next one starts
+     */
+    public interface TickListener {
+        void onTick(SimulationEngine engine, long tickNanos);
+    }
+}
@@ -0,0 +1,168 @@
+package simulator;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * SimulationScenario describes a headless simulation run: how many vehicles, their fuel,
+ * the tick rate, the counter strategy and how long to run. It is read from a properties file;
+ * a key left out keeps its default.
+ * 
+ *     vehicles=100000
+ *     fuel=20
+ *     tick.millis=1000
+ *     workers=4
+ *     counter=ADDER
+ *     refuel=true
+ *     duration.seconds=60
+ *     report.seconds=5
+ *     metrics=run.csv
+ *     summary=run.json
+ */
+public class SimulationScenario {
+    
+    private int vehicles = 1000;
+    private double fuel = 20.0;
+    private long tickMillis = SimulationVehicle.UPDATE_INTERVAL_MS;
+    private int workers = SimulationEngine.defaultWorkers();
+    private HighwayDistanceCounter.Mode counter = HighwayDistanceCounter.Mode.LOCK;
+    private boolean refuel = false;
+    private long durationSeconds = 60;
+    private long reportSeconds = 5;
+    private String metricsFile;
+    private String summaryFile;
+    
+    /**
+     * Reads a scenario from a properties file
+     */
+    public static SimulationScenario load(String fileName) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(fileName)) {
+            properties.load(in);
+        }
+        SimulationScenario scenario = new SimulationScenario();
+        scenario.apply(properties);
+        return scenario;
+    }
+    
+    /**
+     * Overrides this scenario's settings with the keys present in properties
+     */
+    public void apply(Properties properties) {
+        for (String key : properties.stringPropertyNames()) {
+            set(key, properties.getProperty(key).trim());
+        }
+    }
+    
+    /**
+     * Sets one setting by its key, as it would appear in a scenario file
+     */
+    public void set(String key, String value) {
+        try {
+            switch (key) {
+                case "vehicles":
+                    vehicles = positive(key, Integer.parseInt(value));
+                    break;
+                case "fuel":
+                    fuel = Double.parseDouble(value);
+                    if (!(fuel > 0)) {
+                        throw new IllegalArgumentException("fuel must be positive");
+                    }
+                    break;
+                case "tick.millis":
+                    tickMillis = positive(key, Long.parseLong(value));
+                    break;
+                case "workers":
+                    workers = positive(key, Integer.parseInt(value));
+                    break;
+                case "counter":
+                    counter = HighwayDistanceCounter.Mode.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "refuel":
+                    refuel = Boolean.parseBoolean(value);
+                    break;
+                case "duration.seconds":
+                    durationSeconds = positive(key, Long.parseLong(value));
+                    break;
+                case "report.seconds":
+                    reportSeconds = positive(key, Long.parseLong(value));
+                    break;
+                case "metrics":
+                    metricsFile = value.isEmpty() ? null : value;
+                    break;
+                case "summary":
+                    summaryFile = value.isEmpty() ? null : value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown scenario key: " + key);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad value for " + key + ": " + value);
+        }
+    }
+    
+    private static <T extends Number> T positive(String key, T value) {
+        if (value.longValue() <= 0) {
+            throw new IllegalArgumentException(key + " must be positive");
+        }
+        return value;
+    }
+    
+    public int getVehicles() {
+        return vehicles;
+    }
+    
+    public double getFuel() {
+        return fuel;
+    }
+    
+    public long getTickMillis() {
+        return tickMillis;
+    }
+    
+    public int getWorkers() {
+        return workers;
+    }
+    
+    public HighwayDistanceCounter.Mode getCounter() {
+        return counter;
+    }
+    
+    /**
+     * Whether vehicles that run out of fuel are refuelled after the tick, to keep the load constant
+     */
+    public boolean isRefuel() {
+        return refuel;
+    }
+    
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+    
+    public long getReportSeconds() {
+        return reportSeconds;
+    }
+    
+    /**
+     * CSV file for one row of metrics per report, or null
+     */
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+    
+    /**
+     * JSON file for the metrics of the whole run, or null
+     */
+    public String getSummaryFile() {
+        return summaryFile;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d vehicles, fuel %.1f, tick %d ms, %d workers, counter %s%s, %d s",
+            vehicles, fuel, tickMillis, workers, counter, refuel ? ", refuel" : "", durationSeconds);
+    }
+}
@@ -1,11 +1,21 @@
 package simulator;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * SimulationVehicle represents a vehicle in the highway simulation.
- * Each vehicle runs in its own thread and periodically updates its mileage,
- * fuel level, and the shared Highway Distance Counter.
+ * Each tick it updates its mileage, fuel level, and the shared Highway Distance Counter.
+ * Ticks come either from a SimulationEngine, which advances many vehicles on a small
+ * worker pool, or from the vehicle's own thread started with start(), which can be
+ * a platform thread or, on Java 21 and later, a virtual thread.
+ * 
+ * State changes are guarded by a ReentrantLock rather than synchronized, and a paused
+ * vehicle's thread parks on a Condition instead of waking every second, so a virtual
+ * thread never holds on to its carrier thread while it waits.
  */
-public class SimulationVehicle extends Thread {
+public class SimulationVehicle implements Runnable {
     
     // Vehicle properties
     private final String vehicleId;
@@ -26,9 +36,26 @@ public class SimulationVehicle extends Thread {
     // Reference to callback for UI updates
     private VehicleUpdateCallback updateCallback;
     
+    // Own thread, when the vehicle is not driven by an engine
+    private Thread runner;
+    
+    // Guards fuel, pause and stop changes; resumed is signalled when a paused thread may go on
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition resumed = lock.newCondition();
+    
+    /**
+     * Kind of thread a vehicle started with start(ThreadMode) runs on
+     */
+    public enum ThreadMode {
+        PLATFORM, VIRTUAL
+    }
+    
+    // Thread.ofVirtual(), looked up reflectively so that the simulator still builds and runs on Java 17
+    private static final Method OF_VIRTUAL = findOfVirtual();
+    
     // Constants
     private static final double FUEL_CONSUMPTION_RATE = 0.5; // fuel per km
-    private static final int UPDATE_INTERVAL_MS = 1000; // 1 second
+    static final int UPDATE_INTERVAL_MS = 1000; // 1 second
     
     /**
      * Constructor for SimulationVehicle
@@ -51,49 +78,176 @@ public class SimulationVehicle extends Thread {
     }
     
     /**
-     * Main thread execution
+     * Starts the vehicle on its own platform thread, which ticks it every UPDATE_INTERVAL_MS.
+     * Vehicles added to a SimulationEngine are not started this way.
+     */
+    public void start() {
+        start(ThreadMode.PLATFORM);
+    }
+    
+    /**
+     * Starts the vehicle on its own thread of the given kind
+     */
+    public void start(ThreadMode mode) {
+        lock.lock();
+        try {
+            if (runner != null || running) {
+                throw new IllegalStateException(vehicleId + " was already started");
+            }
+            runner = newThread(mode, this, vehicleId);
+            running = true;   // set here, so that a stop before the thread gets going is not lost
+            runner.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Whether start(ThreadMode.VIRTUAL) can be used on this Java runtime
+     */
+    public static boolean isVirtualThreadSupported() {
+        return OF_VIRTUAL != null;
+    }
+    
+    /**
+     * Creates an unstarted thread of the given kind
+     */
+    static Thread newThread(ThreadMode mode, Runnable task, String name) {
+        if (mode == ThreadMode.PLATFORM) {
+            return new Thread(task, name);
+        }
+        if (OF_VIRTUAL == null) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later");
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builderType.getMethod("name", String.class).invoke(builder, name);
+            return (Thread) builderType.getMethod("unstarted", Runnable.class).invoke(builder, task);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Could not create a virtual thread", e);
+        }
+    }
+    
+    private static Method findOfVirtual() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            ofVirtual.invoke(null);   // throws where virtual threads are still a preview feature
+            return ofVirtual;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Main thread execution, on the thread created by start()
      */
     @Override
     public void run() {
-        running = true;
         while (running) {
             try {
-                if (!paused && fuelLevel > 0) {
-                    // Increment mileage by 1 km
-                    mileage += 1;
-                    
-                    // Decrease fuel
-                    fuelLevel -= FUEL_CONSUMPTION_RATE;
-                    if (fuelLevel < 0) {
-                        fuelLevel = 0;
-                    }
-                    
+                int km = tick();
+                if (km > 0) {
                     // Update shared Highway Distance Counter
-                    HighwayDistanceCounter.increment(1);
-                    
-                    // Update status
-                    if (fuelLevel <= 0) {
-                        status = Status.OUT_OF_FUEL;
-                        paused = true;
-                    } else {
-                        status = Status.RUNNING;
-                    }
-                    
-                    // Notify UI
-                    if (updateCallback != null) {
-                        updateCallback.onVehicleUpdate(this);
-                    }
-                } else if (paused && fuelLevel > 0) {
-                    status = Status.PAUSED;
+                    HighwayDistanceCounter.increment(km);
                 }
                 
-                Thread.sleep(UPDATE_INTERVAL_MS);
+                if (!awaitResume()) {
+                    Thread.sleep(UPDATE_INTERVAL_MS);
+                }
                 
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
             }
         }
+        markStopped();
+    }
+    
+    /**
+     * Advances the vehicle by one update: 1 km and its fuel if it is driving.
+     * Returns the distance covered, which the caller adds to the Highway Distance Counter,
+     * so that an engine can add up a whole batch of vehicles at once.
+     * A stopped vehicle no longer changes.
+     */
+    public int tick() {
+        int km = 0;
+        lock.lock();   // against a refuel landing between the fuel check and the update
+        try {
+            if (status == Status.STOPPED) {
+                return 0;
+            }
+            if (!paused && fuelLevel > 0) {
+                // Increment mileage by 1 km
+                mileage += 1;
+                km = 1;
+                
+                // Decrease fuel
+                fuelLevel -= FUEL_CONSUMPTION_RATE;
+                if (fuelLevel < 0) {
+                    fuelLevel = 0;
+                }
+                
+                // Update status
+                if (fuelLevel <= 0) {
+                    status = Status.OUT_OF_FUEL;
+                    paused = true;
+                } else {
+                    status = Status.RUNNING;
+                }
+            } else if (paused && fuelLevel > 0) {
+                status = Status.PAUSED;
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        // Notify UI
+        if (km > 0 && updateCallback != null) {
+            updateCallback.onVehicleUpdate(this);
+        }
+        return km;
+    }
+    
+    /**
+     * Parks the vehicle's thread while it is paused; returns whether it had to wait.
+     * Waking up through resumeVehicle, refuelFull or stopVehicle lets it move at once.
+     */
+    private boolean awaitResume() throws InterruptedException {
+        lock.lock();
+        try {
+            if (!running || !paused) {
+                return false;
+            }
+            while (running && paused) {
+                resumed.await();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Marks the vehicle as driven by an engine, which will tick it from now on
+     */
+    void attach() {
+        lock.lock();
+        try {
+            if (runner != null) {
+                throw new IllegalStateException(vehicleId + " already runs on its own thread");
+            }
+            running = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Final state once the vehicle is no longer ticked
+     */
+    void markStopped() {
+        running = false;
         status = Status.STOPPED;
         if (updateCallback != null) {
             updateCallback.onVehicleUpdate(this);
@@ -104,9 +258,15 @@ public class SimulationVehicle extends Thread {
      * Starts/resumes the vehicle simulation
      */
     public void resumeVehicle() {
-        if (fuelLevel > 0) {
-            paused = false;
-            status = Status.RUNNING;
+        lock.lock();
+        try {
+            if (fuelLevel > 0) {
+                paused = false;
+                status = Status.RUNNING;
+                resumed.signalAll();
+            }
+        } finally {
+            lock.unlock();
         }
     }
     
@@ -114,9 +274,14 @@ public class SimulationVehicle extends Thread {
      * Pauses the vehicle simulation
      */
     public void pauseVehicle() {
-        paused = true;
-        if (fuelLevel > 0) {
-            status = Status.PAUSED;
+        lock.lock();
+        try {
+            paused = true;
+            if (fuelLevel > 0) {
+                status = Status.PAUSED;
+            }
+        } finally {
+            lock.unlock();
         }
     }
     
@@ -124,31 +289,81 @@ public class SimulationVehicle extends Thread {
      * Stops the vehicle simulation permanently
      */
     public void stopVehicle() {
-        running = false;
-        paused = true;
-        status = Status.STOPPED;
-        this.interrupt();
+        Thread t;
+        lock.lock();
+        try {
+            running = false;
+            paused = true;
+            status = Status.STOPPED;
+            resumed.signalAll();
+            t = runner;
+        } finally {
+            lock.unlock();
+        }
+        if (t != null) {
+            t.interrupt();   // cuts a sleep short
+        }
+    }
+    
+    /**
+     * The vehicle's own thread, or null when it has none
+     */
+    public Thread getRunner() {
+        lock.lock();
+        try {
+            return runner;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Whether the vehicle's own thread is running
+     */
+    public boolean isAlive() {
+        Thread t = getRunner();
+        return t != null && t.isAlive();
+    }
+    
+    /**
+     * Waits up to the given time for the vehicle's own thread to end
+     */
+    public void join(long millis) throws InterruptedException {
+        Thread t = getRunner();
+        if (t != null) {
+            t.join(millis);
+        }
     }
     
     /**
      * Refuels the vehicle
      */
-    public synchronized void refuel(double amount) {
-        fuelLevel = Math.min(fuelLevel + amount, maxFuel);
-        if (fuelLevel > 0 && status == Status.OUT_OF_FUEL) {
-            status = Status.PAUSED;
+    public void refuel(double amount) {
+        lock.lock();
+        try {
+            fuelLevel = Math.min(fuelLevel + amount, maxFuel);
+            if (fuelLevel > 0 && status == Status.OUT_OF_FUEL) {
+                status = Status.PAUSED;
+            }
+        } finally {
+            lock.unlock();
         }
     }
     
     /**
      * Refuels the vehicle to maximum capacity
      */
-    public synchronized void refuelFull() {
-        fuelLevel = maxFuel;
-        if (status == Status.OUT_OF_FUEL) {
-            status = Status.PAUSED;
-            // Automatically resume after refueling
-            resumeVehicle();
+    public void refuelFull() {
+        lock.lock();
+        try {
+            fuelLevel = maxFuel;
+            if (status == Status.OUT_OF_FUEL) {
+                status = Status.PAUSED;
+                // Automatically resume after refueling
+                resumeVehicle();
+            }
+        } finally {
+            lock.unlock();
         }
     }
     
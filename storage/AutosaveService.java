@@ -0,0 +1,344 @@
+package storage;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import vehicles.*;
+import exceptions.*;
+import fleetmanager.*;
+import logging.*;
+
+// saves the fleet in the background, so the CLI and batch jobs never wait on the disk.
+// A save starts once the fleet has changed and either the interval has passed or the number of
+// changes since the last save reaches the threshold; a clean fleet is never written.
+//
+// a save copies the fleet's state with BinarySnapshot.capture inside FleetManager.inspect, the
+// only part that holds the fleet (with ConcurrentFleetManager, its read lock). Turning it into the
+// file format and writing it happen afterwards on the "fleet-autosave" thread: the file goes to
+// <file>.tmp, is forced to disk and then renamed over the file, so a crash leaves either the
+// old save or the new one. Files ending in .snap get the snapshot itself, anything else schema CSV.
+//
+//     AutosaveService autosave = new AutosaveService(fleetManager, "fleet.csv", 30_000, 1000);
+//     ...
+//     autosave.close();   // writes what is left
+public class AutosaveService implements FleetListener, Closeable {
+    public static final long DEFAULT_INTERVAL_MILLIS = 30_000;
+    public static final long DEFAULT_CHANGE_THRESHOLD = 1000;
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final FleetManager fleetManager;
+    private final Path file;
+    private final Path tmp;
+    private final boolean snapshot;
+    private final long intervalNanos;
+    private final long changeThreshold;
+    private final ScheduledExecutorService saver;
+
+    // change counting, on the caller's thread: only atomics, never a lock
+    private final AtomicLong changes = new AtomicLong();   // ever seen
+    private volatile long savedChanges = 0;   // changes covered by the last save
+    private final AtomicLong dirtySince = new AtomicLong();   // nanoTime of the oldest unsaved change, 0 when clean
+    private final AtomicBoolean saveQueued = new AtomicBoolean();
+    private volatile long lastSaveStart = System.nanoTime();
+    private volatile boolean closed = false;
+
+    // metrics, written by the saver thread only
+    private volatile long saves = 0;
+    private volatile long failures = 0;
+    private volatile long totalSaveNanos = 0;
+    private volatile long lastSaveNanos = 0;
+    private volatile long maxSaveNanos = 0;
+    private volatile long lastCaptureNanos = 0;
+    private volatile long maxCaptureNanos = 0;
+    private volatile long lastLagNanos = 0;
+    private volatile long maxLagNanos = 0;
+    private volatile long lastSaveBytes = 0;
+    private volatile int lastSaveVehicles = 0;
+
+    // starts following the fleet; intervalMillis is the longest a change stays unsaved (bar
+    // the save itself), changeThreshold the number of changes that start a save sooner
+    public AutosaveService(FleetManager fleetManager, String fileName, long intervalMillis, long changeThreshold)
+            throws InvalidOperationException {
+        if (intervalMillis <= 0 || changeThreshold <= 0) {
+            throw new InvalidOperationException("Autosave interval and change threshold must be positive");
+        }
+        if (fleetManager instanceof LazyFleetManager) {
+            // every save copies the whole fleet, which would load the entire file into memory
+            throw new InvalidOperationException("Autosave cannot follow a lazily opened fleet file");
+        }
+        this.fleetManager = fleetManager;
+        this.file = Paths.get(fileName);
+        this.tmp = Paths.get(fileName + TMP_SUFFIX);
+        this.snapshot = fileName.toLowerCase().endsWith(".snap");
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.changeThreshold = changeThreshold;
+        this.saver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fleet-autosave");
+            t.setDaemon(true);
+            return t;
+        });
+        // checking more often than the interval keeps a late change from waiting almost two intervals
+        long period = Math.max(1, intervalMillis / 4);
+        saver.scheduleWithFixedDelay(this::check, period, period, TimeUnit.MILLISECONDS);
+        fleetManager.addListener(this);
+    }
+
+    public AutosaveService(FleetManager fleetManager, String fileName) throws InvalidOperationException {
+        this(fleetManager, fileName, DEFAULT_INTERVAL_MILLIS, DEFAULT_CHANGE_THRESHOLD);
+    }
+
+    public String getFileName() {
+        return file.toString();
+    }
+
+    // changes not yet covered by a finished save
+    public long pendingChanges() {
+        return changes.get() - savedChanges;
+    }
+
+    // queues a save whether or not the fleet changed; the future ends when it is written
+    public Future<?> saveNow() {
+        return saver.submit(() -> runSave(true));
+    }
+
+    private void check() {
+        long dirty = dirtySince.get();
+        if (dirty != 0 && System.nanoTime() - lastSaveStart >= intervalNanos) {
+            runSave(false);
+        }
+    }
+
+    private void markChanged() {
+        long n = changes.incrementAndGet();
+        dirtySince.compareAndSet(0, System.nanoTime());
+        if (n - savedChanges >= changeThreshold && !closed && saveQueued.compareAndSet(false, true)) {
+            try {
+                saver.execute(() -> {
+                    saveQueued.set(false);
+                    runSave(false);
+                });
+            } catch (RejectedExecutionException e) {
+                saveQueued.set(false);   // closing; close() writes the rest
+            }
+        }
+    }
+
+    // on the saver thread only, so saves never overlap
+    private void runSave(boolean always) {
+        long start = System.nanoTime();
+        if (!always && changes.get() == savedChanges) {
+            return;
+        }
+        lastSaveStart = start;
+        // cleared before the count is read: a change made while the fleet is copied may or may
+        // not be in this save, so it marks the fleet dirty again either way
+        long dirty = dirtySince.getAndSet(0);
+        long changesAtCapture = changes.get();
+        try {
+            BinarySnapshot.Capture capture = fleetManager.inspect(fleet -> {
+                try {
+                    return BinarySnapshot.capture(fleet);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            long captured = System.nanoTime();
+            long bytes = write(capture.encode());
+            long end = System.nanoTime();
+
+            savedChanges = changesAtCapture;
+            lastCaptureNanos = captured - start;
+            maxCaptureNanos = Math.max(maxCaptureNanos, lastCaptureNanos);
+            lastSaveNanos = end - start;
+            maxSaveNanos = Math.max(maxSaveNanos, lastSaveNanos);
+            totalSaveNanos += lastSaveNanos;
+            lastLagNanos = dirty == 0 ? 0 : end - dirty;
+            maxLagNanos = Math.max(maxLagNanos, lastLagNanos);
+            lastSaveBytes = bytes;
+            lastSaveVehicles = capture.size();
+            saves++;
+        } catch (IOException | InvalidOperationException | RuntimeException e) {
+            failures++;
+            dirtySince.compareAndSet(0, dirty == 0 ? start : dirty);   // still unsaved; retried on the next check
+            FleetLog.error("Autosave to " + file + " failed: " + e.getMessage());
+        }
+    }
+
+    private long write(byte[] image) throws IOException, InvalidOperationException {
+        if (snapshot) {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                out.write(image);
+            }
+        } else {
+            SchemaCsvWriter.write(tmp.toString(), BinarySnapshot.decode(image));
+        }
+        return moveIntoPlace(tmp, file);
+    }
+
+    // forces a fully written temp file to disk and renames it over the file, so a crash leaves
+    // either the old file or the new one; returns the new file's size
+    static long moveIntoPlace(Path tmp, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        long bytes = Files.size(tmp);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return bytes;
+    }
+
+    public Metrics getMetrics() {
+        long dirty = dirtySince.get();
+        return new Metrics(saves, failures, lastSaveNanos, maxSaveNanos, saves == 0 ? 0 : totalSaveNanos / saves,
+                lastCaptureNanos, maxCaptureNanos, dirty == 0 ? 0 : System.nanoTime() - dirty,
+                lastLagNanos, maxLagNanos, pendingChanges(), lastSaveBytes, lastSaveVehicles);
+    }
+
+    // stops following the fleet and writes any unsaved changes before returning
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        fleetManager.removeListener(this);
+        Future<?> last = saver.submit(() -> runSave(false));
+        saver.shutdown();
+        try {
+            last.get();
+            saver.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IOException("Final autosave failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void onVehicleAdded(Vehicle vehicle) {
+        markChanged();
+    }
+
+    @Override
+    public void onVehicleRemoved(Vehicle vehicle) {
+        markChanged();
+    }
+
+    @Override
+    public void onMileageChanged(Vehicle vehicle, double oldMileage) {
+        markChanged();
+    }
+
+    @Override
+    public void onMaintenanceChanged(Vehicle vehicle, boolean needed) {
+        markChanged();
+    }
+
+    @Override
+    public void onFuelChanged(Vehicle vehicle) {
+        markChanged();
+    }
+
+    // a point-in-time copy of the autosave metrics; times are in milliseconds.
+    // save latency runs from the start of the copy to the rename, capture is the part that holds
+    // the fleet, and lag is how long the oldest change in a save waited to reach the disk
+    public static final class Metrics {
+        private final long saves;
+        private final long failures;
+        private final long lastSaveNanos;
+        private final long maxSaveNanos;
+        private final long averageSaveNanos;
+        private final long lastCaptureNanos;
+        private final long maxCaptureNanos;
+        private final long currentLagNanos;
+        private final long lastLagNanos;
+        private final long maxLagNanos;
+        private final long pendingChanges;
+        private final long lastSaveBytes;
+        private final int lastSaveVehicles;
+
+        Metrics(long saves, long failures, long lastSaveNanos, long maxSaveNanos, long averageSaveNanos,
+                long lastCaptureNanos, long maxCaptureNanos, long currentLagNanos, long lastLagNanos,
+                long maxLagNanos, long pendingChanges, long lastSaveBytes, int lastSaveVehicles) {
+            this.saves = saves;
+            this.failures = failures;
+            this.lastSaveNanos = lastSaveNanos;
+            this.maxSaveNanos = maxSaveNanos;
+            this.averageSaveNanos = averageSaveNanos;
+            this.lastCaptureNanos = lastCaptureNanos;
+            this.maxCaptureNanos = maxCaptureNanos;
+            this.currentLagNanos = currentLagNanos;
+            this.lastLagNanos = lastLagNanos;
+            this.maxLagNanos = maxLagNanos;
+            this.pendingChanges = pendingChanges;
+            this.lastSaveBytes = lastSaveBytes;
+            this.lastSaveVehicles = lastSaveVehicles;
+        }
+
+        public long getSaves() {
+            return saves;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public double getLastSaveMillis() {
+            return millis(lastSaveNanos);
+        }
+
+        public double getMaxSaveMillis() {
+            return millis(maxSaveNanos);
+        }
+
+        public double getAverageSaveMillis() {
+            return millis(averageSaveNanos);
+        }
+
+        public double getLastCaptureMillis() {
+            return millis(lastCaptureNanos);
+        }
+
+        public double getMaxCaptureMillis() {
+            return millis(maxCaptureNanos);
+        }
+
+        // age of the oldest change not yet saved, 0 when everything is on disk
+        public double getCurrentLagMillis() {
+            return millis(currentLagNanos);
+        }
+
+        public double getLastLagMillis() {
+            return millis(lastLagNanos);
+        }
+
+        public double getMaxLagMillis() {
+            return millis(maxLagNanos);
+        }
+
+        public long getPendingChanges() {
+            return pendingChanges;
+        }
+
+        public long getLastSaveBytes() {
+            return lastSaveBytes;
+        }
+
+        public int getLastSaveVehicles() {
+            return lastSaveVehicles;
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("saves=%d failures=%d save(last/avg/max)=%.1f/%.1f/%.1f ms"
+                    + " capture(last/max)=%.1f/%.1f ms lag(now/last/max)=%.0f/%.0f/%.0f ms pending=%d last=%d vehicles, %d bytes",
+                    saves, failures, getLastSaveMillis(), getAverageSaveMillis(), getMaxSaveMillis(),
+                    getLastCaptureMillis(), getMaxCaptureMillis(), getCurrentLagMillis(), getLastLagMillis(),
+                    getMaxLagMillis(), pendingChanges, lastSaveVehicles, lastSaveBytes);
+        }
+    }
+}
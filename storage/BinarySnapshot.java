@@ -0,0 +1,235 @@
+package storage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+import vehicles.*;
+import exceptions.*;
+import fleetmanager.*;
+
+// compact binary fleet snapshot for fast restarts and frequent checkpoints.
+//
+// layout (all big-endian):
+//   int    magic "FLTS"
+//   short  format version
+//   byte   class count, then each class name (UTF)      -- dictionary for the 1-byte class tag
+//   int    string count, then each string (UTF)         -- IDs and models, each distinct string stored once
+//   int    record count, then fixed-width records of RECORD_BYTES:
+//          byte tag, int idRef, int modelRef, then the VehicleRecord fields
+public class BinarySnapshot {
+    public static final int MAGIC = 0x464C5453;   // "FLTS"
+    public static final short VERSION = 1;
+    public static final int RECORD_BYTES = 1 + 4 + 4 + VehicleRecord.FIELD_BYTES;
+    public static final int MAX_RECORDS = Integer.MAX_VALUE / RECORD_BYTES;   // the records must fit in one array
+
+    private BinarySnapshot() {
+    }
+
+    // written to <file>.tmp and moved over the file as AutosaveService does, so a crash during a
+    // checkpoint leaves the previous snapshot in place
+    public static void save(String fileName, Collection<? extends Vehicle> fleet) throws IOException {
+        byte[] image = encode(fleet);
+        Path tmp = Paths.get(fileName + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            out.write(image);
+        }
+        AutosaveService.moveIntoPlace(tmp, Paths.get(fileName));
+    }
+
+    // the whole snapshot file in memory
+    public static byte[] encode(Collection<? extends Vehicle> fleet) throws IOException {
+        return capture(fleet).encode();
+    }
+
+    // copies the fleet's state and nothing more, so it is the only step that needs the fleet
+    // to stand still; the string table and the image are built later from the copy
+    public static Capture capture(Collection<? extends Vehicle> fleet) throws IOException {
+        if (fleet.size() > MAX_RECORDS) {
+            throw new IOException("Cannot snapshot " + fleet.size() + " vehicles; a snapshot holds at most " + MAX_RECORDS);
+        }
+        Capture c = new Capture(fleet.size());
+        for (Vehicle v : fleet) {
+            byte tag = VehicleRecord.tagOf(v);
+            if (tag < 0) {
+                throw new IOException("Cannot snapshot vehicle type " + v.getClass().getName());
+            }
+            c.fields.put(tag);
+            VehicleRecord.writeFields(c.fields, v);
+            c.ids[c.count] = v.getId();   // strings are immutable, so sharing them is a copy
+            c.models[c.count] = v.getModel();
+            c.count++;
+        }
+        return c;
+    }
+
+    // a fleet's state as captured, not yet laid out as a snapshot
+    public static final class Capture {
+        private final ByteBuffer fields;   // tag and VehicleRecord fields per vehicle
+        private final String[] ids;
+        private final String[] models;
+        private int count = 0;
+
+        private Capture(int size) {
+            fields = ByteBuffer.allocate(size * (1 + VehicleRecord.FIELD_BYTES));
+            ids = new String[size];
+            models = new String[size];
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public byte[] encode() throws IOException {
+            return image(this);
+        }
+    }
+
+    private static byte[] image(Capture c) throws IOException {
+        Map<String, Integer> strings = new HashMap<>(c.count * 3);
+        List<String> table = new ArrayList<>(c.count + 16);
+        ByteBuffer records = ByteBuffer.allocate((int) ((long) c.count * RECORD_BYTES));   // capture checked MAX_RECORDS
+        byte[] fields = c.fields.array();
+        for (int i = 0; i < c.count; i++) {
+            int at = i * (1 + VehicleRecord.FIELD_BYTES);
+            records.put(fields[at]);
+            records.putInt(intern(strings, table, c.ids[i]));
+            records.putInt(intern(strings, table, c.models[i]));
+            records.put(fields, at + 1, VehicleRecord.FIELD_BYTES);
+        }
+        ByteArrayOutputStream image = new ByteArrayOutputStream(records.position() + table.size() * 16 + 256);
+        DataOutputStream out = new DataOutputStream(image);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeByte(VehicleRecord.CLASSES.length);
+        for (String name : VehicleRecord.CLASSES) {
+            out.writeUTF(name);
+        }
+        out.writeInt(table.size());
+        for (String str : table) {
+            out.writeUTF(str);
+        }
+        out.writeInt(c.count);
+        out.write(records.array(), 0, records.position());
+        return image.toByteArray();
+    }
+
+    private static int intern(Map<String, Integer> strings, List<String> table, String str) {
+        Integer ref = strings.putIfAbsent(str, table.size());
+        if (ref != null) {
+            return ref;
+        }
+        table.add(str);
+        return table.size() - 1;
+    }
+
+    public static List<Vehicle> load(String fileName) throws IOException, InvalidOperationException {
+        try (FileInputStream file = new FileInputStream(fileName)) {
+            return read(new BufferedInputStream(file, 1 << 16), file.getChannel().size(), fileName);
+        }
+    }
+
+    // builds the vehicles of a snapshot made by encode
+    public static List<Vehicle> decode(byte[] image) throws IOException, InvalidOperationException {
+        return read(new ByteArrayInputStream(image), image.length, "snapshot image");
+    }
+
+    // length is the size of the whole snapshot, so the counts in it can be checked before
+    // anything is allocated for them
+    private static List<Vehicle> read(InputStream stream, long length, String source)
+            throws IOException, InvalidOperationException {
+        CountingInputStream counted = new CountingInputStream(stream);
+        DataInputStream in = new DataInputStream(counted);
+        if (in.readInt() != MAGIC) {
+            throw new InvalidOperationException(source + " is not a fleet snapshot");
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new InvalidOperationException("Unsupported snapshot version " + version);
+        }
+        // map the file's tags onto ours, so a writer may order its dictionary freely
+        int classCount = in.readUnsignedByte();
+        byte[] tagMap = new byte[classCount];
+        for (int i = 0; i < classCount; i++) {
+            String name = in.readUTF();
+            tagMap[i] = (byte) Arrays.asList(VehicleRecord.CLASSES).indexOf(name);
+            if (tagMap[i] < 0) {
+                throw new InvalidOperationException("Corrupt snapshot " + source + ": unknown class " + name);
+            }
+        }
+        int stringCount = in.readInt();
+        if (stringCount < 0 || stringCount > (length - counted.position) / 2) {   // a string takes at least its 2-byte length
+            throw new InvalidOperationException(source + " is damaged: string count " + stringCount
+                    + " does not fit in its " + length + " bytes");
+        }
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        int count = in.readInt();
+        if (count < 0 || count > MAX_RECORDS) {
+            throw new InvalidOperationException(source + " is damaged: record count " + count
+                    + " is outside 0.." + MAX_RECORDS);
+        }
+        long recordBytes = (long) count * RECORD_BYTES;
+        if (recordBytes > length - counted.position) {
+            throw new InvalidOperationException(source + " is truncated: " + count + " records need " + recordBytes
+                    + " bytes but only " + (length - counted.position) + " are left");
+        }
+        byte[] bytes = new byte[(int) recordBytes];
+        in.readFully(bytes);
+        ByteBuffer records = ByteBuffer.wrap(bytes);
+        List<Vehicle> fleet = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int tag = Byte.toUnsignedInt(records.get());
+            int idRef = records.getInt();
+            int modelRef = records.getInt();
+            if (tag >= classCount || idRef < 0 || idRef >= strings.length || modelRef < 0 || modelRef >= strings.length) {
+                throw new InvalidOperationException("Corrupt snapshot " + source + ": record " + i + " has class tag " + tag
+                        + " and string refs " + idRef + ", " + modelRef + " (" + classCount + " classes, "
+                        + strings.length + " strings)");
+            }
+            fleet.add(VehicleRecord.readFields(records, tagMap[tag], strings[idRef], strings[modelRef]));
+        }
+        return fleet;
+    }
+
+    // keeps track of how far into the snapshot the reader is
+    private static final class CountingInputStream extends FilterInputStream {
+        private long position = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                position++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+    }
+
+    // loads the snapshot and adds it to the fleet in one batch
+    public static BulkAddResult loadInto(String fileName, FleetManager fleetManager)
+            throws IOException, InvalidOperationException {
+        return fleetManager.addAll(load(fileName));
+    }
+}
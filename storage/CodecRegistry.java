@@ -0,0 +1,42 @@
+package storage;
+import java.util.*;
+import vehicles.*;
+
+// vehicle codecs by class and by name. Register custom codecs before the registry is used;
+// lookups are not synchronized against register()
+public class CodecRegistry {
+    private static final CodecRegistry STANDARD = new CodecRegistry();
+
+    static {
+        StandardCodecs.registerAll(STANDARD);
+    }
+
+    private final Map<Class<?>, VehicleCodec<?>> byType = new HashMap<>();
+    private final Map<String, VehicleCodec<?>> byName = new HashMap<>();
+
+    // the shared registry holding the built-in classes
+    public static CodecRegistry standard() {
+        return STANDARD;
+    }
+
+    // replaces any codec already registered for the same class
+    public void register(VehicleCodec<?> codec) {
+        byType.put(codec.getType(), codec);
+        byName.put(codec.getName(), codec);
+    }
+
+    // codec for the vehicle's exact class, or else for its nearest registered superclass; null if none
+    public VehicleCodec<?> forType(Class<?> type) {
+        for (Class<?> c = type; c != null && c != Vehicle.class; c = c.getSuperclass()) {
+            VehicleCodec<?> codec = byType.get(c);
+            if (codec != null) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    public VehicleCodec<?> forName(String name) {
+        return byName.get(name);
+    }
+}
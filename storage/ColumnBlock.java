@@ -0,0 +1,121 @@
+package storage;
+import java.io.*;
+
+// what the footer of a columnar fleet file records for one block: where each column's chunk is,
+// and statistics over the block's rows. A reader decides from these alone whether a block can be
+// skipped, answered without reading it, or must be scanned
+final class ColumnBlock {
+    // columns, in the order their chunks are written
+    static final int CLASS = 0;   // byte per row, index into the class dictionary
+    static final int MODEL = 1;   // int per row, index into the sorted model dictionary
+    static final int MAX_SPEED = 2;   // double per row
+    static final int MILEAGE = 3;   // double per row
+    static final int FUEL_LEVEL = 4;   // double per row, 0 for vehicles without fuel
+    static final int EFFICIENCY = 5;   // double per row
+    static final int MAINTENANCE = 6;   // one bit per row, lowest bit first
+    static final int ID = 7;   // UTF string per row
+    static final int COLUMNS = 8;
+
+    int rows;
+    final long[] offsets = new long[COLUMNS];
+    final int[] lengths = new int[COLUMNS];
+
+    int classMask;   // bit per class present
+    int[] classCounts;
+    int modelMin = Integer.MAX_VALUE, modelMax = Integer.MIN_VALUE;   // the dictionary is sorted, so a range of names
+    double speedMin = Double.POSITIVE_INFINITY, speedMax = Double.NEGATIVE_INFINITY;
+    int speedMinRow, speedMaxRow;   // first row holding each, for the report's fastest and slowest
+    double mileageMin = Double.POSITIVE_INFINITY, mileageMax = Double.NEGATIVE_INFINITY, mileageSum;
+    double fuelMin = Double.POSITIVE_INFINITY, fuelMax = Double.NEGATIVE_INFINITY;
+    double efficiencyMin = Double.POSITIVE_INFINITY, efficiencyMax = Double.NEGATIVE_INFINITY, efficiencySum;
+    int maintenanceCount;
+
+    ColumnBlock(int classCount) {
+        classCounts = new int[classCount];
+    }
+
+    // folds one row into the statistics
+    void add(int row, int classRef, int modelRef, double speed, double mileage, double fuel, double efficiency,
+            boolean maintenance) {
+        rows = row + 1;
+        classMask |= 1 << classRef;
+        classCounts[classRef]++;
+        modelMin = Math.min(modelMin, modelRef);
+        modelMax = Math.max(modelMax, modelRef);
+        if (speed < speedMin) {
+            speedMin = speed;
+            speedMinRow = row;
+        }
+        if (speed > speedMax) {
+            speedMax = speed;
+            speedMaxRow = row;
+        }
+        mileageMin = Math.min(mileageMin, mileage);
+        mileageMax = Math.max(mileageMax, mileage);
+        mileageSum += mileage;
+        fuelMin = Math.min(fuelMin, fuel);
+        fuelMax = Math.max(fuelMax, fuel);
+        efficiencyMin = Math.min(efficiencyMin, efficiency);
+        efficiencyMax = Math.max(efficiencyMax, efficiency);
+        efficiencySum += efficiency;
+        if (maintenance) {
+            maintenanceCount++;
+        }
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(rows);
+        for (int c = 0; c < COLUMNS; c++) {
+            out.writeLong(offsets[c]);
+            out.writeInt(lengths[c]);
+        }
+        out.writeInt(classMask);
+        for (int count : classCounts) {
+            out.writeInt(count);
+        }
+        out.writeInt(modelMin);
+        out.writeInt(modelMax);
+        out.writeDouble(speedMin);
+        out.writeDouble(speedMax);
+        out.writeInt(speedMinRow);
+        out.writeInt(speedMaxRow);
+        out.writeDouble(mileageMin);
+        out.writeDouble(mileageMax);
+        out.writeDouble(mileageSum);
+        out.writeDouble(fuelMin);
+        out.writeDouble(fuelMax);
+        out.writeDouble(efficiencyMin);
+        out.writeDouble(efficiencyMax);
+        out.writeDouble(efficiencySum);
+        out.writeInt(maintenanceCount);
+    }
+
+    static ColumnBlock read(DataInput in, int classCount) throws IOException {
+        ColumnBlock b = new ColumnBlock(classCount);
+        b.rows = in.readInt();
+        for (int c = 0; c < COLUMNS; c++) {
+            b.offsets[c] = in.readLong();
+            b.lengths[c] = in.readInt();
+        }
+        b.classMask = in.readInt();
+        for (int i = 0; i < classCount; i++) {
+            b.classCounts[i] = in.readInt();
+        }
+        b.modelMin = in.readInt();
+        b.modelMax = in.readInt();
+        b.speedMin = in.readDouble();
+        b.speedMax = in.readDouble();
+        b.speedMinRow = in.readInt();
+        b.speedMaxRow = in.readInt();
+        b.mileageMin = in.readDouble();
+        b.mileageMax = in.readDouble();
+        b.mileageSum = in.readDouble();
+        b.fuelMin = in.readDouble();
+        b.fuelMax = in.readDouble();
+        b.efficiencyMin = in.readDouble();
+        b.efficiencyMax = in.readDouble();
+        b.efficiencySum = in.readDouble();
+        b.maintenanceCount = in.readInt();
+        return b;
+    }
+}
@@ -0,0 +1,586 @@
+package storage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import vehicles.*;
+import concreteclasses.*;
+import exceptions.*;
+
+// queries a columnar fleet file written by ColumnarFleetWriter without building any Vehicle:
+//     try (ColumnarFleetReader cols = ColumnarFleetReader.open("fleet.cols")) {
+//         List<String> ids = cols.query().type(Airplane.class).mileageBetween(45_000, Double.MAX_VALUE).ids();
+//         System.out.println(cols.query().summary().toReport());
+//     }
+// for each block the footer statistics decide first: a block no row of which can match is skipped,
+// one all of whose rows match is answered from the statistics, and only the rest are read, and then
+// only the columns the query filters or aggregates on. Not thread-safe; open a reader per thread
+public class ColumnarFleetReader implements Closeable {
+    private final FileChannel channel;
+    private final int blockRows;
+    private final String[] classNames;
+    private final Class<?>[] classes;   // null for a class this build does not have, or that is not a Vehicle
+    private final String[] models;   // sorted
+    private final ColumnBlock[] blocks;
+
+    // decoded columns of the block being scanned
+    private final byte[] classColumn;
+    private final int[] modelColumn;
+    private final double[][] doubleColumns = new double[ColumnBlock.COLUMNS][];
+    private final byte[] maintenanceColumn;
+    private ByteBuffer chunk;
+
+    private ColumnarFleetReader(FileChannel channel, int blockRows, String[] classNames,
+            String[] models, ColumnBlock[] blocks) {
+        this.channel = channel;
+        this.blockRows = blockRows;
+        this.classNames = classNames;
+        this.models = models;
+        this.blocks = blocks;
+        classes = new Class<?>[classNames.length];
+        for (int i = 0; i < classNames.length; i++) {
+            classes[i] = vehicleClass(classNames[i]);
+        }
+        classColumn = new byte[blockRows];
+        modelColumn = new int[blockRows];
+        for (int c : new int[] {ColumnBlock.MAX_SPEED, ColumnBlock.MILEAGE, ColumnBlock.FUEL_LEVEL, ColumnBlock.EFFICIENCY}) {
+            doubleColumns[c] = new double[blockRows];
+        }
+        maintenanceColumn = new byte[(blockRows + 7) / 8];
+        chunk = ByteBuffer.allocate(blockRows * 8);
+    }
+
+    // the class names come from the file, so they are only looked up, never initialized, and
+    // anything but a Vehicle is treated as unknown: still counted in totals, never matched by type
+    private static Class<?> vehicleClass(String name) {
+        try {
+            Class<?> type = Class.forName(name, false, ColumnarFleetReader.class.getClassLoader());
+            return Vehicle.class.isAssignableFrom(type) ? type : null;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    public static ColumnarFleetReader open(String fileName) throws IOException, InvalidOperationException {
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < ColumnarFleetWriter.HEADER_BYTES + ColumnarFleetWriter.TAIL_BYTES) {
+                throw new InvalidOperationException(fileName + " is not a columnar fleet file");
+            }
+            ByteBuffer header = read(channel, 0, ColumnarFleetWriter.HEADER_BYTES);
+            ByteBuffer tail = read(channel, size - ColumnarFleetWriter.TAIL_BYTES, ColumnarFleetWriter.TAIL_BYTES);
+            long footerAt = tail.getLong();
+            if (header.getInt() != ColumnarFleetWriter.MAGIC || tail.getInt() != ColumnarFleetWriter.MAGIC) {
+                throw new InvalidOperationException(fileName + " is not a columnar fleet file, or is incomplete");
+            }
+            short version = header.getShort();
+            if (version != ColumnarFleetWriter.VERSION) {
+                throw new InvalidOperationException("Unsupported columnar file version " + version);
+            }
+            int blockRows = header.getInt();
+            ByteBuffer footerBytes = read(channel, footerAt, (int) (size - ColumnarFleetWriter.TAIL_BYTES - footerAt));
+            DataInputStream footer = new DataInputStream(new ByteArrayInputStream(footerBytes.array()));
+            String[] classNames = new String[footer.readUnsignedByte()];
+            for (int i = 0; i < classNames.length; i++) {
+                classNames[i] = footer.readUTF();
+            }
+            String[] models = new String[footer.readInt()];
+            for (int i = 0; i < models.length; i++) {
+                models[i] = footer.readUTF();
+            }
+            ColumnBlock[] blocks = new ColumnBlock[footer.readInt()];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = ColumnBlock.read(footer, classNames.length);
+            }
+            return new ColumnarFleetReader(channel, blockRows, classNames, models, blocks);
+        } catch (IOException | InvalidOperationException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long at, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(channel, buffer, at);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long at) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, at + buffer.position()) < 0) {
+                throw new EOFException("Columnar fleet file ends early");
+            }
+        }
+    }
+
+    public long size() {
+        long rows = 0;
+        for (ColumnBlock b : blocks) {
+            rows += b.rows;
+        }
+        return rows;
+    }
+
+    public int blockCount() {
+        return blocks.length;
+    }
+
+    // model names in the file, in order
+    public List<String> modelNames() {
+        return Collections.unmodifiableList(Arrays.asList(models));
+    }
+
+    // a query over every row; narrow it with the filter methods
+    public Query query() {
+        return new Query();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // reads one column chunk of a block into chunk
+    private ByteBuffer chunk(ColumnBlock b, int column) throws IOException {
+        int length = b.lengths[column];
+        if (chunk.capacity() < length) {
+            chunk = ByteBuffer.allocate(length);
+        }
+        chunk.clear().limit(length);
+        readFully(channel, chunk, b.offsets[column]);
+        chunk.flip();
+        return chunk;
+    }
+
+    private void load(ColumnBlock b, int column) throws IOException {
+        ByteBuffer data = chunk(b, column);
+        switch (column) {
+            case ColumnBlock.CLASS:
+                data.get(classColumn, 0, b.rows);
+                break;
+            case ColumnBlock.MODEL:
+                data.asIntBuffer().get(modelColumn, 0, b.rows);
+                break;
+            case ColumnBlock.MAINTENANCE:
+                data.get(maintenanceColumn, 0, (b.rows + 7) / 8);
+                break;
+            default:
+                data.asDoubleBuffer().get(doubleColumns[column], 0, b.rows);
+        }
+    }
+
+    private boolean maintenanceAt(int row) {
+        return (maintenanceColumn[row >> 3] & (1 << (row & 7))) != 0;
+    }
+
+    // the ID of one row, without decoding the ones before it
+    private String readId(ColumnBlock b, int row) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(chunk(b, ColumnBlock.ID).array(), 0, b.lengths[ColumnBlock.ID]));
+        for (int r = 0; r < row; r++) {
+            in.skipBytes(in.readUnsignedShort());
+        }
+        return in.readUTF();
+    }
+
+    private void readIds(ColumnBlock b, boolean[] match, List<String> into) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(chunk(b, ColumnBlock.ID).array(), 0, b.lengths[ColumnBlock.ID]));
+        for (int r = 0; r < b.rows; r++) {
+            if (match == null || match[r]) {
+                into.add(in.readUTF());
+            } else {
+                in.skipBytes(in.readUnsignedShort());
+            }
+        }
+    }
+
+    // filters over the columns; all of them must hold. Ranges are inclusive, like the FleetManager ones
+    public final class Query {
+        private int classMask = -1;
+        private int model = -1;   // model ref, -1 for any
+        private boolean nothing = false;   // a filter no row can pass, e.g. a model not in the file
+        private double speedMin = Double.NEGATIVE_INFINITY, speedMax = Double.POSITIVE_INFINITY;
+        private double mileageMin = Double.NEGATIVE_INFINITY, mileageMax = Double.POSITIVE_INFINITY;
+        private double fuelMin = Double.NEGATIVE_INFINITY, fuelMax = Double.POSITIVE_INFINITY;
+        private double efficiencyMin = Double.NEGATIVE_INFINITY, efficiencyMax = Double.POSITIVE_INFINITY;
+        private int maintenance = -1;   // -1 any, 0 not needed, 1 needed
+
+        private int blocksSkipped, blocksFromStats, blocksScanned;
+        private ColumnBlock loaded;   // block whose columns in loadedColumns are decoded
+        private final boolean[] loadedColumns = new boolean[ColumnBlock.COLUMNS];
+
+        private Query() {
+        }
+
+        // vehicles of the class, its subclasses or implementing the interface, as in searchByType
+        public Query type(Class<?> type) {
+            int mask = 0;
+            for (int i = 0; i < classes.length; i++) {
+                if (classes[i] != null && type.isAssignableFrom(classes[i])) {
+                    mask |= 1 << i;
+                }
+            }
+            classMask &= mask;
+            return this;
+        }
+
+        public Query model(String name) {
+            int ref = Arrays.binarySearch(models, name);
+            if (ref < 0 || (model >= 0 && model != ref)) {
+                nothing = true;
+            }
+            model = ref;
+            return this;
+        }
+
+        public Query speedBetween(double min, double max) {
+            speedMin = Math.max(speedMin, min);
+            speedMax = Math.min(speedMax, max);
+            return this;
+        }
+
+        public Query mileageBetween(double min, double max) {
+            mileageMin = Math.max(mileageMin, min);
+            mileageMax = Math.min(mileageMax, max);
+            return this;
+        }
+
+        public Query fuelBetween(double min, double max) {
+            fuelMin = Math.max(fuelMin, min);
+            fuelMax = Math.min(fuelMax, max);
+            return this;
+        }
+
+        public Query efficiencyBetween(double min, double max) {
+            efficiencyMin = Math.max(efficiencyMin, min);
+            efficiencyMax = Math.min(efficiencyMax, max);
+            return this;
+        }
+
+        public Query needsMaintenance(boolean needed) {
+            int wanted = needed ? 1 : 0;
+            if (maintenance >= 0 && maintenance != wanted) {
+                nothing = true;
+            }
+            maintenance = wanted;
+            return this;
+        }
+
+        // blocks the last terminal call skipped, answered from statistics, and read
+        public int getBlocksSkipped() {
+            return blocksSkipped;
+        }
+
+        public int getBlocksFromStats() {
+            return blocksFromStats;
+        }
+
+        public int getBlocksScanned() {
+            return blocksScanned;
+        }
+
+        public long count() throws IOException {
+            long count = 0;
+            boolean[] match = new boolean[blockRows];
+            resetCounters();
+            for (ColumnBlock b : blocks) {
+                switch (classify(b)) {
+                    case NONE:
+                        break;
+                    case ALL:
+                        count += b.rows;
+                        break;
+                    default:
+                        count += filter(b, match);
+                }
+            }
+            return count;
+        }
+
+        public List<String> ids() throws IOException {
+            List<String> ids = new ArrayList<>();
+            boolean[] match = new boolean[blockRows];
+            resetCounters();
+            for (ColumnBlock b : blocks) {
+                Cover cover = classify(b);
+                if (cover == Cover.NONE) {
+                    continue;
+                }
+                if (cover == Cover.ALL) {
+                    readIds(b, null, ids);
+                } else if (filter(b, match) > 0) {
+                    readIds(b, match, ids);
+                }
+            }
+            return ids;
+        }
+
+        // the generateReport figures over the matching rows
+        public Summary summary() throws IOException {
+            Summary s = new Summary(classNames, classes);
+            boolean[] match = new boolean[blockRows];
+            ColumnBlock fastestBlock = null, slowestBlock = null;
+            int fastestRow = -1, slowestRow = -1;
+            resetCounters();
+            for (ColumnBlock b : blocks) {
+                Cover cover = classify(b);
+                if (cover == Cover.NONE) {
+                    continue;
+                }
+                if (cover == Cover.ALL) {
+                    s.count += b.rows;
+                    for (int i = 0; i < b.classCounts.length; i++) {
+                        s.classCounts[i] += b.classCounts[i];
+                    }
+                    s.totalMileage += b.mileageSum;
+                    s.efficiencySum += b.efficiencySum;
+                    s.maintenanceCount += b.maintenanceCount;
+                    if (fastestBlock == null || b.speedMax > s.fastestSpeed) {
+                        s.fastestSpeed = b.speedMax;
+                        fastestBlock = b;
+                        fastestRow = b.speedMaxRow;
+                    }
+                    if (slowestBlock == null || b.speedMin < s.slowestSpeed) {
+                        s.slowestSpeed = b.speedMin;
+                        slowestBlock = b;
+                        slowestRow = b.speedMinRow;
+                    }
+                    continue;
+                }
+                if (filter(b, match) == 0) {
+                    continue;
+                }
+                need(b, ColumnBlock.CLASS);
+                need(b, ColumnBlock.MAX_SPEED);
+                need(b, ColumnBlock.MILEAGE);
+                need(b, ColumnBlock.EFFICIENCY);
+                need(b, ColumnBlock.MAINTENANCE);
+                double[] speeds = doubleColumns[ColumnBlock.MAX_SPEED];
+                double[] mileages = doubleColumns[ColumnBlock.MILEAGE];
+                double[] efficiencies = doubleColumns[ColumnBlock.EFFICIENCY];
+                for (int r = 0; r < b.rows; r++) {
+                    if (!match[r]) {
+                        continue;
+                    }
+                    s.count++;
+                    s.classCounts[classColumn[r]]++;
+                    s.totalMileage += mileages[r];
+                    s.efficiencySum += efficiencies[r];
+                    if (maintenanceAt(r)) {
+                        s.maintenanceCount++;
+                    }
+                    if (fastestBlock == null || speeds[r] > s.fastestSpeed) {
+                        s.fastestSpeed = speeds[r];
+                        fastestBlock = b;
+                        fastestRow = r;
+                    }
+                    if (slowestBlock == null || speeds[r] < s.slowestSpeed) {
+                        s.slowestSpeed = speeds[r];
+                        slowestBlock = b;
+                        slowestRow = r;
+                    }
+                }
+            }
+            if (fastestBlock != null) {   // only the two winners' IDs are ever read
+                s.fastestId = readId(fastestBlock, fastestRow);
+                s.slowestId = readId(slowestBlock, slowestRow);
+            }
+            return s;
+        }
+
+        private void resetCounters() {
+            blocksSkipped = blocksFromStats = blocksScanned = 0;
+            loaded = null;
+        }
+
+        private Cover classify(ColumnBlock b) {
+            Cover cover = cover(b);
+            if (cover == Cover.NONE) {
+                blocksSkipped++;
+            } else if (cover == Cover.ALL) {
+                blocksFromStats++;
+            } else {
+                blocksScanned++;
+            }
+            return cover;
+        }
+
+        // what the block's statistics say about it
+        private Cover cover(ColumnBlock b) {
+            if (nothing || b.rows == 0 || (b.classMask & classMask) == 0
+                    || (model >= 0 && (model < b.modelMin || model > b.modelMax))
+                    || b.speedMax < speedMin || b.speedMin > speedMax
+                    || b.mileageMax < mileageMin || b.mileageMin > mileageMax
+                    || b.fuelMax < fuelMin || b.fuelMin > fuelMax
+                    || b.efficiencyMax < efficiencyMin || b.efficiencyMin > efficiencyMax
+                    || (maintenance == 1 && b.maintenanceCount == 0)
+                    || (maintenance == 0 && b.maintenanceCount == b.rows)) {
+                return Cover.NONE;
+            }
+            if ((b.classMask & ~classMask) == 0
+                    && (model < 0 || (b.modelMin == model && b.modelMax == model))
+                    && b.speedMin >= speedMin && b.speedMax <= speedMax
+                    && b.mileageMin >= mileageMin && b.mileageMax <= mileageMax
+                    && b.fuelMin >= fuelMin && b.fuelMax <= fuelMax
+                    && b.efficiencyMin >= efficiencyMin && b.efficiencyMax <= efficiencyMax
+                    && (maintenance < 0 || b.maintenanceCount == (maintenance == 1 ? b.rows : 0))) {
+                return Cover.ALL;
+            }
+            return Cover.SOME;
+        }
+
+        private void need(ColumnBlock b, int column) throws IOException {
+            if (loaded != b) {
+                loaded = b;
+                Arrays.fill(loadedColumns, false);
+            }
+            if (!loadedColumns[column]) {
+                load(b, column);
+                loadedColumns[column] = true;
+            }
+        }
+
+        // marks the block's matching rows, reading only the filtered columns; returns how many match
+        private int filter(ColumnBlock b, boolean[] match) throws IOException {
+            Arrays.fill(match, 0, b.rows, true);
+            if ((b.classMask & ~classMask) != 0) {
+                need(b, ColumnBlock.CLASS);
+                for (int r = 0; r < b.rows; r++) {
+                    match[r] &= (classMask & (1 << classColumn[r])) != 0;
+                }
+            }
+            if (model >= 0 && (b.modelMin != model || b.modelMax != model)) {
+                need(b, ColumnBlock.MODEL);
+                for (int r = 0; r < b.rows; r++) {
+                    match[r] &= modelColumn[r] == model;
+                }
+            }
+            range(b, ColumnBlock.MAX_SPEED, b.speedMin, b.speedMax, speedMin, speedMax, match);
+            range(b, ColumnBlock.MILEAGE, b.mileageMin, b.mileageMax, mileageMin, mileageMax, match);
+            range(b, ColumnBlock.FUEL_LEVEL, b.fuelMin, b.fuelMax, fuelMin, fuelMax, match);
+            range(b, ColumnBlock.EFFICIENCY, b.efficiencyMin, b.efficiencyMax, efficiencyMin, efficiencyMax, match);
+            if (maintenance >= 0 && b.maintenanceCount != (maintenance == 1 ? b.rows : 0)) {
+                need(b, ColumnBlock.MAINTENANCE);
+                for (int r = 0; r < b.rows; r++) {
+                    match[r] &= maintenanceAt(r) == (maintenance == 1);
+                }
+            }
+            int count = 0;
+            for (int r = 0; r < b.rows; r++) {
+                if (match[r]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        // a column is only read when the block's range is not already inside the filter's
+        private void range(ColumnBlock b, int column, double blockMin, double blockMax, double min, double max,
+                boolean[] match) throws IOException {
+            if (blockMin >= min && blockMax <= max) {
+                return;
+            }
+            need(b, column);
+            double[] values = doubleColumns[column];
+            for (int r = 0; r < b.rows; r++) {
+                match[r] &= values[r] >= min && values[r] <= max;
+            }
+        }
+    }
+
+    private enum Cover { NONE, SOME, ALL }
+
+    // fleet report figures computed from the columns
+    public static final class Summary {
+        private final String[] classNames;
+        private final Class<?>[] classes;
+        private long count;
+        private final long[] classCounts;
+        private double totalMileage;
+        private double efficiencySum;
+        private long maintenanceCount;
+        private String fastestId, slowestId;
+        private double fastestSpeed, slowestSpeed;
+
+        private Summary(String[] classNames, Class<?>[] classes) {
+            this.classNames = classNames;
+            this.classes = classes;
+            this.classCounts = new long[classNames.length];
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        // rows of the class, its subclasses or implementing the interface
+        public long countOf(Class<?> type) {
+            long n = 0;
+            for (int i = 0; i < classes.length; i++) {
+                if (classes[i] != null && type.isAssignableFrom(classes[i])) {
+                    n += classCounts[i];
+                }
+            }
+            return n;
+        }
+
+        // rows per stored class name
+        public Map<String, Long> getClassCounts() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (int i = 0; i < classNames.length; i++) {
+                counts.put(classNames[i], classCounts[i]);
+            }
+            return counts;
+        }
+
+        public double getTotalMileage() {
+            return totalMileage;
+        }
+
+        public double getAverageEfficiency() {
+            return count > 0 ? efficiencySum / count : 0.0;
+        }
+
+        public long getMaintenanceCount() {
+            return maintenanceCount;
+        }
+
+        // null when nothing matched
+        public String getFastestId() {
+            return fastestId;
+        }
+
+        public double getFastestSpeed() {
+            return fastestSpeed;
+        }
+
+        public String getSlowestId() {
+            return slowestId;
+        }
+
+        public double getSlowestSpeed() {
+            return slowestSpeed;
+        }
+
+        // the same layout as FleetManager.generateReport
+        public String toReport() {
+            StringBuilder report = new StringBuilder();
+            report.append("Fleet Report\n");
+            report.append("Total Vehicles: ").append(count).append("\n");
+            report.append("No of Cars: ").append(countOf(Car.class)).append("\n");
+            report.append("No of Buses: ").append(countOf(Bus.class)).append("\n");
+            report.append("No of Trucks: ").append(countOf(Truck.class)).append("\n");
+            report.append("No of Airplanes: ").append(countOf(Airplane.class)).append("\n");
+            report.append("no of Ships: ").append(countOf(CargoShip.class)).append("\n");
+            report.append("Average Fuel Efficiency: ").append(String.format("%.2f", getAverageEfficiency())).append("\n");
+            report.append("Total Mileage: ").append(String.format("%.2f", totalMileage)).append("\n");
+            report.append("No of Vehicles Needing Maintenance: ").append(maintenanceCount).append("\n");
+            if (fastestId != null) {
+                report.append("Maximum Speed: ").append(fastestId).append(": ").append(fastestSpeed).append("\n");
+                report.append("Minimum Speed: ").append(slowestId).append(": ").append(slowestSpeed).append("\n");
+            }
+            return report.toString();
+        }
+    }
+}
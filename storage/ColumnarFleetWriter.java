@@ -0,0 +1,197 @@
+package storage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import vehicles.*;
+import interfaces.*;
+
+// writes a fleet as a columnar analytics file, read back with ColumnarFleetReader. Rows are cut
+// into blocks; each block stores every column as its own chunk, so a query reads only the columns
+// it filters or aggregates on, and the footer keeps per-block statistics so it can skip most blocks.
+// This is an export for analysis: it keeps the columns queries need, not everything a Vehicle holds.
+//
+// layout (all big-endian):
+//   header: int magic "FLTC", short version, int rows per block
+//   blocks: the ColumnBlock column chunks of each block, in column order
+//   footer: byte class count, then each class name (UTF); int model count, then each model (UTF),
+//           sorted; int block count, then each block's ColumnBlock entry
+//   tail:   long footer offset, int magic
+public class ColumnarFleetWriter {
+    public static final int MAGIC = 0x464C5443;   // "FLTC"
+    public static final short VERSION = 1;
+    public static final int DEFAULT_BLOCK_ROWS = 4096;
+    static final int HEADER_BYTES = 4 + 2 + 4;
+    static final int TAIL_BYTES = 8 + 4;
+    static final int MAX_CLASSES = 32;   // a block's classes are kept as an int bit mask
+
+    private ColumnarFleetWriter() {
+    }
+
+    public static void write(String fileName, Collection<? extends Vehicle> fleet) throws IOException {
+        write(fileName, fleet, DEFAULT_BLOCK_ROWS);
+    }
+
+    public static void write(String fileName, Collection<? extends Vehicle> fleet, int blockRows) throws IOException {
+        if (blockRows <= 0) {
+            throw new IllegalArgumentException("Rows per block must be positive");
+        }
+        // dictionaries first: a sorted model dictionary turns each block's models into a name range
+        List<String> classes = new ArrayList<>();
+        Map<Class<?>, Integer> classRefs = new HashMap<>();
+        TreeSet<String> modelNames = new TreeSet<>();
+        for (Vehicle v : fleet) {
+            if (!classRefs.containsKey(v.getClass())) {
+                if (classes.size() == MAX_CLASSES) {
+                    throw new IOException("Too many vehicle classes for a columnar file (max " + MAX_CLASSES + ")");
+                }
+                classRefs.put(v.getClass(), classes.size());
+                classes.add(v.getClass().getName());
+            }
+            modelNames.add(v.getModel());
+        }
+        Map<String, Integer> modelRefs = new HashMap<>(modelNames.size() * 2);
+        for (String model : modelNames) {
+            modelRefs.put(model, modelRefs.size());
+        }
+
+        Path tmp = Paths.get(fileName + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putShort(VERSION).putInt(blockRows).flip();
+            writeFully(out, header);
+
+            List<ColumnBlock> blocks = new ArrayList<>();
+            BlockBuilder block = new BlockBuilder(blockRows, classes.size());
+            for (Vehicle v : fleet) {
+                block.add(v, classRefs.get(v.getClass()), modelRefs.get(v.getModel()));
+                if (block.rows == blockRows) {
+                    blocks.add(block.flush(out));
+                }
+            }
+            if (block.rows > 0) {
+                blocks.add(block.flush(out));
+            }
+
+            long footerAt = out.position();
+            ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+            DataOutputStream footer = new DataOutputStream(footerBytes);
+            footer.writeByte(classes.size());
+            for (String name : classes) {
+                footer.writeUTF(name);
+            }
+            footer.writeInt(modelNames.size());
+            for (String model : modelNames) {
+                footer.writeUTF(model);
+            }
+            footer.writeInt(blocks.size());
+            for (ColumnBlock b : blocks) {
+                b.write(footer);
+            }
+            footer.writeLong(footerAt);
+            footer.writeInt(MAGIC);
+            writeFully(out, ByteBuffer.wrap(footerBytes.toByteArray()));
+        }
+        Files.move(tmp, Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    // the rows of the block being filled, column by column
+    private static final class BlockBuilder {
+        private final int classCount;
+        private final byte[] classRefs;
+        private final int[] modelRefs;
+        private final double[] speeds, mileages, fuels, efficiencies;
+        private final byte[] maintenance;
+        private final String[] ids;
+        private ColumnBlock stats;
+        private int rows = 0;
+        private ByteBuffer chunk;
+
+        BlockBuilder(int blockRows, int classCount) {
+            this.classCount = classCount;
+            classRefs = new byte[blockRows];
+            modelRefs = new int[blockRows];
+            speeds = new double[blockRows];
+            mileages = new double[blockRows];
+            fuels = new double[blockRows];
+            efficiencies = new double[blockRows];
+            maintenance = new byte[(blockRows + 7) / 8];
+            ids = new String[blockRows];
+            chunk = ByteBuffer.allocate(blockRows * 8);
+            stats = new ColumnBlock(classCount);
+        }
+
+        void add(Vehicle v, int classRef, int modelRef) {
+            int r = rows;
+            double fuel = v instanceof FuelConsumable ? ((FuelConsumable) v).getFuelLevel() : 0;
+            classRefs[r] = (byte) classRef;
+            modelRefs[r] = modelRef;
+            speeds[r] = v.getMaxSpeed();
+            mileages[r] = v.getCurrentMileage();
+            fuels[r] = fuel;
+            efficiencies[r] = v.calculateFuelEfficiency();
+            boolean due = v instanceof Maintainable && ((Maintainable) v).needsMaintenance();
+            if (due) {
+                maintenance[r >> 3] |= (byte) (1 << (r & 7));
+            }
+            ids[r] = v.getId();
+            stats.add(r, classRef, modelRef, speeds[r], mileages[r], fuel, efficiencies[r], due);
+            rows++;
+        }
+
+        // writes the block's chunks and returns its footer entry; the builder is then empty again
+        ColumnBlock flush(FileChannel out) throws IOException {
+            ColumnBlock b = stats;
+            chunk.clear();
+            chunk.put(classRefs, 0, rows);
+            writeChunk(out, b, ColumnBlock.CLASS);
+            chunk.asIntBuffer().put(modelRefs, 0, rows);
+            chunk.position(rows * 4);
+            writeChunk(out, b, ColumnBlock.MODEL);
+            writeDoubles(out, b, ColumnBlock.MAX_SPEED, speeds);
+            writeDoubles(out, b, ColumnBlock.MILEAGE, mileages);
+            writeDoubles(out, b, ColumnBlock.FUEL_LEVEL, fuels);
+            writeDoubles(out, b, ColumnBlock.EFFICIENCY, efficiencies);
+            chunk.put(maintenance, 0, (rows + 7) / 8);
+            writeChunk(out, b, ColumnBlock.MAINTENANCE);
+
+            ByteArrayOutputStream idBytes = new ByteArrayOutputStream(rows * 12);
+            DataOutputStream idOut = new DataOutputStream(idBytes);
+            for (int r = 0; r < rows; r++) {
+                idOut.writeUTF(ids[r]);
+            }
+            b.offsets[ColumnBlock.ID] = out.position();
+            b.lengths[ColumnBlock.ID] = idBytes.size();
+            writeFully(out, ByteBuffer.wrap(idBytes.toByteArray()));
+
+            Arrays.fill(maintenance, (byte) 0);
+            Arrays.fill(ids, null);
+            stats = new ColumnBlock(classCount);
+            rows = 0;
+            return b;
+        }
+
+        private void writeDoubles(FileChannel out, ColumnBlock b, int column, double[] values) throws IOException {
+            chunk.asDoubleBuffer().put(values, 0, rows);
+            chunk.position(rows * 8);
+            writeChunk(out, b, column);
+        }
+
+        // writes what was put into chunk as the column's chunk
+        private void writeChunk(FileChannel out, ColumnBlock b, int column) throws IOException {
+            chunk.flip();
+            b.offsets[column] = out.position();
+            b.lengths[column] = chunk.remaining();
+            writeFully(out, chunk);
+            chunk.clear();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package storage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import vehicles.*;
+import concreteclasses.*;
+import exceptions.*;
+
+// streaming reader for fleet CSV files. Reads the schema dialect written by SchemaCsvWriter
+// (see SchemaTable) as well as the older Key:Value dialect, one line at a time.
+// lines are tokenized in place inside a reused char buffer: no split(), no regex,
+// field names are matched through a small hash table and common numbers are parsed without substrings
+public class CsvFleetReader implements Closeable {
+
+    private static final String[] FIELDS = {
+        "Class", "ID", "Model", "MaxSpeed", "Mileage", "FuelLevel", "MaxAltitude", "PassengerCapacity",
+        "CurrentPassengers", "NumWheels", "CargoCapacity", "CurrentCargo", "MaintenanceNeeded", "HasSail"
+    };
+    private static final int CLASS = 0, ID = 1, MODEL = 2, MAX_SPEED = 3, MILEAGE = 4, FUEL_LEVEL = 5,
+            MAX_ALTITUDE = 6, PASSENGER_CAPACITY = 7, CURRENT_PASSENGERS = 8, NUM_WHEELS = 9,
+            CARGO_CAPACITY = 10, CURRENT_CARGO = 11, MAINTENANCE_NEEDED = 12, HAS_SAIL = 13;
+
+    // open-addressed table from field-name hash to FIELDS index + 1 (0 marks an empty slot)
+    private static final int TABLE_MASK = 63;
+    private static final int[] FIELD_TABLE = new int[TABLE_MASK + 1];
+
+    // exact powers of ten for the fast double path
+    private static final double[] POW10 = new double[23];
+
+    static {
+        for (int f = 0; f < FIELDS.length; f++) {
+            int slot = FIELDS[f].hashCode() & TABLE_MASK;
+            while (FIELD_TABLE[slot] != 0) {
+                slot = (slot + 1) & TABLE_MASK;
+            }
+            FIELD_TABLE[slot] = f + 1;
+        }
+        POW10[0] = 1.0;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10.0;
+        }
+    }
+
+    private final LineReader lines;
+    private final SchemaTable schema;
+
+    public CsvFleetReader(Reader in) {
+        this(in, CodecRegistry.standard());
+    }
+
+    // schema rows are decoded with the registry's codecs
+    public CsvFleetReader(Reader in, CodecRegistry registry) {
+        this.lines = new LineReader(in);
+        this.schema = new SchemaTable(registry);
+    }
+
+    public static CsvFleetReader open(String fileName) throws IOException {
+        return new CsvFleetReader(new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8));
+    }
+
+    // returns the next vehicle in the file, or null at the end; blank lines, headers and unknown classes are skipped
+    public Vehicle next() throws IOException, InvalidOperationException {
+        while (lines.next()) {
+            Vehicle v = schema.parse(lines.buffer(), lines.start(), lines.end(), lines.lineNumber());
+            if (v != null) {
+                return v;
+            }
+        }
+        return null;
+    }
+
+    public int getLineNumber() {
+        return lines.lineNumber();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+
+    // builds one vehicle from the Key:Value fields in line[from, to); returns null for blank lines
+    // and unknown classes. SchemaTable hands Key:Value lines here, including slices of the parallel
+    // importer's own buffers
+    public static Vehicle parseLine(char[] line, int from, int to, int lineNumber) throws InvalidOperationException {
+        from = skipSpace(line, from, to);
+        if (from == to) {
+            return null;
+        }
+        String id = "", model = "";
+        int classStart = 0, classEnd = 0;
+        double maxSpeed = 0, mileage = 0, fuelLevel = 0, maxAltitude = 0, cargoCapacity = 0, currentCargo = 0;
+        int passengerCapacity = 0, currentPassengers = 0, numWheels = 0;
+        boolean hasPassengerCapacity = false, hasCargoCapacity = false;   // older files leave them out for some classes
+        boolean maintenanceNeeded = false, hasSail = false;
+
+        try {
+            int fieldStart = from;
+            while (fieldStart < to) {
+                int fieldEnd = indexOf(line, ',', fieldStart, to);
+                int colon = indexOf(line, ':', fieldStart, fieldEnd);
+                if (colon == fieldEnd) {
+                    throw new InvalidOperationException("Malformed field on line " + lineNumber);
+                }
+                int keyStart = skipSpace(line, fieldStart, colon);
+                int keyEnd = trimEnd(line, keyStart, colon);
+                int valStart = skipSpace(line, colon + 1, fieldEnd);
+                int valEnd = trimEnd(line, valStart, fieldEnd);
+
+                switch (fieldOf(line, keyStart, keyEnd)) {
+                    case CLASS: classStart = valStart; classEnd = valEnd; break;
+                    case ID: id = new String(line, valStart, valEnd - valStart); break;
+                    case MODEL: model = new String(line, valStart, valEnd - valStart); break;
+                    case MAX_SPEED: maxSpeed = parseDouble(line, valStart, valEnd); break;
+                    case MILEAGE: mileage = parseDouble(line, valStart, valEnd); break;
+                    case FUEL_LEVEL: fuelLevel = parseDouble(line, valStart, valEnd); break;
+                    case MAX_ALTITUDE: maxAltitude = parseDouble(line, valStart, valEnd); break;
+                    case PASSENGER_CAPACITY: passengerCapacity = parseInt(line, valStart, valEnd); hasPassengerCapacity = true; break;
+                    case CURRENT_PASSENGERS: currentPassengers = parseInt(line, valStart, valEnd); break;
+                    case NUM_WHEELS: numWheels = parseInt(line, valStart, valEnd); break;
+                    case CARGO_CAPACITY: cargoCapacity = parseDouble(line, valStart, valEnd); hasCargoCapacity = true; break;
+                    case CURRENT_CARGO: currentCargo = parseDouble(line, valStart, valEnd); break;
+                    case MAINTENANCE_NEEDED: maintenanceNeeded = parseBoolean(line, valStart, valEnd); break;
+                    case HAS_SAIL: hasSail = parseBoolean(line, valStart, valEnd); break;
+                    default: break;   // unknown fields are ignored
+                }
+                fieldStart = fieldEnd + 1;
+            }
+        } catch (NumberFormatException e) {
+            throw new InvalidOperationException("Bad number on line " + lineNumber + ": " + e.getMessage());
+        }
+
+        if (matches("Car", line, classStart, classEnd)) {
+            return new Car(id, model, maxSpeed, mileage, numWheels, fuelLevel, passengerCapacity, currentPassengers, maintenanceNeeded);
+        } else if (matches("Bus", line, classStart, classEnd)) {
+            return new Bus(id, model, maxSpeed, mileage, numWheels, fuelLevel, passengerCapacity, currentPassengers,
+                    cargoCapacity, currentCargo, maintenanceNeeded);
+        } else if (matches("Truck", line, classStart, classEnd)) {
+            return new Truck(id, model, maxSpeed, mileage, numWheels, fuelLevel, cargoCapacity, currentCargo, maintenanceNeeded);
+        } else if (matches("Airplane", line, classStart, classEnd)) {
+            return new Airplane(id, model, maxSpeed, mileage, maxAltitude, fuelLevel,
+                    hasPassengerCapacity ? passengerCapacity : Airplane.DEFAULT_PASSENGER_CAPACITY, currentPassengers,
+                    hasCargoCapacity ? cargoCapacity : Airplane.DEFAULT_CARGO_CAPACITY, currentCargo, maintenanceNeeded);
+        } else if (matches("CargoShip", line, classStart, classEnd)) {
+            return new CargoShip(id, model, maxSpeed, mileage, hasSail, fuelLevel,
+                    hasCargoCapacity ? cargoCapacity : CargoShip.DEFAULT_CARGO_CAPACITY, currentCargo, maintenanceNeeded);
+        }
+        return null;
+    }
+
+    private static int fieldOf(char[] s, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + s[i];   // same hash as String.hashCode
+        }
+        int slot = h & TABLE_MASK;
+        while (FIELD_TABLE[slot] != 0) {
+            int f = FIELD_TABLE[slot] - 1;
+            if (matches(FIELDS[f], s, from, to)) {
+                return f;
+            }
+            slot = (slot + 1) & TABLE_MASK;
+        }
+        return -1;
+    }
+
+    private static boolean matches(String name, char[] s, int from, int to) {
+        if (to - from != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (s[from + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(char[] s, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s[i] == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int skipSpace(char[] s, int from, int to) {
+        while (from < to && s[from] <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(char[] s, int from, int to) {
+        while (to > from && s[to - 1] <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    // same result as Boolean.parseBoolean: "true" in any case, anything else is false
+    static boolean parseBoolean(char[] s, int from, int to) {
+        if (to - from != 4) {
+            return false;
+        }
+        return (s[from] | 0x20) == 't' && (s[from + 1] | 0x20) == 'r'
+                && (s[from + 2] | 0x20) == 'u' && (s[from + 3] | 0x20) == 'e';
+    }
+
+    static int parseInt(char[] s, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (s[i] == '-' || s[i] == '+')) {
+            negative = s[i] == '-';
+            i++;
+        }
+        if (i == to || to - i > 9) {
+            return Integer.parseInt(new String(s, from, to - from));   // empty or possibly overflowing: let the JDK decide
+        }
+        int value = 0;
+        for (; i < to; i++) {
+            int d = s[i] - '0';
+            if (d < 0 || d > 9) {
+                return Integer.parseInt(new String(s, from, to - from));   // throws NumberFormatException
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    // plain decimals such as "120.0" or "4.5E3" with up to 15 significant digits are converted exactly
+    // with one multiply or divide by a power of ten; anything else goes to Double.parseDouble
+    static double parseDouble(char[] s, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (s[i] == '-' || s[i] == '+')) {
+            negative = s[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean sawDigit = false;
+        for (; i < to && s[i] >= '0' && s[i] <= '9'; i++) {
+            sawDigit = true;
+            if (mantissa != 0 || s[i] != '0') {
+                mantissa = mantissa * 10 + (s[i] - '0');
+                digits++;
+            }
+        }
+        if (i < to && s[i] == '.') {
+            for (i++; i < to && s[i] >= '0' && s[i] <= '9'; i++) {
+                sawDigit = true;
+                if (mantissa != 0 || s[i] != '0') {
+                    mantissa = mantissa * 10 + (s[i] - '0');
+                    digits++;
+                }
+                exponent--;
+            }
+        }
+        if (sawDigit && i < to && (s[i] == 'e' || s[i] == 'E')) {
+            int j = i + 1;
+            boolean expNegative = false;
+            if (j < to && (s[j] == '-' || s[j] == '+')) {
+                expNegative = s[j] == '-';
+                j++;
+            }
+            int e = 0;
+            int expDigits = 0;
+            for (; j < to && s[j] >= '0' && s[j] <= '9' && expDigits < 5; j++, expDigits++) {
+                e = e * 10 + (s[j] - '0');
+            }
+            if (expDigits > 0) {
+                exponent += expNegative ? -e : e;
+                i = j;
+            }
+        }
+        if (!sawDigit || i != to || digits > 15 || exponent < -22 || exponent > 22) {
+            return Double.parseDouble(new String(s, from, to - from));
+        }
+        double value = (double) mantissa;
+        value = exponent >= 0 ? value * POW10[exponent] : value / POW10[-exponent];
+        return negative ? -value : value;
+    }
+}
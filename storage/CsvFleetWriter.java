@@ -0,0 +1,79 @@
+package storage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import vehicles.*;
+import concreteclasses.*;
+
+// writes vehicles in the older Key:Value fleet CSV dialect, which repeats every field name on
+// every row; SchemaCsvWriter is what the fleet saves with now. CsvFleetReader reads both
+public class CsvFleetWriter {
+
+    private CsvFleetWriter() {
+    }
+
+    // writes one row per vehicle; append keeps whatever the file already holds
+    public static void write(String fileName, Collection<? extends Vehicle> fleet, boolean append) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(fileName, append), StandardCharsets.UTF_8), 1 << 16))) {
+            StringBuilder line = new StringBuilder(256);
+            for (Vehicle v : fleet) {
+                line.setLength(0);
+                appendRow(line, v);
+                writer.println(line);
+            }
+            if (writer.checkError()) {
+                throw new IOException("Error writing " + fileName);
+            }
+        }
+    }
+
+    public static void appendRow(StringBuilder line, Vehicle v) {
+        line.append("Class:").append(v.getClass().getSimpleName()).append(",");
+        line.append("ID:").append(v.getId()).append(",");
+        line.append("Model:").append(v.getModel()).append(",");
+        line.append("MaxSpeed:").append(v.getMaxSpeed()).append(",");
+        line.append("Mileage:").append(v.getCurrentMileage()).append(",");
+
+        if (v instanceof Car) {
+            Car c = (Car) v;
+            line.append("FuelLevel:").append(c.getFuelLevel()).append(",");
+            line.append("PassengerCapacity:").append(c.getPassengerCapacity()).append(",");
+            line.append("CurrentPassengers:").append(c.getCurrentPassengers()).append(",");
+            line.append("MaintenanceNeeded:").append(c.needsMaintenance()).append(",");
+            line.append("NumWheels:").append(c.getNumWheels());
+        } else if (v instanceof Truck) {
+            Truck t = (Truck) v;
+            line.append("NumWheels:").append(t.getNumWheels()).append(",");
+            line.append("FuelLevel:").append(t.getFuelLevel()).append(",");
+            line.append("CargoCapacity:").append(t.getCargoCapacity()).append(",");
+            line.append("CurrentCargo:").append(t.getCurrentCargo()).append(",");
+            line.append("MaintenanceNeeded:").append(t.needsMaintenance());
+        } else if (v instanceof Bus) {
+            Bus b = (Bus) v;
+            line.append("NumWheels:").append(b.getNumWheels()).append(",");
+            line.append("FuelLevel:").append(b.getFuelLevel()).append(",");
+            line.append("PassengerCapacity:").append(b.getPassengerCapacity()).append(",");
+            line.append("CurrentPassengers:").append(b.getCurrentPassengers()).append(",");
+            line.append("CargoCapacity:").append(b.getCargoCapacity()).append(",");
+            line.append("CurrentCargo:").append(b.getCurrentCargo()).append(",");
+            line.append("MaintenanceNeeded:").append(b.needsMaintenance());
+        } else if (v instanceof CargoShip) {
+            CargoShip s = (CargoShip) v;
+            line.append("HasSail:").append(s.getSail()).append(",");
+            line.append("FuelLevel:").append(s.getFuelLevel()).append(",");
+            line.append("CargoCapacity:").append(s.getCargoCapacity()).append(",");
+            line.append("CurrentCargo:").append(s.getCurrentCargo()).append(",");
+            line.append("MaintenanceNeeded:").append(s.needsMaintenance());
+        } else if (v instanceof Airplane) {
+            Airplane p = (Airplane) v;
+            line.append("MaxAltitude:").append(p.getMaxAltitude()).append(",");
+            line.append("FuelLevel:").append(p.getFuelLevel()).append(",");
+            line.append("PassengerCapacity:").append(p.getPassengerCapacity()).append(",");
+            line.append("CurrentPassengers:").append(p.getCurrentPassengers()).append(",");
+            line.append("CargoCapacity:").append(p.getCargoCapacity()).append(",");
+            line.append("CurrentCargo:").append(p.getCurrentCargo()).append(",");
+            line.append("MaintenanceNeeded:").append(p.needsMaintenance());
+        }
+    }
+}
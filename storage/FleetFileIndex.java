@@ -0,0 +1,528 @@
+package storage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import vehicles.*;
+import exceptions.*;
+
+// index over a fleet CSV that leaves the vehicles in the file. One pass records, per vehicle,
+// where its line starts, a hash of its ID, its model and its class; a Vehicle is only built when
+// read(record) is asked for one. That costs about 40 bytes of heap per vehicle instead of a
+// full object graph. Reads both CSV dialects; schema headers must come before the first row.
+// every row is parsed once while indexing, so a row a full load would reject fails open() the
+// same way instead of surfacing later from a query
+// records are numbered in file order. A duplicate ID keeps its first line, as addAll would
+final class FleetFileIndex implements Closeable {
+    private static final int SCAN_BUFFER = 1 << 20;
+    private static final String LEGACY_PREFIX = "Class:";
+
+    private final String fileName;
+    private final FileChannel channel;
+    private final SchemaTable schema = new SchemaTable(CodecRegistry.standard());
+    private final Map<String, int[]> keyColumns = new HashMap<>();   // class -> columns of ID and Model
+    private final Set<String> headers = new HashSet<>();
+
+    // per record
+    private long[] offsets = new long[1024];
+    private int[] lengths = new int[1024];
+    private int[] hashes = new int[1024];
+    private int[] models = new int[1024];
+    private byte[] classes = new byte[1024];
+    private int count = 0;
+    private final BitSet gone = new BitSet();   // records taken out of the index: removed, or loaded for good
+    private int duplicates = 0;
+    private final int[] scanCells = new int[6];   // class, ID and model of the line being indexed, as start/end pairs
+
+    // open-addressed ID table, holding record + 1 (0 marks an empty slot)
+    private int[] table = new int[2048];
+
+    private final List<String> modelNames = new ArrayList<>();
+    private final Map<String, Integer> modelCodes = new HashMap<>();
+    private final List<VehicleCodec<?>> classCodecs = new ArrayList<>();
+    private int[] byModelStart, byModel;   // records grouped by model
+    private int[] byClassStart, byClass;   // records grouped by class
+    private int[] modelLive, classLive;   // records per model and per class not marked gone
+
+    private FleetFileIndex(String fileName, FileChannel channel) {
+        this.fileName = fileName;
+        this.channel = channel;
+    }
+
+    static FleetFileIndex open(String fileName) throws IOException, InvalidOperationException {
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        FleetFileIndex index = new FleetFileIndex(fileName, channel);
+        try {
+            index.scan();
+        } catch (IOException | InvalidOperationException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return index;
+    }
+
+    // reads the file once, a buffer at a time; a line cut by the end of the buffer is moved to its front
+    private void scan() throws IOException, InvalidOperationException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+        byte[] bytes = buffer.array();
+        long bufferStart = 0;   // file offset of bytes[0]
+        int lineNumber = 0;
+        boolean eof = false;
+        while (!eof) {
+            eof = channel.read(buffer) < 0;
+            int limit = buffer.position();
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                if (bytes[i] == '\n') {
+                    indexLine(bytes, lineStart, i, bufferStart + lineStart, ++lineNumber);
+                    lineStart = i + 1;
+                }
+            }
+            if (eof && lineStart < limit) {
+                indexLine(bytes, lineStart, limit, bufferStart + lineStart, ++lineNumber);   // no final newline
+                lineStart = limit;
+            }
+            if (lineStart == 0 && limit == bytes.length) {
+                ByteBuffer bigger = ByteBuffer.allocate(bytes.length * 2);   // one line longer than the buffer
+                bigger.put(bytes, 0, limit);
+                buffer = bigger;
+                bytes = buffer.array();
+                continue;
+            }
+            System.arraycopy(bytes, lineStart, bytes, 0, limit - lineStart);
+            buffer.position(limit - lineStart);
+            bufferStart += lineStart;
+        }
+        groupRecords();
+    }
+
+    private void indexLine(byte[] s, int from, int to, long offset, int lineNumber) throws InvalidOperationException {
+        if (to > from && s[to - 1] == '\r') {
+            to--;
+        }
+        int start = skipSpace(s, from, to);
+        if (start == to) {
+            return;
+        }
+        if (s[start] == '#') {
+            addHeader(new String(s, start, to - start, StandardCharsets.UTF_8).trim(), lineNumber);
+            return;
+        }
+        int[] cells = scanCells;
+        if (!locate(s, start, to, cells, lineNumber)) {
+            return;
+        }
+        String className = new String(s, cells[0], cells[1] - cells[0], StandardCharsets.UTF_8);
+        VehicleCodec<?> codec = CodecRegistry.standard().forName(className);
+        if (codec == null) {
+            return;   // unknown classes are skipped, as a full load skips them
+        }
+        int hash = hash(s, cells[2], cells[3]);
+        if (find(s, cells[2], cells[3], hash) >= 0) {
+            duplicates++;
+            return;
+        }
+        char[] row = new String(s, start, to - start, StandardCharsets.UTF_8).toCharArray();
+        try {
+            schema.parse(row, 0, row.length, lineNumber);   // the vehicle itself is dropped
+        } catch (InvalidOperationException e) {
+            throw new InvalidOperationException("Bad record on line " + lineNumber + " of " + fileName + ": " + e.getMessage());
+        }
+        String model = new String(s, cells[4], cells[5] - cells[4], StandardCharsets.UTF_8);
+        add(offset, to - from, hash, modelCode(model), classCode(codec));
+    }
+
+    private void addHeader(String header, int lineNumber) throws InvalidOperationException {
+        if (count > 0 && !headers.contains(header)) {
+            throw new InvalidOperationException("Header on line " + lineNumber
+                    + " must come before the first row to open " + fileName + " lazily");
+        }
+        headers.add(header);
+        char[] chars = header.toCharArray();
+        schema.parse(chars, 0, chars.length, lineNumber);
+        String[] cells = header.substring(1).split(",");
+        int[] columns = {-1, -1};
+        for (int c = 1; c < cells.length; c++) {
+            String field = cells[c].trim();
+            if (field.equals("ID")) {
+                columns[0] = c;
+            } else if (field.equals("Model")) {
+                columns[1] = c;
+            }
+        }
+        keyColumns.put(cells[0].trim(), columns);
+    }
+
+    // finds the class, ID and model cells of a row in either dialect; false if it has none
+    private boolean locate(byte[] s, int from, int to, int[] cells, int lineNumber) throws InvalidOperationException {
+        Arrays.fill(cells, from);
+        if (startsWith(s, from, to, LEGACY_PREFIX)) {
+            int fieldStart = from;
+            while (fieldStart < to) {
+                int fieldEnd = indexOf(s, (byte) ',', fieldStart, to);
+                int colon = indexOf(s, (byte) ':', fieldStart, fieldEnd);
+                int keyStart = skipSpace(s, fieldStart, colon);
+                int keyEnd = trimEnd(s, keyStart, colon);
+                int valStart = colon < fieldEnd ? skipSpace(s, colon + 1, fieldEnd) : fieldEnd;
+                int valEnd = trimEnd(s, valStart, fieldEnd);
+                int slot = keyEnd - keyStart == 5 && startsWith(s, keyStart, keyEnd, "Class") ? 0
+                        : keyEnd - keyStart == 2 && startsWith(s, keyStart, keyEnd, "ID") ? 2
+                        : keyEnd - keyStart == 5 && startsWith(s, keyStart, keyEnd, "Model") ? 4 : -1;
+                if (slot >= 0) {
+                    cells[slot] = valStart;
+                    cells[slot + 1] = valEnd;
+                }
+                fieldStart = fieldEnd + 1;
+            }
+            return true;
+        }
+        int classEnd = trimEnd(s, from, indexOf(s, (byte) ',', from, to));
+        int[] columns = keyColumns.get(new String(s, from, classEnd - from, StandardCharsets.UTF_8));
+        if (columns == null) {
+            throw new InvalidOperationException("No header for class "
+                    + new String(s, from, classEnd - from, StandardCharsets.UTF_8) + " on line " + lineNumber);
+        }
+        cells[0] = from;
+        cells[1] = classEnd;
+        int column = 0;
+        int cellStart = from;
+        while (cellStart <= to) {
+            int cellEnd = indexOf(s, (byte) ',', cellStart, to);
+            for (int k = 0; k < 2; k++) {
+                if (columns[k] == column) {
+                    cells[2 + 2 * k] = skipSpace(s, cellStart, cellEnd);
+                    cells[3 + 2 * k] = trimEnd(s, cells[2 + 2 * k], cellEnd);
+                }
+            }
+            column++;
+            cellStart = cellEnd + 1;
+        }
+        return true;
+    }
+
+    private void add(long offset, int length, int hash, int model, int classCode) {
+        if (count == offsets.length) {
+            int n = count * 2;
+            offsets = Arrays.copyOf(offsets, n);
+            lengths = Arrays.copyOf(lengths, n);
+            hashes = Arrays.copyOf(hashes, n);
+            models = Arrays.copyOf(models, n);
+            classes = Arrays.copyOf(classes, n);
+        }
+        offsets[count] = offset;
+        lengths[count] = length;
+        hashes[count] = hash;
+        models[count] = model;
+        classes[count] = (byte) classCode;
+        count++;
+        if (count * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        insert(count - 1);
+    }
+
+    private void insert(int record) {
+        int mask = table.length - 1;
+        int slot = mix(hashes[record]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = record + 1;
+    }
+
+    private void rehash(int size) {
+        table = new int[size];
+        for (int r = 0; r < count; r++) {
+            insert(r);
+        }
+    }
+
+    // record holding the ID in s[from, to), or -1; a hash match is confirmed against the file
+    private int find(byte[] s, int from, int to, int hash) {
+        int mask = table.length - 1;
+        for (int slot = mix(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int r = table[slot] - 1;
+            if (hashes[r] == hash && Arrays.equals(idOf(r), Arrays.copyOfRange(s, from, to))) {
+                return r;
+            }
+        }
+        return -1;
+    }
+
+    private int modelCode(String model) {
+        Integer code = modelCodes.get(model);
+        if (code == null) {
+            code = modelNames.size();
+            modelNames.add(model);
+            modelCodes.put(model, code);
+        }
+        return code;
+    }
+
+    private int classCode(VehicleCodec<?> codec) {
+        int code = classCodecs.indexOf(codec);
+        if (code < 0) {
+            code = classCodecs.size();
+            classCodecs.add(codec);
+        }
+        return code;
+    }
+
+    // counting sort of the record numbers by model and by class
+    private void groupRecords() {
+        byModelStart = new int[modelNames.size() + 1];
+        byModel = group(models, byModelStart);
+        byClassStart = new int[classCodecs.size() + 1];
+        int[] classKeys = new int[count];
+        for (int r = 0; r < count; r++) {
+            classKeys[r] = classes[r];
+        }
+        byClass = group(classKeys, byClassStart);
+        modelLive = sizes(byModelStart);
+        classLive = sizes(byClassStart);
+    }
+
+    private static int[] sizes(int[] starts) {
+        int[] sizes = new int[starts.length - 1];
+        for (int k = 0; k < sizes.length; k++) {
+            sizes[k] = starts[k + 1] - starts[k];
+        }
+        return sizes;
+    }
+
+    private int[] group(int[] keys, int[] starts) {
+        for (int r = 0; r < count; r++) {
+            starts[keys[r] + 1]++;
+        }
+        for (int k = 1; k < starts.length; k++) {
+            starts[k] += starts[k - 1];
+        }
+        int[] next = Arrays.copyOf(starts, starts.length - 1);
+        int[] grouped = new int[count];
+        for (int r = 0; r < count; r++) {
+            grouped[next[keys[r]]++] = r;
+        }
+        return grouped;
+    }
+
+    // record for the ID, or -1 if the file does not have it or it has been marked gone
+    int find(String id) {
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        int r = find(bytes, 0, bytes.length, hash(bytes, 0, bytes.length));
+        return r >= 0 && !gone.get(r) ? r : -1;
+    }
+
+    // number of records not marked gone
+    int size() {
+        return count - gone.cardinality();
+    }
+
+    int duplicates() {
+        return duplicates;
+    }
+
+    boolean isGone(int record) {
+        return gone.get(record);
+    }
+
+    void markGone(int record) {
+        if (!gone.get(record)) {
+            gone.set(record);
+            modelLive[models[record]]--;
+            classLive[classes[record]]--;
+        }
+    }
+
+    // counts kept up to date by markGone, so no record is visited
+    int countOfModel(String model) {
+        Integer code = modelCodes.get(model);
+        return code == null ? 0 : modelLive[code];
+    }
+
+    // records whose class is the given type or a subtype of it
+    int countOfType(Class<?> type) {
+        int n = 0;
+        for (int c = 0; c < classCodecs.size(); c++) {
+            if (type.isAssignableFrom(classCodecs.get(c).getType())) {
+                n += classLive[c];
+            }
+        }
+        return n;
+    }
+
+    // records not marked gone, in file order
+    int[] records() {
+        int[] live = new int[size()];
+        int n = 0;
+        for (int r = gone.nextClearBit(0); r < count; r = gone.nextClearBit(r + 1)) {
+            live[n++] = r;
+        }
+        return live;
+    }
+
+    int[] recordsOfModel(String model) {
+        Integer code = modelCodes.get(model);
+        return code == null ? new int[0] : live(byModel, byModelStart[code], byModelStart[code + 1]);
+    }
+
+    // records whose class is the given type or a subtype of it
+    int[] recordsOfType(Class<?> type) {
+        int[] result = new int[0];
+        for (int c = 0; c < classCodecs.size(); c++) {
+            if (type.isAssignableFrom(classCodecs.get(c).getType())) {
+                int[] part = live(byClass, byClassStart[c], byClassStart[c + 1]);
+                int[] joined = Arrays.copyOf(result, result.length + part.length);
+                System.arraycopy(part, 0, joined, result.length, part.length);
+                result = joined;
+            }
+        }
+        Arrays.sort(result);   // file order
+        return result;
+    }
+
+    private int[] live(int[] grouped, int from, int to) {
+        int[] result = new int[to - from];
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            if (!gone.get(grouped[i])) {
+                result[n++] = grouped[i];
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    List<String> modelNames() {
+        return Collections.unmodifiableList(modelNames);
+    }
+
+    // builds the vehicle on the record's line
+    synchronized Vehicle read(int record) throws IOException, InvalidOperationException {
+        byte[] line = readLine(record);
+        char[] chars = new String(line, StandardCharsets.UTF_8).toCharArray();
+        try {
+            return schema.parse(chars, 0, chars.length, 0);
+        } catch (InvalidOperationException e) {
+            throw new InvalidOperationException("Bad record at byte " + offsets[record] + " of " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    // builds the vehicles of many records, given in file order, reading the file in large blocks
+    // rather than a line at a time; entries already in `into` are left as they are
+    synchronized void readAll(int[] records, Vehicle[] into) throws IOException, InvalidOperationException {
+        ByteBuffer window = ByteBuffer.allocate(SCAN_BUFFER);
+        long windowStart = 0;
+        int windowLength = 0;
+        for (int i = 0; i < records.length; i++) {
+            if (into[i] != null) {
+                continue;
+            }
+            int r = records[i];
+            long offset = offsets[r];
+            if (offset < windowStart || offset + lengths[r] > windowStart + windowLength) {
+                if (lengths[r] > window.capacity()) {
+                    window = ByteBuffer.allocate(lengths[r]);
+                }
+                window.clear();
+                while (window.hasRemaining() && channel.read(window, offset + window.position()) >= 0) {
+                }
+                windowStart = offset;
+                windowLength = window.position();
+                if (windowLength < lengths[r]) {
+                    throw new EOFException(fileName + " changed after it was indexed");
+                }
+            }
+            char[] chars = new String(window.array(), (int) (offset - windowStart), lengths[r], StandardCharsets.UTF_8).toCharArray();
+            try {
+                into[i] = schema.parse(chars, 0, chars.length, 0);
+            } catch (InvalidOperationException e) {
+                throw new InvalidOperationException("Bad record at byte " + offset + " of " + fileName + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private byte[] idOf(int record) {
+        try {
+            byte[] line = readLine(record);
+            int[] cells = new int[6];
+            locate(line, skipSpace(line, 0, line.length), line.length, cells, 0);
+            return Arrays.copyOfRange(line, cells[2], cells[3]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InvalidOperationException e) {
+            throw new IllegalStateException(e);   // the line was located once already while scanning
+        }
+    }
+
+    private byte[] readLine(int record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(lengths[record]);
+        long position = offsets[record];
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new EOFException(fileName + " changed after it was indexed");
+            }
+        }
+        byte[] line = buffer.array();
+        int end = line.length;
+        if (end > 0 && line[end - 1] == '\r') {
+            return Arrays.copyOf(line, end - 1);
+        }
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int hash(byte[] s, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + (s[i] & 0xff);
+        }
+        return h;
+    }
+
+    // spreads the bits, since IDs such as "C1", "C2"... hash to neighbouring values
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int indexOf(byte[] s, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s[i] == b) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int skipSpace(byte[] s, int from, int to) {
+        while (from < to && (s[from] & 0xff) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(byte[] s, int from, int to) {
+        while (to > from && (s[to - 1] & 0xff) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean startsWith(byte[] s, int from, int to, String prefix) {
+        if (to - from < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s[from + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
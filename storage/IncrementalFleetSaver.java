@@ -0,0 +1,293 @@
+package storage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import vehicles.*;
+import exceptions.*;
+import fleetmanager.*;
+import logging.*;
+
+// saves a fleet incrementally, so the cost of a save follows the amount of change rather than
+// the fleet size. The first save writes a full base CSV; after that each save appends only the
+// vehicles added, changed or removed since the previous save to <base>.delta. Once the deltas
+// grow past half the base, a background compaction folds them into a fresh base file.
+//
+// files are in the schema CSV dialect. Each delta batch starts with the headers of the classes
+// it holds, followed by rows carrying each vehicle's state at save time, or "Removed:<id>" for a
+// vehicle that left the fleet; when an ID appears twice the later line wins.
+// A compaction first renames the delta to <base>.delta.compacting, so saves can carry on into a
+// new delta while it runs; if it is interrupted, load() still applies the renamed file.
+public class IncrementalFleetSaver implements FleetListener, Closeable {
+    public static final String DELTA_SUFFIX = ".delta";
+    public static final String COMPACTING_SUFFIX = ".delta.compacting";
+    private static final String REMOVED = "Removed:";
+    private static final double COMPACT_RATIO = 0.5;   // compact once the deltas reach half the base
+    private static final long COMPACT_MIN_BYTES = 64 * 1024;   // ...but never for tiny files
+
+    private final Path base;
+    private final Path delta;
+    private final Path compacting;
+    private final FleetManager fleetManager;
+    private LinkedHashMap<String, Vehicle> changes = new LinkedHashMap<>();   // ID -> vehicle, null when removed
+    private final Object fileLock = new Object();   // orders delta appends against the delta rotation
+    private final Object compactLock = new Object();   // one compaction or full save at a time
+    private ExecutorService compactor;
+    private Future<?> compaction;
+
+    // starts tracking the fleet's changes; nothing is written until save() is called
+    public IncrementalFleetSaver(String baseFile, FleetManager fleetManager) {
+        this.base = Paths.get(baseFile);
+        this.delta = Paths.get(baseFile + DELTA_SUFFIX);
+        this.compacting = Paths.get(baseFile + COMPACTING_SUFFIX);
+        this.fleetManager = fleetManager;
+        fleetManager.addListener(this);
+    }
+
+    public String getBaseFile() {
+        return base.toString();
+    }
+
+    // writes the changes since the last save and returns how many records that took;
+    // the first save, when there is no base file yet, writes the whole fleet instead
+    public int save() throws IOException {
+        if (!Files.exists(base)) {
+            return saveFull();
+        }
+        LinkedHashMap<String, Vehicle> batch = takeChanges();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            synchronized (fileLock) {
+                List<Vehicle> changed = new ArrayList<>(batch.size());
+                for (Vehicle v : batch.values()) {
+                    if (v != null) {
+                        changed.add(v);
+                    }
+                }
+                Map<Class<?>, VehicleCodec<?>> codecs = SchemaCsvWriter.codecsFor(changed, CodecRegistry.standard());
+                try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(delta, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                    StringBuilder line = new StringBuilder(256);
+                    for (VehicleCodec<?> codec : new LinkedHashSet<>(codecs.values())) {
+                        line.setLength(0);
+                        SchemaCsvWriter.appendHeader(line, codec);
+                        writer.println(line);
+                    }
+                    for (Map.Entry<String, Vehicle> e : batch.entrySet()) {
+                        line.setLength(0);
+                        Vehicle v = e.getValue();
+                        if (v == null) {
+                            line.append(REMOVED).append(e.getKey());
+                        } else {
+                            SchemaCsvWriter.appendRow(line, codecs.get(v.getClass()), v);
+                        }
+                        writer.println(line);
+                    }
+                    if (writer.checkError()) {
+                        throw new IOException("Error writing " + delta);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            restoreChanges(batch);   // so the next save tries them again
+            throw e;
+        }
+        if (needsCompaction()) {
+            compactInBackground();
+        }
+        return batch.size();
+    }
+
+    // rewrites the base file from the whole fleet and drops any deltas
+    public int saveFull() throws IOException {
+        synchronized (compactLock) {
+            LinkedHashMap<String, Vehicle> batch = takeChanges();   // before the copy, so later changes are kept
+            List<Vehicle> fleet = new ArrayList<>(fleetManager.getFleet());
+            try {
+                Path tmp = writeBase(fleet);
+                synchronized (fileLock) {
+                    Files.move(tmp, base, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    Files.deleteIfExists(compacting);
+                    Files.deleteIfExists(delta);
+                }
+            } catch (IOException e) {
+                restoreChanges(batch);
+                throw e;
+            }
+            return fleet.size();
+        }
+    }
+
+    // folds all deltas into a fresh base file, on the calling thread
+    public void compact() throws IOException, InvalidOperationException {
+        synchronized (compactLock) {
+            synchronized (fileLock) {
+                // a compacting file left by an interrupted run is folded first, the newer delta next time
+                if (!Files.exists(compacting)) {
+                    if (!Files.exists(delta)) {
+                        return;
+                    }
+                    Files.move(delta, compacting, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            LinkedHashMap<String, Vehicle> merged = new LinkedHashMap<>();
+            readCsv(base, merged);
+            applyDelta(compacting, merged);
+            Path tmp = writeBase(merged.values());
+            synchronized (fileLock) {
+                Files.move(tmp, base, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(compacting);
+            }
+        }
+    }
+
+    // starts a compaction on the background thread unless one is already running
+    public synchronized Future<?> compactInBackground() {
+        if (compaction != null && !compaction.isDone()) {
+            return compaction;
+        }
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "fleet-compactor");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        compaction = compactor.submit(() -> {
+            try {
+                compact();
+                FleetLog.info("Compacted " + base);
+            } catch (IOException | InvalidOperationException e) {
+                FleetLog.error("Error compacting " + base + ": " + e.getMessage());
+            }
+        });
+        return compaction;
+    }
+
+    private boolean needsCompaction() throws IOException {
+        long deltaBytes = Files.exists(delta) ? Files.size(delta) : 0;
+        return deltaBytes >= COMPACT_MIN_BYTES && deltaBytes >= COMPACT_RATIO * Files.size(base);
+    }
+
+    // stops tracking and waits for a running compaction; unsaved changes are not written
+    @Override
+    public void close() throws IOException {
+        fleetManager.removeListener(this);
+        ExecutorService c;
+        synchronized (this) {
+            c = compactor;
+            compactor = null;
+        }
+        if (c != null) {
+            c.shutdown();
+            try {
+                c.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // reads the base file and applies its deltas, oldest first; vehicles keep their base order
+    public static List<Vehicle> load(String baseFile) throws IOException, InvalidOperationException {
+        LinkedHashMap<String, Vehicle> merged = new LinkedHashMap<>();
+        Path base = Paths.get(baseFile);
+        if (Files.exists(base)) {
+            readCsv(base, merged);
+        }
+        applyDelta(Paths.get(baseFile + COMPACTING_SUFFIX), merged);
+        applyDelta(Paths.get(baseFile + DELTA_SUFFIX), merged);
+        return new ArrayList<>(merged.values());
+    }
+
+    // true if the file has deltas that a plain CSV load would miss
+    public static boolean hasDeltas(String baseFile) {
+        return Files.exists(Paths.get(baseFile + DELTA_SUFFIX)) || Files.exists(Paths.get(baseFile + COMPACTING_SUFFIX));
+    }
+
+    private static void readCsv(Path file, Map<String, Vehicle> into) throws IOException, InvalidOperationException {
+        try (CsvFleetReader reader = CsvFleetReader.open(file.toString())) {
+            Vehicle v;
+            while ((v = reader.next()) != null) {
+                into.put(v.getId(), v);
+            }
+        }
+    }
+
+    // deltas are small next to the base, so a plain line reader is enough here
+    private static void applyDelta(Path file, Map<String, Vehicle> into) throws IOException, InvalidOperationException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        SchemaTable schema = new SchemaTable(CodecRegistry.standard());
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.startsWith(REMOVED)) {
+                    into.remove(line.substring(REMOVED.length()).trim());
+                    continue;
+                }
+                Vehicle v = schema.parse(line.toCharArray(), 0, line.length(), lineNumber);
+                if (v != null) {
+                    into.put(v.getId(), v);
+                }
+            }
+        }
+    }
+
+    // writes a complete base next to the real one, to be moved over it
+    private Path writeBase(Collection<Vehicle> fleet) throws IOException {
+        Path tmp = Paths.get(base + ".tmp");
+        SchemaCsvWriter.write(tmp.toString(), fleet);
+        return tmp;
+    }
+
+    private synchronized LinkedHashMap<String, Vehicle> takeChanges() {
+        LinkedHashMap<String, Vehicle> batch = changes;
+        changes = new LinkedHashMap<>();
+        return batch;
+    }
+
+    // puts back a batch that failed to write; anything changed since then is newer and wins
+    private synchronized void restoreChanges(LinkedHashMap<String, Vehicle> batch) {
+        for (Map.Entry<String, Vehicle> e : batch.entrySet()) {
+            if (!changes.containsKey(e.getKey())) {
+                changes.put(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    private synchronized void markChanged(Vehicle v) {
+        changes.put(v.getId(), v);
+    }
+
+    @Override
+    public void onVehicleAdded(Vehicle vehicle) {
+        markChanged(vehicle);
+    }
+
+    @Override
+    public synchronized void onVehicleRemoved(Vehicle vehicle) {
+        changes.put(vehicle.getId(), null);
+    }
+
+    @Override
+    public void onMileageChanged(Vehicle vehicle, double oldMileage) {
+        markChanged(vehicle);
+    }
+
+    @Override
+    public void onMaintenanceChanged(Vehicle vehicle, boolean needed) {
+        markChanged(vehicle);
+    }
+
+    @Override
+    public void onFuelChanged(Vehicle vehicle) {
+        markChanged(vehicle);
+    }
+}
@@ -0,0 +1,382 @@
+package storage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import vehicles.*;
+import exceptions.*;
+
+// streaming reader for fleets in JSON Lines, as written by JsonlFleetWriter: one object per line,
+// its "Class" member naming the codec that builds the vehicle from the other members.
+// Members may come in any order; unknown ones, including nested objects and arrays, are skipped,
+// and a field with no member (or null) reads as "", 0 or false, as in the CSV dialects.
+//
+// each line is scanned in place inside the LineReader buffer: members are kept as offsets into it,
+// numbers are parsed straight from those, and a String is only made for text fields. No tree is
+// built, so memory stays flat however large the file is
+public class JsonlFleetReader implements Closeable, VehicleCodec.Values {
+    private static final byte STRING = 0, NUMBER = 1, TRUE = 2, FALSE = 3, NULL = 4, OTHER = 5;
+
+    private final LineReader lines;
+    private final CodecRegistry registry;
+    private VehicleCodec<?> lastCodec;   // most fleets are long runs of one class
+
+    // members of the current line: key and value spans, quotes excluded
+    private char[] s;
+    private int members;
+    private int[] keyStart = new int[16];
+    private int[] keyEnd = new int[16];
+    private int[] valueStart = new int[16];
+    private int[] valueEnd = new int[16];
+    private byte[] kind = new byte[16];
+    private boolean[] escaped = new boolean[16];   // key or value holds an escape sequence
+    private int[] columns = new int[16];   // codec field -> member, -1 when absent
+    private final StringBuilder unescaped = new StringBuilder();
+
+    public JsonlFleetReader(Reader in) {
+        this(in, CodecRegistry.standard());
+    }
+
+    public JsonlFleetReader(Reader in, CodecRegistry registry) {
+        this.lines = new LineReader(in);
+        this.registry = registry;
+    }
+
+    public static JsonlFleetReader open(String fileName) throws IOException {
+        return new JsonlFleetReader(new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8));
+    }
+
+    // returns the next vehicle, or null at the end; blank lines and unknown classes are skipped
+    public Vehicle next() throws IOException, InvalidOperationException {
+        while (lines.next()) {
+            Vehicle v = parse(lines.buffer(), lines.start(), lines.end());
+            if (v != null) {
+                return v;
+            }
+        }
+        return null;
+    }
+
+    public int getLineNumber() {
+        return lines.lineNumber();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+
+    // reads every vehicle in the file into a list
+    public static List<Vehicle> load(String fileName) throws IOException, InvalidOperationException {
+        List<Vehicle> fleet = new ArrayList<>();
+        try (JsonlFleetReader reader = open(fileName)) {
+            Vehicle v;
+            while ((v = reader.next()) != null) {
+                fleet.add(v);
+            }
+        }
+        return fleet;
+    }
+
+    private Vehicle parse(char[] line, int from, int to) throws InvalidOperationException {
+        s = line;
+        int p = skipSpace(from, to);
+        if (p == to) {
+            return null;
+        }
+        members = 0;
+        p = expect('{', p, to);
+        p = skipSpace(p, to);
+        if (p < to && s[p] == '}') {
+            p++;
+        } else {
+            while (true) {
+                if (members == keyStart.length) {
+                    growMembers();
+                }
+                int m = members;
+                p = expect('"', p, to);
+                keyStart[m] = p;
+                p = scanString(p, to);
+                keyEnd[m] = p - 1;
+                escaped[m] = hasEscape(keyStart[m], keyEnd[m]);
+                p = expect(':', skipSpace(p, to), to);
+                p = value(m, skipSpace(p, to), to);
+                members++;
+                p = skipSpace(p, to);
+                if (p < to && s[p] == ',') {
+                    p = skipSpace(p + 1, to);
+                    continue;
+                }
+                p = expect('}', p, to);
+                break;
+            }
+        }
+        if (skipSpace(p, to) != to) {
+            throw error("Unexpected text after the object");
+        }
+        return build();
+    }
+
+    // reads the value at p into member m; returns the index after it
+    private int value(int m, int p, int to) throws InvalidOperationException {
+        if (p == to) {
+            throw error("Missing value");
+        }
+        char c = s[p];
+        if (c == '"') {
+            valueStart[m] = p + 1;
+            p = scanString(p + 1, to);
+            valueEnd[m] = p - 1;
+            kind[m] = STRING;
+            escaped[m] |= hasEscape(valueStart[m], valueEnd[m]);
+            return p;
+        }
+        valueStart[m] = p;
+        if (c == '{' || c == '[') {
+            p = skipNested(p, to);
+            kind[m] = OTHER;
+        } else if (c == 't') {
+            p = literal("true", p, to);
+            kind[m] = TRUE;
+        } else if (c == 'f') {
+            p = literal("false", p, to);
+            kind[m] = FALSE;
+        } else if (c == 'n') {
+            p = literal("null", p, to);
+            kind[m] = NULL;
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            while (p < to && isNumberChar(s[p])) {
+                p++;
+            }
+            kind[m] = NUMBER;
+        } else {
+            throw error("Unexpected character '" + c + "'");
+        }
+        valueEnd[m] = p;
+        return p;
+    }
+
+    private Vehicle build() throws InvalidOperationException {
+        int classMember = -1;
+        for (int m = 0; m < members; m++) {
+            if (keyIs(m, JsonlFleetWriter.CLASS_MEMBER)) {
+                classMember = m;
+                break;
+            }
+        }
+        if (classMember < 0 || kind[classMember] != STRING) {
+            throw error("No \"Class\" member");
+        }
+        try {
+            VehicleCodec<?> codec = lastCodec;
+            if (codec == null || !valueIs(classMember, codec.getName())) {
+                codec = registry.forName(text(classMember, true));
+                if (codec == null) {
+                    return null;   // a class this build has no codec for is skipped, as in the CSV dialects
+                }
+                lastCodec = codec;
+            }
+            mapColumns(codec);
+            return codec.read(this);
+        } catch (NumberFormatException e) {
+            throw error("Bad number: " + e.getMessage());
+        }
+    }
+
+    // finds the member for each of the codec's fields
+    private void mapColumns(VehicleCodec<?> codec) {
+        int fields = codec.fieldCount();
+        if (columns.length < fields) {
+            columns = new int[fields];
+        }
+        for (int f = 0; f < fields; f++) {
+            columns[f] = -1;
+            String name = codec.field(f);
+            // members usually come in field order, so the search starts where this field should be
+            for (int i = 0; i < members; i++) {
+                int m = (f + 1 + i) % members;
+                if (keyIs(m, name)) {
+                    columns[f] = m;
+                    break;
+                }
+            }
+        }
+    }
+
+    private int member(int field) {
+        int m = field < columns.length ? columns[field] : -1;
+        return m >= 0 && kind[m] != NULL && kind[m] != OTHER ? m : -1;
+    }
+
+    @Override
+    public String text(int field) {
+        int m = member(field);
+        return m < 0 ? "" : text(m, true);
+    }
+
+    @Override
+    public double decimal(int field) {
+        int m = member(field);
+        return m < 0 || kind[m] == TRUE || kind[m] == FALSE ? 0 : CsvFleetReader.parseDouble(s, valueStart[m], valueEnd[m]);
+    }
+
+    @Override
+    public int integer(int field) {
+        int m = member(field);
+        if (m < 0 || kind[m] == TRUE || kind[m] == FALSE) {
+            return 0;
+        }
+        int start = valueStart[m], end = valueEnd[m];
+        for (int i = start; i < end; i++) {
+            if (s[i] == '.' || s[i] == 'e' || s[i] == 'E') {
+                return (int) CsvFleetReader.parseDouble(s, start, end);   // e.g. 4.0 from a tool that writes only doubles
+            }
+        }
+        return CsvFleetReader.parseInt(s, start, end);
+    }
+
+    @Override
+    public boolean flag(int field) {
+        int m = member(field);
+        return m >= 0 && (kind[m] == TRUE || (kind[m] == STRING && CsvFleetReader.parseBoolean(s, valueStart[m], valueEnd[m])));
+    }
+
+    // the member's value as a String, with escapes decoded
+    private String text(int m, boolean value) {
+        int start = value ? valueStart[m] : keyStart[m];
+        int end = value ? valueEnd[m] : keyEnd[m];
+        if (!escaped[m]) {
+            return new String(s, start, end - start);
+        }
+        unescaped.setLength(0);
+        for (int i = start; i < end; i++) {
+            char c = s[i];
+            if (c != '\\') {
+                unescaped.append(c);
+                continue;
+            }
+            c = s[++i];
+            switch (c) {
+                case 'n': unescaped.append('\n'); break;
+                case 'r': unescaped.append('\r'); break;
+                case 't': unescaped.append('\t'); break;
+                case 'b': unescaped.append('\b'); break;
+                case 'f': unescaped.append('\f'); break;
+                case 'u':
+                    unescaped.append((char) Integer.parseInt(new String(s, i + 1, 4), 16));
+                    i += 4;
+                    break;
+                default: unescaped.append(c);   // '"', '\\' and '/'
+            }
+        }
+        return unescaped.toString();
+    }
+
+    private boolean keyIs(int m, String name) {
+        if (escaped[m]) {
+            return text(m, false).equals(name);
+        }
+        return spanEquals(keyStart[m], keyEnd[m], name);
+    }
+
+    private boolean valueIs(int m, String value) {
+        return !escaped[m] && spanEquals(valueStart[m], valueEnd[m], value);
+    }
+
+    private boolean spanEquals(int start, int end, String str) {
+        if (end - start != str.length()) {
+            return false;
+        }
+        for (int i = 0; i < str.length(); i++) {
+            if (s[start + i] != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasEscape(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s[i] == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // p is just past an opening quote; returns the index just past the closing one
+    private int scanString(int p, int to) throws InvalidOperationException {
+        while (p < to) {
+            char c = s[p];
+            if (c == '"') {
+                return p + 1;
+            }
+            if (c == '\\') {
+                p += p + 1 < to && s[p + 1] == 'u' ? 6 : 2;   // a unicode escape is skipped whole
+            } else {
+                p++;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    // skips an object or array, strings inside included; returns the index after it
+    private int skipNested(int p, int to) throws InvalidOperationException {
+        int depth = 0;
+        while (p < to) {
+            char c = s[p];
+            if (c == '"') {
+                p = scanString(p + 1, to);
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) {
+                    return p + 1;
+                }
+            }
+            p++;
+        }
+        throw error("Unterminated object or array");
+    }
+
+    private int literal(String word, int p, int to) throws InvalidOperationException {
+        if (!spanEquals(p, Math.min(p + word.length(), to), word)) {
+            throw error("Unexpected value");
+        }
+        return p + word.length();
+    }
+
+    private int expect(char c, int p, int to) throws InvalidOperationException {
+        if (p >= to || s[p] != c) {
+            throw error("Expected '" + c + "'");
+        }
+        return p + 1;
+    }
+
+    private int skipSpace(int p, int to) {
+        while (p < to && (s[p] == ' ' || s[p] == '\t' || s[p] == '\r')) {
+            p++;
+        }
+        return p;
+    }
+
+    private static boolean isNumberChar(char c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+    }
+
+    private void growMembers() {
+        int n = keyStart.length * 2;
+        keyStart = Arrays.copyOf(keyStart, n);
+        keyEnd = Arrays.copyOf(keyEnd, n);
+        valueStart = Arrays.copyOf(valueStart, n);
+        valueEnd = Arrays.copyOf(valueEnd, n);
+        kind = Arrays.copyOf(kind, n);
+        escaped = Arrays.copyOf(escaped, n);
+    }
+
+    private InvalidOperationException error(String problem) {
+        return new InvalidOperationException(problem + " on line " + lines.lineNumber());
+    }
+}
@@ -0,0 +1,125 @@
+package storage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import vehicles.*;
+import exceptions.*;
+
+// writes a fleet as JSON Lines, one object per vehicle, for tools that read JSON rather than
+// the fleet CSV dialects:
+//     {"Class":"Car","ID":"C1","Model":"Corolla","MaxSpeed":180.0,"Mileage":0.0,...}
+// members come from the class's VehicleCodec, so JsonlFleetReader and SchemaCsvWriter agree on
+// the field names. Vehicles are written as they come, through one reused line buffer; nothing is
+// kept per vehicle, so the output can be as large as the stream it goes to
+public class JsonlFleetWriter implements Closeable, Flushable {
+    public static final String CLASS_MEMBER = "Class";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+    private final CodecRegistry registry;
+    private final StringBuilder line = new StringBuilder(256);
+    private char[] chars = new char[256];   // line is copied here, as Writer.append would make a String of it
+    private VehicleCodec<?> lastCodec;   // most fleets are long runs of one class
+    private long written = 0;
+
+    public JsonlFleetWriter(Writer out) {
+        this(out, CodecRegistry.standard());
+    }
+
+    public JsonlFleetWriter(Writer out, CodecRegistry registry) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16);
+        this.registry = registry;
+    }
+
+    public static JsonlFleetWriter open(String fileName) throws IOException {
+        return new JsonlFleetWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8));
+    }
+
+    public void write(Vehicle v) throws IOException {
+        VehicleCodec<?> codec = lastCodec;
+        if (codec == null || codec.getType() != v.getClass()) {
+            codec = registry.forType(v.getClass());
+            if (codec == null) {
+                throw new IOException("No codec registered for " + v.getClass().getName());
+            }
+            lastCodec = codec;
+        }
+        line.setLength(0);
+        line.append('{');
+        appendString(line, CLASS_MEMBER);
+        line.append(':');
+        appendString(line, codec.getName());
+        codec.writeRow(v, new VehicleCodec.Row(line, codec));
+        line.append('}').append('\n');
+        if (chars.length < line.length()) {
+            chars = new char[line.capacity()];
+        }
+        line.getChars(0, line.length(), chars, 0);
+        out.write(chars, 0, line.length());
+        written++;
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    // writes the fleet to the file, replacing what it held
+    public static void write(String fileName, Collection<? extends Vehicle> fleet) throws IOException {
+        try (JsonlFleetWriter writer = open(fileName)) {
+            for (Vehicle v : fleet) {
+                writer.write(v);
+            }
+        }
+    }
+
+    // streams a fleet CSV file of either dialect to out as JSON Lines, one vehicle at a time,
+    // so a file of any size converts in constant memory; returns the number of vehicles.
+    // out is flushed but left open, so it may be System.out or a pipe
+    public static long export(String csvFile, Writer out) throws IOException, InvalidOperationException {
+        JsonlFleetWriter writer = new JsonlFleetWriter(out);
+        try (CsvFleetReader reader = CsvFleetReader.open(csvFile)) {
+            Vehicle v;
+            while ((v = reader.next()) != null) {
+                writer.write(v);
+            }
+        }
+        writer.flush();
+        return writer.getWritten();
+    }
+
+    // value as a JSON string, escaping what JSON requires; a null becomes JSON null
+    static void appendString(StringBuilder line, String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c >= 0x20) {
+                line.append(c);
+            } else if (c == '\n') {
+                line.append("\\n");
+            } else if (c == '\r') {
+                line.append("\\r");
+            } else if (c == '\t') {
+                line.append("\\t");
+            } else {
+                line.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,513 @@
+package storage;
+import java.io.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToDoubleFunction;
+import vehicles.*;
+import exceptions.*;
+import fleetmanager.*;
+import interfaces.*;
+import logging.*;
+
+// FleetManager over a fleet file that is too big to load whole. Opening it only builds a
+// FleetFileIndex (ID, model and class per line); vehicles are built when a query needs them and
+// kept in a bounded LRU cache, so heap use follows the working set rather than the file size.
+//
+// findById, searchByType, vehiclesOfModel, removeVehicle and the per-class and per-model counts
+// work straight on the index. The report, the maintenance listing and servicing, max/min, the range
+// queries and forEachVehicle read the file SCAN_BLOCK records at a time and keep only what they
+// return, so they do not grow the heap with the file either.
+// A vehicle that changes (moves, is refuelled or serviced) leaves the cache and becomes resident,
+// like one added with addVehicle, so its changes cannot be evicted. Operations that hand out or
+// change the whole fleet (journeys, refuelAll, sorting, getFleet, getmap, getset, inspect...) first
+// load every remaining vehicle from the file, after which the manager behaves like a plain FleetManager.
+//
+// a vehicle evicted from the cache may be built again by a later query; changes made through
+// an instance whose record has since been loaded again are dropped, so hold vehicles briefly
+public class LazyFleetManager extends FleetManager implements Closeable {
+    public static final int DEFAULT_CACHE_SIZE = 10_000;
+    private static final int SCAN_BLOCK = 8192;   // records built at a time by a streaming query
+
+    private final FleetFileIndex archive;
+    private final LinkedHashMap<Integer, Vehicle> cache;   // record -> vehicle, least recently used first
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+
+    private LazyFleetManager(FleetFileIndex archive, int cacheSize) {
+        this.archive = archive;
+        this.cache = new LinkedHashMap<Integer, Vehicle>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Vehicle> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public static LazyFleetManager open(String fileName) throws IOException, InvalidOperationException {
+        return open(fileName, DEFAULT_CACHE_SIZE);
+    }
+
+    public static LazyFleetManager open(String fileName, int cacheSize) throws IOException, InvalidOperationException {
+        if (cacheSize <= 0) {
+            throw new InvalidOperationException("Cache size must be positive");
+        }
+        if (IncrementalFleetSaver.hasDeltas(fileName)) {
+            throw new InvalidOperationException(fileName + " has unmerged deltas; compact it before opening it lazily");
+        }
+        FleetFileIndex archive = FleetFileIndex.open(fileName);
+        if (archive.duplicates() > 0) {
+            FleetLog.warn(archive.duplicates() + " duplicate IDs in " + fileName + " skipped");
+        }
+        return new LazyFleetManager(archive, cacheSize);
+    }
+
+    // vehicles still only in the file, plus resident ones
+    public int size() {
+        return archive.size() + super.getFleet().size();
+    }
+
+    public int residentCount() {
+        return super.getFleet().size();
+    }
+
+    public synchronized int cachedCount() {
+        return cache.size();
+    }
+
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    public synchronized long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    @Override
+    protected boolean isKnownId(String idd) {
+        return super.isKnownId(idd) || archive.find(idd) >= 0;
+    }
+
+    @Override
+    public Vehicle findById(String idd) {
+        Vehicle v = super.findById(idd);
+        if (v != null) {
+            return v;
+        }
+        int record = archive.find(idd);
+        return record >= 0 ? fetch(record) : null;
+    }
+
+    @Override
+    public void removeVehicle(String idd) throws InvalidOperationException {
+        if (super.findById(idd) != null) {
+            super.removeVehicle(idd);
+            return;
+        }
+        int record = archive.find(idd);
+        if (record < 0) {
+            throw new InvalidOperationException("No such ID exists in Fleet: " + idd);
+        }
+        Vehicle removed;
+        synchronized (this) {
+            Vehicle cached = cache.remove(record);
+            removed = cached != null ? cached : read(record);   // listeners such as stores need the vehicle
+            archive.markGone(record);
+            removed.setUpdateCallback(null);
+        }
+        notifyVehicleRemoved(removed);
+        FleetLog.info("removed ID from fleet");
+    }
+
+    @Override
+    public List<Vehicle> searchByType(Class<?> type) {
+        List<Vehicle> result = super.searchByType(type);
+        result.addAll(fetchAll(archive.recordsOfType(type)));
+        return result;
+    }
+
+    // vehicles of one model, without loading the others
+    public List<Vehicle> vehiclesOfModel(String model) {
+        List<Vehicle> result = new ArrayList<>();
+        List<Vehicle> resident = super.getmap().get(model);
+        if (resident != null) {
+            result.addAll(resident);
+        }
+        result.addAll(fetchAll(archive.recordsOfModel(model)));
+        return result;
+    }
+
+    // model names in the file and among resident vehicles, in order
+    public SortedSet<String> modelNames() {
+        SortedSet<String> names = new TreeSet<>(super.getmap().keySet());
+        for (String model : archive.modelNames()) {
+            if (archive.countOfModel(model) > 0) {
+                names.add(model);
+            }
+        }
+        return names;
+    }
+
+    // vehicles of the given type or a subtype of it, counted without reading any of them
+    public int countOfType(Class<?> type) {
+        return super.searchByType(type).size() + archive.countOfType(type);
+    }
+
+    public int countOfModel(String model) {
+        List<Vehicle> resident = super.getmap().get(model);
+        return (resident != null ? resident.size() : 0) + archive.countOfModel(model);
+    }
+
+    @Override
+    protected int countOf(Class<?> type) {
+        return super.countOf(type) + archive.countOfType(type);
+    }
+
+    // builds the record's vehicle, or returns the cached one
+    private synchronized Vehicle fetch(int record) {
+        Vehicle v = cache.get(record);
+        if (v != null) {
+            cacheHits++;
+            return v;
+        }
+        cacheMisses++;
+        v = read(record);
+        v.setUpdateCallback(this);   // so a change makes it resident
+        cache.put(record, v);
+        return v;
+    }
+
+    // fetch for many records at once: the ones not cached are read in file order, in blocks.
+    // a result bigger than the cache leaves only its last vehicles cached
+    private synchronized List<Vehicle> fetchAll(int[] records) {
+        Vehicle[] vehicles = new Vehicle[records.length];
+        boolean[] read = new boolean[records.length];
+        for (int i = 0; i < records.length; i++) {
+            vehicles[i] = cache.get(records[i]);
+            read[i] = vehicles[i] == null;
+        }
+        readAll(records, vehicles);
+        for (int i = 0; i < records.length; i++) {
+            if (read[i]) {
+                cacheMisses++;
+                vehicles[i].setUpdateCallback(this);   // so a change makes it resident
+                cache.put(records[i], vehicles[i]);
+            } else {
+                cacheHits++;
+            }
+        }
+        return Arrays.asList(vehicles);
+    }
+
+    // rows were checked when the file was indexed, so a failure here means the file changed since
+    private Vehicle read(int record) {
+        try {
+            return archive.read(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InvalidOperationException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private void readAll(int[] records, Vehicle[] into) {
+        try {
+            archive.readAll(records, into);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InvalidOperationException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    // runs the action on the vehicle of every record, given in file order, building SCAN_BLOCK of
+    // them at a time; cached instances are used where there are any and nothing is cached, so only
+    // what the action keeps outlives its block
+    private synchronized void scanArchive(int[] records, ObjIntConsumer<Vehicle> action) {
+        for (int from = 0; from < records.length; from += SCAN_BLOCK) {
+            int[] block = Arrays.copyOfRange(records, from, Math.min(records.length, from + SCAN_BLOCK));
+            Vehicle[] vehicles = new Vehicle[block.length];
+            for (int i = 0; i < block.length; i++) {
+                vehicles[i] = cache.get(block[i]);
+            }
+            readAll(block, vehicles);
+            for (int i = 0; i < block.length; i++) {
+                action.accept(vehicles[i], block[i]);
+            }
+        }
+    }
+
+    // a vehicle a scan hands out is cached and followed like a fetched one
+    private synchronized Vehicle adopt(Vehicle v, int record) {
+        if (cache.get(record) != v) {
+            cacheMisses++;
+            v.setUpdateCallback(this);   // so a change makes it resident
+            cache.put(record, v);
+        }
+        return v;
+    }
+
+    // moves a changed vehicle out of the file and the cache into the resident structures
+    private synchronized boolean makeResident(Vehicle v) {
+        if (super.findById(v.getId()) == v) {
+            return false;   // already resident
+        }
+        int record = archive.find(v.getId());
+        if (record < 0) {
+            v.setUpdateCallback(null);
+            FleetLog.warn("Change to " + v.getId() + " dropped: it was removed or loaded again since it was read");
+            return true;
+        }
+        archive.markGone(record);
+        cache.remove(record);
+        index(v);   // with its current values, so the change itself is already counted
+        return true;
+    }
+
+    @Override
+    public void onMileageChanged(Vehicle v, double oldMileage) {
+        if (!makeResident(v)) {
+            super.onMileageChanged(v, oldMileage);
+        }
+    }
+
+    @Override
+    public void onMaintenanceChanged(Vehicle v, boolean needed) {
+        if (!makeResident(v)) {
+            super.onMaintenanceChanged(v, needed);
+        }
+    }
+
+    @Override
+    public void onFuelChanged(Vehicle v) {
+        if (!makeResident(v)) {
+            super.onFuelChanged(v);
+        }
+    }
+
+    // loads every vehicle left in the file; cached instances are kept, so references stay valid
+    public synchronized void loadAll() {
+        int[] records = archive.records();
+        if (records.length == 0) {
+            return;
+        }
+        Vehicle[] vehicles = new Vehicle[records.length];
+        for (int i = 0; i < records.length; i++) {
+            vehicles[i] = cache.get(records[i]);
+        }
+        readAll(records, vehicles);
+        for (int record : records) {
+            archive.markGone(record);
+        }
+        cache.clear();
+        FleetLog.info("Loading the remaining " + vehicles.length + " vehicles for a fleet-wide operation");
+        super.addAll(Arrays.asList(vehicles));
+    }
+
+    @Override
+    public void close() throws IOException {
+        archive.close();
+    }
+
+    // fleet-wide queries streamed from the file
+
+    // the vehicles read from the file are not kept, so this leaves the cache as it was
+    @Override
+    public synchronized void forEachVehicle(Consumer<? super Vehicle> action) {
+        for (Vehicle v : new ArrayList<>(super.getFleet())) {
+            action.accept(v);
+        }
+        scanArchive(archive.records(), (v, record) -> action.accept(v));
+    }
+
+    @Override
+    public synchronized String generateReport() {
+        ReportTotals totals = new ReportTotals();
+        for (Vehicle v : super.getFleet()) {
+            totals.add(v);
+        }
+        scanArchive(archive.records(), (v, record) -> totals.add(v));
+        return formatReport(size(), totals.efficiency, totals.mileage, totals.due, totals.fastest, totals.slowest);
+    }
+
+    // most urgent first, as FleetManager lists them
+    @Override
+    public synchronized List<Vehicle> vehiclesNeedingMaintenance() {
+        List<Vehicle> due = new ArrayList<>(super.vehiclesNeedingMaintenance());
+        scanArchive(archive.recordsOfType(Maintainable.class), (v, record) -> {
+            if (((Maintainable) v).needsMaintenance()) {
+                due.add(adopt(v, record));
+            }
+        });
+        due.sort(Comparator.comparingDouble((Vehicle v) -> ((Maintainable) v).maintenanceUrgency()).reversed());
+        return due;
+    }
+
+    // only the vehicles serviced become resident
+    @Override
+    public void maintainAll() {
+        for (Vehicle v : vehiclesNeedingMaintenance()) {
+            Maintainable m = (Maintainable) v;
+            if (FleetLog.isEnabled(Level.INFO)) {
+                FleetLog.info("Vehicle " + v.getId() + " needs maintenance.");
+            }
+            m.scheduleMaintenance();
+            m.performMaintenance();
+        }
+    }
+
+    @Override
+    public Vehicle max() {
+        return extreme(true);
+    }
+
+    @Override
+    public Vehicle min() {
+        return extreme(false);
+    }
+
+    // the fastest or slowest vehicle, resident or in the file; null for an empty fleet
+    private synchronized Vehicle extreme(boolean fastest) {
+        Vehicle[] best = {fastest ? super.max() : super.min()};
+        int[] bestRecord = {-1};
+        scanArchive(archive.records(), (v, record) -> {
+            if (best[0] == null || (fastest ? v.getMaxSpeed() > best[0].getMaxSpeed() : v.getMaxSpeed() < best[0].getMaxSpeed())) {
+                best[0] = v;
+                bestRecord[0] = record;
+            }
+        });
+        return bestRecord[0] >= 0 ? adopt(best[0], bestRecord[0]) : best[0];
+    }
+
+    @Override
+    public List<Vehicle> vehiclesWithMileageBetween(double min, double max) {
+        return range(super.vehiclesWithMileageBetween(min, max), Vehicle::getCurrentMileage, min, max);
+    }
+
+    @Override
+    public List<Vehicle> vehiclesWithSpeedBetween(double min, double max) {
+        return range(super.vehiclesWithSpeedBetween(min, max), Vehicle::getMaxSpeed, min, max);
+    }
+
+    @Override
+    public List<Vehicle> vehiclesWithEfficiencyBetween(double min, double max) {
+        return range(super.vehiclesWithEfficiencyBetween(min, max), Vehicle::calculateFuelEfficiency, min, max);
+    }
+
+    // the resident matches plus the file's, bounds inclusive, in ascending order of the key
+    private synchronized List<Vehicle> range(List<Vehicle> resident, ToDoubleFunction<Vehicle> key, double min, double max) {
+        List<Vehicle> result = new ArrayList<>(resident);
+        scanArchive(archive.records(), (v, record) -> {
+            double k = key.applyAsDouble(v);
+            if (k >= min && k <= max) {
+                result.add(adopt(v, record));
+            }
+        });
+        result.sort(Comparator.comparingDouble(key));
+        return result;
+    }
+
+    // the figures generateReport gathers in one pass
+    private static final class ReportTotals {
+        double efficiency = 0.0;
+        double mileage = 0.0;
+        int due = 0;
+        Vehicle fastest;
+        Vehicle slowest;
+
+        void add(Vehicle v) {
+            efficiency += v.calculateFuelEfficiency();
+            mileage += v.getCurrentMileage();
+            if (v instanceof Maintainable && ((Maintainable) v).needsMaintenance()) {
+                due++;
+            }
+            if (fastest == null || v.getMaxSpeed() > fastest.getMaxSpeed()) {
+                fastest = v;
+            }
+            if (slowest == null || v.getMaxSpeed() < slowest.getMaxSpeed()) {
+                slowest = v;
+            }
+        }
+    }
+
+    // fleet-wide operations that hand out or change every vehicle: everything is loaded first
+
+    @Override
+    public List<Vehicle> getFleet() {
+        loadAll();
+        return super.getFleet();
+    }
+
+    @Override
+    public <T> T inspect(Function<List<Vehicle>, T> action) {
+        loadAll();
+        return super.inspect(action);
+    }
+
+    @Override
+    public TreeMap<String, List<Vehicle>> getmap() {
+        loadAll();
+        return super.getmap();
+    }
+
+    @Override
+    public HashSet<String> getset() {
+        loadAll();
+        return super.getset();
+    }
+
+    @Override
+    public void displayByModelName() {
+        loadAll();
+        super.displayByModelName();
+    }
+
+    @Override
+    public void startAllJourneys(double distance) {
+        loadAll();
+        super.startAllJourneys(distance);
+    }
+
+    @Override
+    public JourneyResult startAllJourneysParallel(double distance) {
+        loadAll();
+        return super.startAllJourneysParallel(distance);
+    }
+
+    @Override
+    public double[] estimateFuelConsumption(double... distances) {
+        loadAll();
+        return super.estimateFuelConsumption(distances);
+    }
+
+    @Override
+    public void refuelAll(double amount) {
+        loadAll();
+        super.refuelAll(amount);
+    }
+
+    @Override
+    public List<Vehicle> sortFleetByEfficiency() {
+        loadAll();
+        return super.sortFleetByEfficiency();
+    }
+
+    @Override
+    public List<Vehicle> sortFleetBySpeed() {
+        loadAll();
+        return super.sortFleetBySpeed();
+    }
+
+    @Override
+    public List<Vehicle> sortFleetByCurrentMileage() {
+        loadAll();
+        return super.sortFleetByCurrentMileage();
+    }
+
+    @Override
+    public List<Vehicle> sortFleetByModel() {
+        loadAll();
+        return super.sortFleetByModel();
+    }
+}
@@ -0,0 +1,100 @@
+package storage;
+import java.io.*;
+
+// the lines of a stream, one at a time, inside one reused char buffer: a line is handed out as
+// a slice of buffer() rather than a String, and stays valid until the next call to next().
+// Shared by the streaming readers, so a file of any size is read in the memory of its longest line
+final class LineReader implements Closeable {
+    private final Reader in;
+    private char[] buf = new char[1 << 16];
+    private int pos = 0;   // start of the next unread line
+    private int limit = 0;   // end of valid data in buf
+    private boolean eof = false;
+    private int lineNumber = 0;
+    private int start;   // the current line, without its line break
+    private int end;
+
+    LineReader(Reader in) {
+        this.in = in;
+    }
+
+    // moves to the next line; false at the end of the stream
+    boolean next() throws IOException {
+        int lineEnd = findLineEnd();
+        if (lineEnd < 0) {
+            return false;
+        }
+        start = pos;
+        end = lineEnd;
+        pos = lineEnd + 1;
+        lineNumber++;
+        if (end > start && buf[end - 1] == '\r') {
+            end--;
+        }
+        return true;
+    }
+
+    char[] buffer() {
+        return buf;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int end() {
+        return end;
+    }
+
+    int lineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // index of the '\n' ending the next line, refilling the buffer as needed; -1 when no data is left.
+    // the last line of a file may have no newline, in which case limit is returned
+    private int findLineEnd() throws IOException {
+        int scanFrom = pos;
+        while (true) {
+            for (int i = scanFrom; i < limit; i++) {
+                if (buf[i] == '\n') {
+                    return i;
+                }
+            }
+            if (eof) {
+                if (pos < limit) {
+                    if (limit == buf.length) {
+                        grow();
+                    }
+                    return limit;   // treated as if a '\n' followed
+                }
+                return -1;
+            }
+            int unread = limit - pos;
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, unread);   // keep the partial line, drop what was consumed
+                pos = 0;
+                limit = unread;
+            } else if (limit == buf.length) {
+                grow();   // a single line longer than the buffer
+            }
+            scanFrom = limit;
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+    }
+
+    private void grow() {
+        char[] bigger = new char[buf.length * 2];
+        System.arraycopy(buf, 0, bigger, 0, limit);
+        buf = bigger;
+    }
+}
@@ -0,0 +1,299 @@
+package storage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import vehicles.*;
+import exceptions.*;
+import fleetmanager.*;
+import logging.*;
+
+// persistent fleet store of fixed-size records in a memory-mapped file. An ID -> slot index
+// finds a vehicle's record, so a move, refuel or maintenance rewrites that one record in place
+// instead of saving the whole fleet again.
+//
+// attached to a FleetManager it follows the fleet on its own:
+//     MappedFleetStore store = MappedFleetStore.open("fleet.store");
+//     fleetManager.addAll(store.load());
+//     store.attach(fleetManager);
+//
+// writes land in the page cache straight away and survive a crash of the JVM;
+// call force() (or close()) to also have them on disk if the machine goes down.
+//
+// the file is one mapping, and a mapping is at most 2 GB, so a store holds at most MAX_SLOTS
+// records (about 14.9 million); adding a vehicle beyond that fails with InvalidOperationException.
+//
+// file layout (big-endian):
+//   header, HEADER_BYTES: int magic "FLTM", short version, short record size,
+//                         int slots in use (live and free)
+//   records, RECORD_BYTES each:
+//     byte status (0 free, 1 live), byte class tag, byte ID length, byte model length,
+//     4 bytes padding, the VehicleRecord fields, padding up to ID_AT,
+//     ID (UTF-8, up to MAX_ID_BYTES), model (UTF-8, up to MAX_MODEL_BYTES)
+// class tags are the VehicleRecord ones
+public class MappedFleetStore implements FleetListener, Closeable {
+    public static final int MAGIC = 0x464C544D;   // "FLTM"
+    public static final short VERSION = 1;
+    public static final int HEADER_BYTES = 64;
+    public static final int MAX_ID_BYTES = 32;
+    public static final int MAX_MODEL_BYTES = 40;
+
+    private static final int FIELDS_AT = 8;
+    private static final int ID_AT = 72;
+    private static final int MODEL_AT = ID_AT + MAX_ID_BYTES;
+    public static final int RECORD_BYTES = MODEL_AT + MAX_MODEL_BYTES;
+    private static final int USED_AT = 8;   // header offset of the slot count
+    private static final byte FREE = 0, LIVE = 1;
+    private static final int INITIAL_SLOTS = 1024;
+    public static final int MAX_SLOTS = (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES;
+
+    private final String fileName;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;   // slots the current mapping holds
+    private int used;   // slots ever handed out; free ones below this are reused first
+    private final HashMap<String, Integer> slots = new HashMap<>();   // maps vehicle ID to its record slot
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+
+    private MappedFleetStore(String fileName, FileChannel channel) {
+        this.fileName = fileName;
+        this.channel = channel;
+    }
+
+    // opens the store, creating an empty one if the file does not exist
+    public static MappedFleetStore open(String fileName) throws IOException, InvalidOperationException {
+        FileChannel channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        MappedFleetStore store = new MappedFleetStore(fileName, channel);
+        try {
+            store.init();
+        } catch (IOException | InvalidOperationException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private void init() throws IOException, InvalidOperationException {
+        long size = channel.size();
+        if (size == 0) {
+            map(INITIAL_SLOTS);
+            buffer.putInt(0, MAGIC);
+            buffer.putShort(4, VERSION);
+            buffer.putShort(6, (short) RECORD_BYTES);
+            buffer.putInt(USED_AT, 0);
+            return;
+        }
+        if (size < HEADER_BYTES) {
+            throw new InvalidOperationException(fileName + " is not a fleet store");
+        }
+        long slotCount = (size - HEADER_BYTES) / RECORD_BYTES;
+        if (slotCount > MAX_SLOTS) {
+            throw new InvalidOperationException(fileName + " has " + slotCount + " record slots; a fleet store maps at most "
+                    + MAX_SLOTS);
+        }
+        map((int) slotCount);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new InvalidOperationException(fileName + " is not a fleet store");
+        }
+        if (buffer.getShort(4) != VERSION || buffer.getShort(6) != RECORD_BYTES) {
+            throw new InvalidOperationException("Unsupported fleet store version " + buffer.getShort(4));
+        }
+        used = Math.min(buffer.getInt(USED_AT), capacity);
+        for (int s = 0; s < used; s++) {
+            int at = offset(s);
+            if (buffer.get(at) == LIVE) {
+                slots.put(readString(at + ID_AT, buffer.get(at + 2)), s);
+            } else {
+                freeSlots.add(s);
+            }
+        }
+    }
+
+    // maps the header and the given number of slots, growing the file if needed
+    private void map(int slotCount) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) slotCount * RECORD_BYTES);
+        capacity = slotCount;
+    }
+
+    private static int offset(int s) {
+        return HEADER_BYTES + s * RECORD_BYTES;
+    }
+
+    // every live vehicle in the store, in slot order
+    public synchronized List<Vehicle> load() throws InvalidOperationException {
+        List<Vehicle> fleet = new ArrayList<>(slots.size());
+        for (int s = 0; s < used; s++) {
+            int at = offset(s);
+            if (buffer.get(at) != LIVE) {
+                continue;
+            }
+            String id = readString(at + ID_AT, buffer.get(at + 2));
+            String model = readString(at + MODEL_AT, buffer.get(at + 3));
+            buffer.position(at + FIELDS_AT);
+            Vehicle v = VehicleRecord.readFields(buffer, buffer.get(at + 1), id, model);
+            if (v != null) {
+                fleet.add(v);
+            }
+        }
+        return fleet;
+    }
+
+    // writes the whole record, adding it if the ID is new
+    public synchronized void put(Vehicle v) throws IOException, InvalidOperationException {
+        byte tag = VehicleRecord.tagOf(v);
+        if (tag < 0) {
+            throw new InvalidOperationException("Cannot store vehicle type " + v.getClass().getName());
+        }
+        byte[] id = encode(v.getId(), MAX_ID_BYTES, "ID");
+        byte[] model = encode(v.getModel(), MAX_MODEL_BYTES, "Model");
+        Integer s = slots.get(v.getId());
+        if (s == null) {
+            s = allocate();
+            slots.put(v.getId(), s);
+        }
+        int at = offset(s);
+        buffer.put(at + 1, tag);
+        buffer.put(at + 2, (byte) id.length);
+        buffer.put(at + 3, (byte) model.length);
+        buffer.position(at + ID_AT);
+        buffer.put(id);
+        buffer.position(at + MODEL_AT);
+        buffer.put(model);
+        writeFields(at, v);
+        buffer.put(at, LIVE);   // last, so a half-written new record is never seen as live
+    }
+
+    // rewrites only the numeric fields of a vehicle already in the store;
+    // returns false if it is not
+    public synchronized boolean update(Vehicle v) {
+        Integer s = slots.get(v.getId());
+        if (s == null) {
+            return false;
+        }
+        writeFields(offset(s), v);
+        return true;
+    }
+
+    public synchronized boolean remove(String id) {
+        Integer s = slots.remove(id);
+        if (s == null) {
+            return false;
+        }
+        buffer.put(offset(s), FREE);
+        freeSlots.add(s);
+        return true;
+    }
+
+    public synchronized boolean contains(String id) {
+        return slots.containsKey(id);
+    }
+
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    // stores every vehicle already in the fleet, then follows the fleet's changes. Goes through
+    // forEachVehicle, so attaching to a LazyFleetManager streams its file instead of loading it
+    public void attach(FleetManager fleetManager) throws IOException, InvalidOperationException {
+        try {
+            fleetManager.forEachVehicle(v -> {
+                try {
+                    put(v);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (InvalidOperationException e) {
+                    throw new IllegalArgumentException(e.getMessage(), e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (IllegalArgumentException e) {
+            if (e.getCause() instanceof InvalidOperationException) {
+                throw (InvalidOperationException) e.getCause();
+            }
+            throw e;
+        }
+        fleetManager.addListener(this);
+    }
+
+    private void writeFields(int at, Vehicle v) {
+        buffer.position(at + FIELDS_AT);
+        VehicleRecord.writeFields(buffer, v);
+    }
+
+    private int allocate() throws IOException, InvalidOperationException {
+        Integer free = freeSlots.poll();
+        if (free != null) {
+            return free;
+        }
+        if (used == capacity) {
+            if (capacity >= MAX_SLOTS) {
+                throw new InvalidOperationException("Fleet store " + fileName + " is full: it holds at most " + MAX_SLOTS
+                        + " vehicles");
+            }
+            map((int) Math.min(MAX_SLOTS, Math.max(INITIAL_SLOTS, capacity * 2L)));
+        }
+        buffer.putInt(USED_AT, used + 1);
+        return used++;
+    }
+
+    private byte[] encode(String value, int max, String what) throws InvalidOperationException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > max) {
+            throw new InvalidOperationException(what + " too long for fleet store (max " + max + " bytes): " + value);
+        }
+        return bytes;
+    }
+
+    private String readString(int at, byte length) {
+        byte[] bytes = new byte[Byte.toUnsignedInt(length)];
+        buffer.position(at);
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // flushes written records to the disk
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    // listener callbacks cannot throw, so a vehicle the store cannot hold is logged and skipped
+    @Override
+    public void onVehicleAdded(Vehicle vehicle) {
+        try {
+            put(vehicle);
+        } catch (IOException | InvalidOperationException e) {
+            FleetLog.error("Fleet store could not save " + vehicle.getId() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onVehicleRemoved(Vehicle vehicle) {
+        remove(vehicle.getId());
+    }
+
+    @Override
+    public void onMileageChanged(Vehicle vehicle, double oldMileage) {
+        update(vehicle);
+    }
+
+    @Override
+    public void onMaintenanceChanged(Vehicle vehicle, boolean needed) {
+        update(vehicle);
+    }
+
+    @Override
+    public void onFuelChanged(Vehicle vehicle) {
+        update(vehicle);
+    }
+}
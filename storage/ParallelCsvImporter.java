@@ -0,0 +1,173 @@
+package storage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import vehicles.*;
+import exceptions.*;
+import fleetmanager.*;
+
+// imports a fleet CSV on all cores: the file is memory-mapped, cut into line-aligned
+// chunks, each chunk is parsed on the ForkJoin pool, and the results are merged into the
+// FleetManager with a single addAll so the fleet list, model map and ID set are built in bulk.
+// schema-dialect headers are read from the top of the file first and shared by every chunk,
+// so they must all come before the first row, as SchemaCsvWriter puts them
+public class ParallelCsvImporter {
+    private static final long MIN_CHUNK = 1L << 20;   // 1 MB: smaller chunks cost more in overhead than they gain
+    private static final long MAX_CHUNK = 1L << 28;   // 256 MB: keeps each mapping and its char copy bounded
+    private static final int SCAN_WINDOW = 1 << 16;   // bytes mapped at a time while looking for a line end
+
+    private ParallelCsvImporter() {
+    }
+
+    // vehicles from chunks before a parse error are still added, as the sequential loader does,
+    // and the error is then rethrown
+    public static BulkAddResult importInto(String fileName, FleetManager fleetManager)
+            throws IOException, InvalidOperationException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            SchemaTable headers = readHeaders(fileName);
+            long[] bounds = chunkBounds(channel);
+            List<ChunkResult> chunks = IntStream.range(0, bounds.length - 1).parallel()
+                    .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1], headers.frozenCopy()))
+                    .collect(Collectors.toList());
+
+            int total = 0;
+            for (ChunkResult chunk : chunks) {
+                total += chunk.vehicles.size();
+            }
+            List<Vehicle> merged = new ArrayList<>(total);
+            InvalidOperationException error = null;
+            for (ChunkResult chunk : chunks) {
+                merged.addAll(chunk.vehicles);
+                if (chunk.error != null) {
+                    error = chunk.error;
+                    break;
+                }
+            }
+            BulkAddResult result = fleetManager.addAll(merged);
+            if (error != null) {
+                throw error;
+            }
+            return result;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // the header lines at the top of the file; empty for a Key:Value file
+    private static SchemaTable readHeaders(String fileName) throws IOException, InvalidOperationException {
+        SchemaTable headers = new SchemaTable(CodecRegistry.standard());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (!trimmed.isEmpty() && trimmed.charAt(0) != '#') {
+                    break;
+                }
+                headers.parse(line.toCharArray(), 0, line.length(), lineNumber);
+            }
+        }
+        return headers;
+    }
+
+    // chunk start offsets plus the file size; every start except the first sits just past a '\n'
+    private static long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int cores = Runtime.getRuntime().availableProcessors();
+        long chunk = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, size / (cores * 4L) + 1));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long next = chunk;
+        while (next < size) {
+            long lineStart = nextLineStart(channel, next, size);
+            if (lineStart >= size) {
+                break;
+            }
+            bounds.add(lineStart);
+            next = lineStart + chunk;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        long pos = from;
+        while (pos < size) {
+            int len = (int) Math.min(SCAN_WINDOW, size - pos);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            for (int i = 0; i < len; i++) {
+                if (window.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += len;
+        }
+        return size;
+    }
+
+    private static ChunkResult parseChunk(FileChannel channel, long start, long end, SchemaTable schema) {
+        ChunkResult result = new ChunkResult();
+        char[] text;
+        try {
+            text = decode(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int lineNumber = 0;
+        int lineStart = 0;
+        try {
+            while (lineStart < text.length) {
+                int lineEnd = lineStart;
+                while (lineEnd < text.length && text[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                int contentEnd = lineEnd > lineStart && text[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+                lineNumber++;
+                Vehicle v = schema.parse(text, lineStart, contentEnd, lineNumber);
+                if (v != null) {
+                    result.vehicles.add(v);
+                }
+                lineStart = lineEnd + 1;
+            }
+        } catch (InvalidOperationException e) {
+            result.error = new InvalidOperationException(e.getMessage() + " (in chunk starting at byte " + start + ")");
+        }
+        return result;
+    }
+
+    // ASCII bytes are widened directly; a chunk with any other byte goes through the UTF-8 decoder.
+    // chunks start and end on '\n', so a multi-byte character is never split between two of them
+    private static char[] decode(ByteBuffer bytes) {
+        int len = bytes.remaining();
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            byte b = bytes.get(i);
+            if (b < 0) {
+                CharBuffer decoded = StandardCharsets.UTF_8.decode(bytes.duplicate());
+                char[] result = new char[decoded.remaining()];
+                decoded.get(result);
+                return result;
+            }
+            chars[i] = (char) b;
+        }
+        return chars;
+    }
+
+    private static class ChunkResult {
+        final List<Vehicle> vehicles = new ArrayList<>();
+        InvalidOperationException error;   // first bad line in the chunk, parsing stops there
+    }
+}
@@ -0,0 +1,68 @@
+package storage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import vehicles.*;
+
+// writes the schema CSV dialect: one header per vehicle class at the top of the file, then rows
+// holding only values, in the order the class's codec lists its fields. Field names are no longer
+// repeated on every row, which roughly halves the file next to the Key:Value dialect.
+// IDs and models are written as they are, so they must not contain commas or line breaks
+public class SchemaCsvWriter {
+
+    private SchemaCsvWriter() {
+    }
+
+    public static void write(String fileName, Collection<? extends Vehicle> fleet) throws IOException {
+        write(fileName, fleet, CodecRegistry.standard());
+    }
+
+    public static void write(String fileName, Collection<? extends Vehicle> fleet, CodecRegistry registry) throws IOException {
+        Map<Class<?>, VehicleCodec<?>> codecs = codecsFor(fleet, registry);
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8), 1 << 16))) {
+            StringBuilder line = new StringBuilder(256);
+            for (VehicleCodec<?> codec : new LinkedHashSet<>(codecs.values())) {
+                line.setLength(0);
+                appendHeader(line, codec);
+                writer.println(line);
+            }
+            for (Vehicle v : fleet) {
+                line.setLength(0);
+                appendRow(line, codecs.get(v.getClass()), v);
+                writer.println(line);
+            }
+            if (writer.checkError()) {
+                throw new IOException("Error writing " + fileName);
+            }
+        }
+    }
+
+    // codec of every class in the fleet, in order of first appearance
+    static Map<Class<?>, VehicleCodec<?>> codecsFor(Collection<? extends Vehicle> fleet, CodecRegistry registry)
+            throws IOException {
+        Map<Class<?>, VehicleCodec<?>> codecs = new LinkedHashMap<>();
+        for (Vehicle v : fleet) {
+            if (!codecs.containsKey(v.getClass())) {
+                VehicleCodec<?> codec = registry.forType(v.getClass());
+                if (codec == null) {
+                    throw new IOException("No codec registered for " + v.getClass().getName());
+                }
+                codecs.put(v.getClass(), codec);
+            }
+        }
+        return codecs;
+    }
+
+    static void appendHeader(StringBuilder line, VehicleCodec<?> codec) {
+        line.append('#').append(codec.getName());
+        for (String field : codec.getFields()) {
+            line.append(',').append(field);
+        }
+    }
+
+    static void appendRow(StringBuilder line, VehicleCodec<?> codec, Vehicle v) {
+        line.append(codec.getName());
+        codec.writeRow(v, new VehicleCodec.Row(line));
+    }
+}
@@ -0,0 +1,209 @@
+package storage;
+import java.util.*;
+import vehicles.*;
+import exceptions.*;
+
+// reads the schema CSV dialect written by SchemaCsvWriter:
+//     #Car,ID,Model,MaxSpeed,...          header: '#', class name, then its field names
+//     Car,C1,Corolla,180.0,...            row: class name, then values in header order
+// a header maps its columns onto the codec's fields once, so rows are parsed by position.
+// Lines in the older Key:Value dialect ("Class:Car,ID:...") are passed to CsvFleetReader.parseLine,
+// which lets one reader handle either kind of file, and delta logs that mix the two.
+// Not thread-safe: each reader, or each chunk of a parallel import, works on its own table
+final class SchemaTable implements VehicleCodec.Values {
+    private static final String LEGACY_PREFIX = "Class:";
+
+    private final CodecRegistry registry;
+    private final List<Entry> entries = new ArrayList<>();
+    private boolean frozen = false;   // set on copies that must not see a header change
+
+    // the row being read
+    private char[] line;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int cells;
+    private int[] columns;   // field index -> column of the current row's class
+
+    SchemaTable(CodecRegistry registry) {
+        this.registry = registry;
+    }
+
+    // a table with the same headers, for a chunk of a parallel import; a header that differs
+    // from the known ones fails there, since chunks before it would not have seen it
+    SchemaTable frozenCopy() {
+        SchemaTable copy = new SchemaTable(registry);
+        copy.entries.addAll(entries);
+        copy.frozen = true;
+        return copy;
+    }
+
+    // parses one line of either dialect; returns null for blank lines, headers and unknown classes
+    Vehicle parse(char[] s, int from, int to, int lineNumber) throws InvalidOperationException {
+        while (from < to && s[from] <= ' ') {
+            from++;
+        }
+        if (from == to) {
+            return null;
+        }
+        if (s[from] == '#') {
+            addHeader(s, from + 1, to, lineNumber);
+            return null;
+        }
+        if (entries.isEmpty() || startsWith(s, from, to, LEGACY_PREFIX)) {
+            return CsvFleetReader.parseLine(s, from, to, lineNumber);
+        }
+        return parseRow(s, from, to, lineNumber);
+    }
+
+    private void addHeader(char[] s, int from, int to, int lineNumber) throws InvalidOperationException {
+        split(s, from, to);
+        String name = cell(s, 0);
+        String text = new String(s, from, to - from).trim();
+        Entry known = find(s, starts[0], ends[0]);
+        if (known != null && known.header.equals(text)) {
+            return;
+        }
+        if (frozen) {
+            throw new InvalidOperationException("Header for " + name + " on line " + lineNumber
+                    + " must come before the first row to be loaded in parallel");
+        }
+        VehicleCodec<?> codec = registry.forName(name);
+        int[] columns = null;
+        if (codec != null) {
+            columns = new int[codec.fieldCount()];
+            Arrays.fill(columns, -1);   // fields the header leaves out read as defaults
+            for (int c = 1; c < cells; c++) {
+                String field = cell(s, c);
+                for (int f = 0; f < columns.length; f++) {
+                    if (codec.field(f).equals(field)) {
+                        columns[f] = c;
+                    }
+                }
+            }
+        }
+        if (known != null) {
+            entries.remove(known);
+        }
+        entries.add(new Entry(name, text, codec, columns));
+    }
+
+    private Vehicle parseRow(char[] s, int from, int to, int lineNumber) throws InvalidOperationException {
+        split(s, from, to);
+        Entry entry = find(s, starts[0], ends[0]);
+        if (entry == null) {
+            throw new InvalidOperationException("No header for class " + cell(s, 0) + " on line " + lineNumber);
+        }
+        if (entry.codec == null) {
+            return null;   // a class this build has no codec for is skipped, as in the Key:Value dialect
+        }
+        line = s;
+        columns = entry.columns;
+        try {
+            return entry.codec.read(this);
+        } catch (NumberFormatException e) {
+            throw new InvalidOperationException("Bad number on line " + lineNumber + ": " + e.getMessage());
+        } finally {
+            line = null;
+        }
+    }
+
+    // cuts line[from, to) at the commas into trimmed cells
+    private void split(char[] s, int from, int to) {
+        cells = 0;
+        int cellStart = from;
+        while (true) {
+            int cellEnd = cellStart;
+            while (cellEnd < to && s[cellEnd] != ',') {
+                cellEnd++;
+            }
+            if (cells == starts.length) {
+                starts = Arrays.copyOf(starts, cells * 2);
+                ends = Arrays.copyOf(ends, cells * 2);
+            }
+            int a = cellStart, b = cellEnd;
+            while (a < b && s[a] <= ' ') {
+                a++;
+            }
+            while (b > a && s[b - 1] <= ' ') {
+                b--;
+            }
+            starts[cells] = a;
+            ends[cells] = b;
+            cells++;
+            if (cellEnd == to) {
+                return;
+            }
+            cellStart = cellEnd + 1;
+        }
+    }
+
+    private String cell(char[] s, int c) {
+        return new String(s, starts[c], ends[c] - starts[c]);
+    }
+
+    // linear: a file holds a handful of classes, and this avoids a String per row
+    private Entry find(char[] s, int from, int to) {
+        for (int i = 0; i < entries.size(); i++) {
+            Entry e = entries.get(i);
+            if (e.name.length() == to - from && startsWith(s, from, to, e.name)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(char[] s, int from, int to, String prefix) {
+        if (to - from < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s[from + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int column(int field) {
+        int c = field < columns.length ? columns[field] : -1;
+        return c < cells ? c : -1;
+    }
+
+    @Override
+    public String text(int field) {
+        int c = column(field);
+        return c < 0 ? "" : new String(line, starts[c], ends[c] - starts[c]);
+    }
+
+    @Override
+    public double decimal(int field) {
+        int c = column(field);
+        return c < 0 ? 0 : CsvFleetReader.parseDouble(line, starts[c], ends[c]);
+    }
+
+    @Override
+    public int integer(int field) {
+        int c = column(field);
+        return c < 0 ? 0 : CsvFleetReader.parseInt(line, starts[c], ends[c]);
+    }
+
+    @Override
+    public boolean flag(int field) {
+        int c = column(field);
+        return c >= 0 && CsvFleetReader.parseBoolean(line, starts[c], ends[c]);
+    }
+
+    private static final class Entry {
+        final String name;
+        final String header;   // the header line as written, to tell a repeat from a change
+        final VehicleCodec<?> codec;   // null for a class with no registered codec
+        final int[] columns;
+
+        Entry(String name, String header, VehicleCodec<?> codec, int[] columns) {
+            this.name = name;
+            this.header = header;
+            this.codec = codec;
+            this.columns = columns;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package storage;
+import vehicles.*;
+import concreteclasses.*;
+import exceptions.*;
+
+// codecs for the built-in vehicle classes. Every codec starts with the fields all vehicles share,
+// so the field indexes below line up across classes
+final class StandardCodecs {
+    private static final int ID = 0, MODEL = 1, MAX_SPEED = 2, MILEAGE = 3;
+
+    private StandardCodecs() {
+    }
+
+    static void registerAll(CodecRegistry registry) {
+        registry.register(new CarCodec());
+        registry.register(new BusCodec());
+        registry.register(new TruckCodec());
+        registry.register(new AirplaneCodec());
+        registry.register(new CargoShipCodec());
+    }
+
+    private static void common(Vehicle v, VehicleCodec.Row row) {
+        row.add(v.getId()).add(v.getModel()).add(v.getMaxSpeed()).add(v.getCurrentMileage());
+    }
+
+    static final class CarCodec extends VehicleCodec<Car> {
+        private static final int NUM_WHEELS = 4, FUEL_LEVEL = 5, PASSENGER_CAPACITY = 6, CURRENT_PASSENGERS = 7,
+                MAINTENANCE_NEEDED = 8;
+
+        CarCodec() {
+            super(Car.class, "ID", "Model", "MaxSpeed", "Mileage", "NumWheels", "FuelLevel", "PassengerCapacity",
+                    "CurrentPassengers", "MaintenanceNeeded");
+        }
+
+        @Override
+        protected void write(Car c, Row row) {
+            common(c, row);
+            row.add(c.getNumWheels()).add(c.getFuelLevel()).add(c.getPassengerCapacity())
+                    .add(c.getCurrentPassengers()).add(c.needsMaintenance());
+        }
+
+        @Override
+        protected Car read(Values in) throws InvalidOperationException {
+            return new Car(in.text(ID), in.text(MODEL), in.decimal(MAX_SPEED), in.decimal(MILEAGE),
+                    in.integer(NUM_WHEELS), in.decimal(FUEL_LEVEL), in.integer(PASSENGER_CAPACITY),
+                    in.integer(CURRENT_PASSENGERS), in.flag(MAINTENANCE_NEEDED));
+        }
+    }
+
+    static final class BusCodec extends VehicleCodec<Bus> {
+        private static final int NUM_WHEELS = 4, FUEL_LEVEL = 5, PASSENGER_CAPACITY = 6, CURRENT_PASSENGERS = 7,
+                CARGO_CAPACITY = 8, CURRENT_CARGO = 9, MAINTENANCE_NEEDED = 10;
+
+        BusCodec() {
+            super(Bus.class, "ID", "Model", "MaxSpeed", "Mileage", "NumWheels", "FuelLevel", "PassengerCapacity",
+                    "CurrentPassengers", "CargoCapacity", "CurrentCargo", "MaintenanceNeeded");
+        }
+
+        @Override
+        protected void write(Bus b, Row row) {
+            common(b, row);
+            row.add(b.getNumWheels()).add(b.getFuelLevel()).add(b.getPassengerCapacity()).add(b.getCurrentPassengers())
+                    .add(b.getCargoCapacity()).add(b.getCurrentCargo()).add(b.needsMaintenance());
+        }
+
+        @Override
+        protected Bus read(Values in) throws InvalidOperationException {
+            return new Bus(in.text(ID), in.text(MODEL), in.decimal(MAX_SPEED), in.decimal(MILEAGE),
+                    in.integer(NUM_WHEELS), in.decimal(FUEL_LEVEL), in.integer(PASSENGER_CAPACITY),
+                    in.integer(CURRENT_PASSENGERS), in.decimal(CARGO_CAPACITY), in.decimal(CURRENT_CARGO),
+                    in.flag(MAINTENANCE_NEEDED));
+        }
+    }
+
+    static final class TruckCodec extends VehicleCodec<Truck> {
+        private static final int NUM_WHEELS = 4, FUEL_LEVEL = 5, CARGO_CAPACITY = 6, CURRENT_CARGO = 7,
+                MAINTENANCE_NEEDED = 8;
+
+        TruckCodec() {
+            super(Truck.class, "ID", "Model", "MaxSpeed", "Mileage", "NumWheels", "FuelLevel", "CargoCapacity",
+                    "CurrentCargo", "MaintenanceNeeded");
+        }
+
+        @Override
+        protected void write(Truck t, Row row) {
+            common(t, row);
+            row.add(t.getNumWheels()).add(t.getFuelLevel()).add(t.getCargoCapacity()).add(t.getCurrentCargo())
+                    .add(t.needsMaintenance());
+        }
+
+        @Override
+        protected Truck read(Values in) throws InvalidOperationException {
+            return new Truck(in.text(ID), in.text(MODEL), in.decimal(MAX_SPEED), in.decimal(MILEAGE),
+                    in.integer(NUM_WHEELS), in.decimal(FUEL_LEVEL), in.decimal(CARGO_CAPACITY),
+                    in.decimal(CURRENT_CARGO), in.flag(MAINTENANCE_NEEDED));
+        }
+    }
+
+    static final class AirplaneCodec extends VehicleCodec<Airplane> {
+        private static final int MAX_ALTITUDE = 4, FUEL_LEVEL = 5, PASSENGER_CAPACITY = 6, CURRENT_PASSENGERS = 7,
+                CARGO_CAPACITY = 8, CURRENT_CARGO = 9, MAINTENANCE_NEEDED = 10;
+
+        AirplaneCodec() {
+            super(Airplane.class, "ID", "Model", "MaxSpeed", "Mileage", "MaxAltitude", "FuelLevel", "PassengerCapacity",
+                    "CurrentPassengers", "CargoCapacity", "CurrentCargo", "MaintenanceNeeded");
+        }
+
+        @Override
+        protected void write(Airplane p, Row row) {
+            common(p, row);
+            row.add(p.getMaxAltitude()).add(p.getFuelLevel()).add(p.getPassengerCapacity()).add(p.getCurrentPassengers())
+                    .add(p.getCargoCapacity()).add(p.getCurrentCargo()).add(p.needsMaintenance());
+        }
+
+        @Override
+        protected Airplane read(Values in) throws InvalidOperationException {
+            return new Airplane(in.text(ID), in.text(MODEL), in.decimal(MAX_SPEED), in.decimal(MILEAGE),
+                    in.decimal(MAX_ALTITUDE), in.decimal(FUEL_LEVEL), in.integer(PASSENGER_CAPACITY),
+                    in.integer(CURRENT_PASSENGERS), in.decimal(CARGO_CAPACITY), in.decimal(CURRENT_CARGO),
+                    in.flag(MAINTENANCE_NEEDED));
+        }
+    }
+
+    static final class CargoShipCodec extends VehicleCodec<CargoShip> {
+        private static final int HAS_SAIL = 4, FUEL_LEVEL = 5, CARGO_CAPACITY = 6, CURRENT_CARGO = 7,
+                MAINTENANCE_NEEDED = 8;
+
+        CargoShipCodec() {
+            super(CargoShip.class, "ID", "Model", "MaxSpeed", "Mileage", "HasSail", "FuelLevel", "CargoCapacity",
+                    "CurrentCargo", "MaintenanceNeeded");
+        }
+
+        @Override
+        protected void write(CargoShip s, Row row) {
+            common(s, row);
+            row.add(s.getSail()).add(s.getFuelLevel()).add(s.getCargoCapacity()).add(s.getCurrentCargo())
+                    .add(s.needsMaintenance());
+        }
+
+        @Override
+        protected CargoShip read(Values in) throws InvalidOperationException {
+            return new CargoShip(in.text(ID), in.text(MODEL), in.decimal(MAX_SPEED), in.decimal(MILEAGE),
+                    in.flag(HAS_SAIL), in.decimal(FUEL_LEVEL), in.decimal(CARGO_CAPACITY), in.decimal(CURRENT_CARGO),
+                    in.flag(MAINTENANCE_NEEDED));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package storage;
+import java.util.*;
+import vehicles.*;
+import exceptions.*;
+
+// how one vehicle class is written to and read from the schema CSV dialect. A codec names its
+// fields once; the writer puts them in the class's header line, and rows then carry only the values.
+// the JSON Lines reader and writer use the same codecs, with the field names as member names
+// register codecs with a CodecRegistry; StandardCodecs covers the built-in classes
+public abstract class VehicleCodec<T extends Vehicle> {
+    private final Class<T> type;
+    private final String name;
+    private final String[] fields;
+
+    protected VehicleCodec(Class<T> type, String... fields) {
+        this.type = type;
+        this.name = type.getSimpleName();
+        this.fields = fields.clone();
+    }
+
+    // class name used in header lines and as the first value of each row
+    public String getName() {
+        return name;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public List<String> getFields() {
+        return Collections.unmodifiableList(Arrays.asList(fields));
+    }
+
+    int fieldCount() {
+        return fields.length;
+    }
+
+    String field(int i) {
+        return fields[i];
+    }
+
+    // adds one value per field, in getFields() order
+    protected abstract void write(T vehicle, Row row);
+
+    // builds the vehicle from a row; values are asked for by field index
+    protected abstract T read(Values values) throws InvalidOperationException;
+
+    final void writeRow(Vehicle vehicle, Row row) {
+        write(type.cast(vehicle), row);
+    }
+
+    // the values of one row as they are written; each add puts the separator in front.
+    // A row made for JSON writes each value as a member named after the codec's field
+    public static final class Row {
+        private final StringBuilder line;
+        private final VehicleCodec<?> json;   // null for a CSV row
+        private int field = 0;
+
+        Row(StringBuilder line) {
+            this(line, null);
+        }
+
+        Row(StringBuilder line, VehicleCodec<?> json) {
+            this.line = line;
+            this.json = json;
+        }
+
+        private StringBuilder next() {
+            line.append(',');
+            if (json != null) {
+                JsonlFleetWriter.appendString(line, field < json.fieldCount() ? json.field(field) : "Field" + field);
+                line.append(':');
+            }
+            field++;
+            return line;
+        }
+
+        public Row add(String value) {
+            if (json != null) {
+                JsonlFleetWriter.appendString(next(), value);
+            } else {
+                next().append(value);
+            }
+            return this;
+        }
+
+        public Row add(double value) {
+            if (json != null && (Double.isNaN(value) || Double.isInfinite(value))) {
+                next().append("null");   // JSON has no literal for these; read back as 0
+            } else {
+                next().append(value);
+            }
+            return this;
+        }
+
+        public Row add(int value) {
+            next().append(value);
+            return this;
+        }
+
+        public Row add(boolean value) {
+            next().append(value);
+            return this;
+        }
+    }
+
+    // the values of one row as they are read; a field the file's header leaves out
+    // reads as "", 0 or false, the same defaults the Key:Value reader uses
+    public interface Values {
+        String text(int field);
+        double decimal(int field) throws InvalidOperationException;
+        int integer(int field) throws InvalidOperationException;
+        boolean flag(int field);
+    }
+}
@@ -0,0 +1,110 @@
+package storage;
+import java.nio.ByteBuffer;
+import vehicles.*;
+import concreteclasses.*;
+import interfaces.*;
+import exceptions.*;
+
+// the fixed-width part of a stored vehicle, shared by BinarySnapshot and MappedFleetStore.
+// fields, in order: double maxSpeed, double mileage, double fuelLevel, double maxAltitude,
+// int passengerCapacity, int currentPassengers, double cargoCapacity, double currentCargo,
+// int numWheels, byte flags (bit 0 maintenance needed, bit 1 has sail).
+// fields a class does not have are written as zero
+final class VehicleRecord {
+    static final String[] CLASSES = {"Car", "Bus", "Truck", "Airplane", "CargoShip"};
+    static final byte CAR = 0, BUS = 1, TRUCK = 2, AIRPLANE = 3, CARGO_SHIP = 4;
+    static final int FIELD_BYTES = 8 * 4 + 4 + 4 + 8 + 8 + 4 + 1;
+
+    private static final int MAINTENANCE = 1, SAIL = 2;
+
+    private VehicleRecord() {
+    }
+
+    // class tag for the vehicle, or -1 if it is not one of CLASSES
+    static byte tagOf(Vehicle v) {
+        if (v instanceof Car) {
+            return CAR;
+        } else if (v instanceof Bus) {
+            return BUS;
+        } else if (v instanceof Truck) {
+            return TRUCK;
+        } else if (v instanceof Airplane) {
+            return AIRPLANE;
+        } else if (v instanceof CargoShip) {
+            return CARGO_SHIP;
+        }
+        return -1;
+    }
+
+    // writes FIELD_BYTES at the buffer's position
+    static void writeFields(ByteBuffer out, Vehicle v) {
+        double maxAltitude = 0, cargoCapacity = 0, currentCargo = 0;
+        int passengerCapacity = 0, currentPassengers = 0, numWheels = 0;
+        int flags = 0;
+        if (v instanceof LandVehicle) {
+            numWheels = ((LandVehicle) v).getNumWheels();
+        }
+        if (v instanceof AirVehicle) {
+            maxAltitude = ((AirVehicle) v).getMaxAltitude();
+        }
+        if (v instanceof WaterVehicle && ((WaterVehicle) v).getSail()) {
+            flags |= SAIL;
+        }
+        if (v instanceof PassengerCarrier) {
+            passengerCapacity = ((PassengerCarrier) v).getPassengerCapacity();
+            currentPassengers = ((PassengerCarrier) v).getCurrentPassengers();
+        }
+        if (v instanceof CargoCarrier) {
+            cargoCapacity = ((CargoCarrier) v).getCargoCapacity();
+            currentCargo = ((CargoCarrier) v).getCurrentCargo();
+        }
+        if (v instanceof Maintainable && ((Maintainable) v).needsMaintenance()) {
+            flags |= MAINTENANCE;
+        }
+        double fuelLevel = v instanceof FuelConsumable ? ((FuelConsumable) v).getFuelLevel() : 0;
+
+        out.putDouble(v.getMaxSpeed());
+        out.putDouble(v.getCurrentMileage());
+        out.putDouble(fuelLevel);
+        out.putDouble(maxAltitude);
+        out.putInt(passengerCapacity);
+        out.putInt(currentPassengers);
+        out.putDouble(cargoCapacity);
+        out.putDouble(currentCargo);
+        out.putInt(numWheels);
+        out.put((byte) flags);
+    }
+
+    // reads FIELD_BYTES at the buffer's position; returns null for a tag this build does not know
+    static Vehicle readFields(ByteBuffer in, int tag, String id, String model) throws InvalidOperationException {
+        double maxSpeed = in.getDouble();
+        double mileage = in.getDouble();
+        double fuelLevel = in.getDouble();
+        double maxAltitude = in.getDouble();
+        int passengerCapacity = in.getInt();
+        int currentPassengers = in.getInt();
+        double cargoCapacity = in.getDouble();
+        double currentCargo = in.getDouble();
+        int numWheels = in.getInt();
+        int flags = Byte.toUnsignedInt(in.get());
+        boolean maintenanceNeeded = (flags & MAINTENANCE) != 0;
+        boolean hasSail = (flags & SAIL) != 0;
+
+        switch (tag) {
+            case CAR:
+                return new Car(id, model, maxSpeed, mileage, numWheels, fuelLevel, passengerCapacity, currentPassengers, maintenanceNeeded);
+            case BUS:
+                return new Bus(id, model, maxSpeed, mileage, numWheels, fuelLevel, passengerCapacity, currentPassengers,
+                        cargoCapacity, currentCargo, maintenanceNeeded);
+            case TRUCK:
+                return new Truck(id, model, maxSpeed, mileage, numWheels, fuelLevel, cargoCapacity, currentCargo, maintenanceNeeded);
+            case AIRPLANE:
+                return new Airplane(id, model, maxSpeed, mileage, maxAltitude, fuelLevel, passengerCapacity, currentPassengers,
+                        cargoCapacity, currentCargo, maintenanceNeeded);
+            case CARGO_SHIP:
+                return new CargoShip(id, model, maxSpeed, mileage, hasSail, fuelLevel, cargoCapacity, currentCargo, maintenanceNeeded);
+            default:
+                return null;
+        }
+    }
+}
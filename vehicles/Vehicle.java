@@ -8,6 +8,7 @@ public abstract class Vehicle implements Comparable<Vehicle> {
     private String model;
     private double maxSpeed;
     private double currentMileage;
+    private VehicleUpdateCallback updateCallback;   // notified when mileage, fuel or maintenance state changes
 
     public Vehicle(String id, String model, double maxSpeed, double currentMileage) throws InvalidOperationException {
         if (id == null || id.isEmpty()) {
@@ -50,7 +51,29 @@ public abstract class Vehicle implements Comparable<Vehicle> {
     }
 
     protected void updateMileage(double distance) {
+        double oldMileage = this.currentMileage;
         this.currentMileage += distance;
+        if (updateCallback != null) {
+            updateCallback.onMileageChanged(this, oldMileage);
+        }
+    }
+
+    // subclasses call this whenever their maintenance flag flips
+    protected void notifyMaintenanceChanged(boolean needed) {
+        if (updateCallback != null) {
+            updateCallback.onMaintenanceChanged(this, needed);
+        }
+    }
+
+    // subclasses call this after refuelling or burning fuel
+    protected void notifyFuelChanged() {
+        if (updateCallback != null) {
+            updateCallback.onFuelChanged(this);
+        }
+    }
+
+    public void setUpdateCallback(VehicleUpdateCallback callback) {
+        this.updateCallback = callback;
     }
 
     @Override
@@ -65,4 +88,12 @@ public abstract class Vehicle implements Comparable<Vehicle> {
             }
         }
     }
-}
\ No newline at end of file
+
+    // lets an owner such as FleetManager keep running totals without rescanning vehicles
+    public interface VehicleUpdateCallback {
+        void onMileageChanged(Vehicle vehicle, double oldMileage);
+        void onMaintenanceChanged(Vehicle vehicle, boolean needed);
+        default void onFuelChanged(Vehicle vehicle) {
+        }
+    }
+}